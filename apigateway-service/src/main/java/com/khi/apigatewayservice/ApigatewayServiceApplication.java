@@ -1,9 +1,12 @@
 package com.khi.apigatewayservice;
 
+import com.khi.apigatewayservice.common.filter.JwtFilterProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 
 @SpringBootApplication
+@EnableConfigurationProperties(JwtFilterProperties.class)
 public class ApigatewayServiceApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,135 @@
+package com.khi.apigatewayservice.common.filter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.khi.apigatewayservice.common.api.ApiResponse;
+import com.khi.apigatewayservice.common.exception.type.JwtException;
+import com.khi.apigatewayservice.common.util.JwtClaims;
+import com.khi.apigatewayservice.common.util.JwtUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.cors.reactive.CorsUtils;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/*
+ * 라우팅 전에 Access-Token 헤더를 한 번 검증하고, 검증된 uid / role 을 신뢰 헤더로 붙여 하위 서비스로 넘긴다.
+ * 공개 경로는 application.yml 의 gateway.jwt.public-paths 목록이다.
+ * 클라이언트가 보낸 신뢰 헤더는 공개 경로를 포함해 항상 지운다.
+ * 로그아웃은 만료된 access 토큰으로도 할 수 있어야 하므로 공개 경로다 (security-service 가 refresh 토큰으로 검증).
+ * CORS preflight(OPTIONS) 는 토큰을 싣지 않으므로 검증 없이 통과시킨다.
+ * 검증 실패 시 라우팅하지 않고 401 ApiResponse 를 바로 쓴다 (GlobalFilter 의 예외는 ExceptionControllerAdvice 까지 가지 않는다).
+ */
+@Slf4j
+@Component
+public class JwtAuthenticationFilter implements GlobalFilter, Ordered {
+
+    public static final String ACCESS_TOKEN_HEADER = "Access-Token";
+    public static final String USER_UID_HEADER = "X-User-Uid";
+    public static final String USER_ROLE_HEADER = "X-User-Role";
+
+    private final JwtUtil jwtUtil;
+    private final ObjectMapper objectMapper;
+    private final List<String> publicPaths;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public JwtAuthenticationFilter(JwtUtil jwtUtil, ObjectMapper objectMapper, JwtFilterProperties properties) {
+
+        this.jwtUtil = jwtUtil;
+        this.objectMapper = objectMapper;
+        this.publicPaths = properties.publicPaths();
+        log.info("[jwt] public paths {}", publicPaths);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+
+        ServerHttpRequest request = exchange.getRequest();
+        String path = request.getPath().pathWithinApplication().value();
+
+        if (CorsUtils.isPreFlightRequest(request) || isPublic(path)) {
+
+            return chain.filter(withUser(exchange, null));
+        }
+
+        String token = request.getHeaders().getFirst(ACCESS_TOKEN_HEADER);
+
+        if (token == null || token.isBlank()) {
+
+            return unauthorized(exchange, "액세스 토큰이 존재하지 않습니다.");
+        }
+
+        JwtClaims claims;
+
+        try {
+
+            claims = jwtUtil.verifyAccessToken(token);
+
+        } catch (JwtException e) {
+
+            log.info("[jwt] rejected {} {} | {}", request.getMethod(), path, e.getMessage());
+
+            return unauthorized(exchange, e.getMessage());
+        }
+
+        return chain.filter(withUser(exchange, claims));
+    }
+
+    @Override
+    public int getOrder() {
+
+        // 라우팅/로드밸런싱 필터보다 먼저
+        return Ordered.HIGHEST_PRECEDENCE + 100;
+    }
+
+    private boolean isPublic(String path) {
+
+        for (String pattern : publicPaths) {
+            if (pathMatcher.match(pattern, path)) return true;
+        }
+        return false;
+    }
+
+    // claims 가 null 이면 신뢰 헤더만 지운다
+    private ServerWebExchange withUser(ServerWebExchange exchange, JwtClaims claims) {
+
+        ServerHttpRequest request = exchange.getRequest().mutate()
+                .headers(headers -> {
+                    headers.remove(USER_UID_HEADER);
+                    headers.remove(USER_ROLE_HEADER);
+                    if (claims != null) {
+                        headers.set(USER_UID_HEADER, claims.uid());
+                        if (claims.role() != null) headers.set(USER_ROLE_HEADER, claims.role());
+                    }
+                })
+                .build();
+
+        return exchange.mutate().request(request).build();
+    }
+
+    private Mono<Void> unauthorized(ServerWebExchange exchange, String message) {
+
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.UNAUTHORIZED);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(ApiResponse.error(message));
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+}
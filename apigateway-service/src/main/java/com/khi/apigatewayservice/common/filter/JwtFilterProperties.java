@@ -0,0 +1,14 @@
+package com.khi.apigatewayservice.common.filter;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+/* gateway.jwt.public-paths: 토큰 검증 없이 통과시키는 경로 (AntPathMatcher 패턴) */
+@ConfigurationProperties(prefix = "gateway.jwt")
+public record JwtFilterProperties(List<String> publicPaths) {
+
+    public JwtFilterProperties {
+        publicPaths = publicPaths == null ? List.of() : List.copyOf(publicPaths);
+    }
+}
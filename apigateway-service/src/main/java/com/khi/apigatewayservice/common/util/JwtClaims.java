@@ -0,0 +1,7 @@
+package com.khi.apigatewayservice.common.util;
+
+import java.time.Instant;
+
+/* 서명과 만료까지 검증을 마친 access 토큰의 claim */
+public record JwtClaims(String uid, String role, Instant expiration) {
+}
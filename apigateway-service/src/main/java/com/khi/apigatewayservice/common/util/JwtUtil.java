@@ -0,0 +1,106 @@
+package com.khi.apigatewayservice.common.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.khi.apigatewayservice.common.exception.type.JwtException;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+
+/*
+ * access 토큰 검증 (security-service 의 JwtUtil 과 같은 secret / claim 구조).
+ * 검증에 성공한 토큰은 SHA-256 해시를 키로 토큰의 exp 시각까지 캐시해 두고, 같은 토큰이 다시 오면 서명 검증 없이 claim 을 돌려준다.
+ * 실패한 토큰은 캐시하지 않는다 (임의 토큰으로 캐시를 밀어내지 못하게).
+ * 서명 검증과 캐시 조회 모두 I/O 없는 CPU 작업이라 Netty event loop 에서 바로 호출해도 된다.
+ */
+@Component
+public class JwtUtil {
+
+    private static final String ACCESS = "ACCESS";
+
+    private final JwtParser parser;
+    private final Cache<String, JwtClaims> verified;
+
+    public JwtUtil(@Value("${jwt.secret}") String secret,
+                   @Value("${gateway.jwt.cache.max-size:100000}") long cacheMaxSize) {
+
+        SecretKey secretKey = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), Jwts.SIG.HS256.key().build().getAlgorithm());
+        parser = Jwts.parser().verifyWith(secretKey).build();
+        verified = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(Expiry.creating((String key, JwtClaims claims) -> untilExpiration(claims)))
+                .build();
+    }
+
+    /* 유효하지 않거나 만료된 토큰, access 토큰이 아닌 토큰이면 JwtException */
+    public JwtClaims verifyAccessToken(String token) {
+
+        String key = hash(token);
+
+        JwtClaims cached = verified.getIfPresent(key);
+        if (cached != null && cached.expiration().isAfter(Instant.now())) {
+            return cached;
+        }
+
+        JwtClaims claims = parse(token);
+        verified.put(key, claims);
+
+        return claims;
+    }
+
+    private JwtClaims parse(String token) {
+
+        Claims claims;
+
+        try {
+
+            claims = parser.parseSignedClaims(token).getPayload();
+
+        } catch (ExpiredJwtException e) {
+
+            throw new JwtException("액세스 토큰이 만료되었습니다.");
+
+        } catch (io.jsonwebtoken.JwtException | IllegalArgumentException e) {
+
+            throw new JwtException("유효하지 않은 액세스 토큰입니다.");
+        }
+
+        String uid = claims.get("uid", String.class);
+
+        if (!ACCESS.equals(claims.get("tokenType", String.class)) || uid == null || claims.getExpiration() == null) {
+
+            throw new JwtException("유효하지 않은 액세스 토큰입니다.");
+        }
+
+        return new JwtClaims(uid, claims.get("role", String.class), claims.getExpiration().toInstant());
+    }
+
+    private static Duration untilExpiration(JwtClaims claims) {
+
+        Duration remaining = Duration.between(Instant.now(), claims.expiration());
+        return remaining.isNegative() ? Duration.ZERO : remaining;
+    }
+
+    private static String hash(String token) {
+
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
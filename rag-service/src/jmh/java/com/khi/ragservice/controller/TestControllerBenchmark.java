@@ -0,0 +1,102 @@
+package com.khi.ragservice.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.khi.ragservice.common.api.ApiResponse;
+import com.khi.ragservice.dto.RagResponse;
+import com.khi.ragservice.search.RagHit;
+import com.khi.ragservice.search.SyntheticCorpus;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * /rag/rag 요청 처리 중 검색을 제외한 부분:
+ * 요청 본문 -> 질의 문자열(ConversationParser.toUtteranceString), 응답 직렬화(compact / pretty 스트리밍)
+ * legacyMapPrettyString 은 이전 방식(행마다 LinkedHashMap + pretty String) 비교 기준
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TestControllerBenchmark {
+
+    private static final int K = 5;
+
+    // 한 요청에 담기는 발화 수
+    @Param({"10", "50"})
+    public int utterances;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private String body;
+    private String queryText;
+    private List<RagHit> hits;
+    private ObjectWriter compactWriter;
+    private ObjectWriter prettyWriter;
+    private final OutputStream sink = OutputStream.nullOutputStream();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        compactWriter = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        prettyWriter = compactWriter.withDefaultPrettyPrinter();
+
+        List<SyntheticCorpus.Sample> samples = SyntheticCorpus.fromDataset().samples();
+        SplittableRandom rnd = new SplittableRandom(3L);
+
+        List<Map<String, String>> chat = new ArrayList<>();
+        for (int i = 0; i < utterances; i++) {
+            chat.add(Map.of("speaker", i % 2 == 0 ? "A" : "B",
+                    "message", samples.get(rnd.nextInt(samples.size())).text()));
+        }
+        body = objectMapper.writeValueAsString(chat);
+
+        hits = new ArrayList<>(K);
+        for (int r = 0; r < K; r++) {
+            SyntheticCorpus.Sample s = samples.get(rnd.nextInt(samples.size()));
+            hits.add(new RagHit(r + 1, s.text(), s.label(), s.labelId(), 0.9 - r * 0.1));
+        }
+
+        queryText = ConversationParser.toUtteranceString(objectMapper, body);
+    }
+
+    @Benchmark
+    public String toUtteranceString() {
+        return ConversationParser.toUtteranceString(objectMapper, body);
+    }
+
+    @Benchmark
+    public void writeCompact() throws Exception {
+        compactWriter.writeValue(sink, ApiResponse.success(new RagResponse(queryText, K, "sparse", hits)));
+    }
+
+    @Benchmark
+    public void writePretty() throws Exception {
+        prettyWriter.writeValue(sink, ApiResponse.success(new RagResponse(queryText, K, "sparse", hits)));
+    }
+
+    @Benchmark
+    public String legacyMapPrettyString() throws Exception {
+        List<Map<String, Object>> items = new ArrayList<>(hits.size());
+        for (RagHit hit : hits) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("id", hit.id());
+            m.put("text", hit.text());
+            m.put("label", hit.label());
+            m.put("label_id", hit.labelId());
+            m.put("score", hit.score());
+            items.add(m);
+        }
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("query_text", queryText);
+        out.put("k", K);
+        out.put("mode", "sparse");
+        out.put("items", items);
+        return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(out);
+    }
+}
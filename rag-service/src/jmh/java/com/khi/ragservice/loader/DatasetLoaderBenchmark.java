@@ -0,0 +1,56 @@
+package com.khi.ragservice.loader;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.khi.ragservice.search.SyntheticCorpus;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/* DatasetLoader 의 행 단위 전처리 (normalizeSpace / normalizeKeys) */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DatasetLoaderBenchmark {
+
+    private String[] texts;
+    private JsonNode[] nodes;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        int advance(int size) {
+            if (++next == size) next = 0;
+            return next;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        ObjectMapper om = new ObjectMapper();
+        List<SyntheticCorpus.Sample> samples = SyntheticCorpus.fromDataset().samples();
+
+        texts = new String[samples.size()];
+        nodes = new JsonNode[samples.size()];
+        for (int i = 0; i < samples.size(); i++) {
+            SyntheticCorpus.Sample s = samples.get(i);
+            // 원본 데이터에 섞여 있는 BOM/대소문자 키, 중복 공백을 재현
+            texts[i] = "  " + s.text().replace(" ", "   ") + "\n";
+            nodes[i] = om.readTree("{\"\\uFEFFid\": " + (i + 1) + ", \"Text\": " + om.writeValueAsString(texts[i])
+                    + ", \"LABEL\": " + om.writeValueAsString(s.label()) + ", \"label_id\": " + s.labelId() + "}");
+        }
+    }
+
+    @Benchmark
+    public String normalizeSpace(Cursor cursor) {
+        return DatasetLoader.normalizeSpace(texts[cursor.advance(texts.length)]);
+    }
+
+    @Benchmark
+    public Map<String, JsonNode> normalizeKeys(Cursor cursor) {
+        return DatasetLoader.normalizeKeys(nodes[cursor.advance(nodes.length)]);
+    }
+}
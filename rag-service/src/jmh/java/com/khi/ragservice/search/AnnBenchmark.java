@@ -0,0 +1,125 @@
+package com.khi.ragservice.search;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * HNSW 근사 탐색 vs 전수 탐색의 recall / 지연 비교.
+ * 실제 임베딩처럼 군집 구조가 있도록 label 마다 중심 벡터를 두고 문서 벡터는 그 주변에 흩뿌린다.
+ * recall@K 는 annSearch 의 보조 카운터(@AuxCounters)로 결과 JSON 에 같이 남는다: recall@K = recallHits / recallExpected.
+ * 정답(전수 탐색 top-K)은 @Setup 에서 질의별로 미리 구해 두므로 측정 구간에서는 겹치는 id 만 센다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AnnBenchmark {
+
+    private static final int K = 5;
+    private static final int QUERY_COUNT = 64;
+    private static final int CENTERS_PER_LABEL = 32;
+
+    @Param({"100000"})
+    public int rows;
+
+    @Param({"384"})
+    public int dim;
+
+    @Param({"16"})
+    public int m;
+
+    @Param({"16", "32", "64", "128"})
+    public int efSearch;
+
+    private VectorIndex exact;
+    private VectorIndex ann;
+    private float[][] queryVectors;
+    private int[][] truth;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        int advance() {
+            next = (next + 1) & (QUERY_COUNT - 1);
+            return next;
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Recall {
+        public long recallHits;
+        public long recallExpected;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            recallHits = 0;
+            recallExpected = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RagCorpus corpus = SyntheticCorpus.fromDataset().generate(rows, 42L);
+
+        SplittableRandom rnd = new SplittableRandom(11L);
+        float[][] centers = new float[Short.MAX_VALUE][];
+        VectorIndex.Builder builder = VectorIndex.builder(corpus, dim);
+        for (int d = 0; d < corpus.size(); d++) builder.put(corpus.id(d), near(centers, corpus.labelId(d), rnd));
+        exact = builder.build();
+
+        queryVectors = new float[QUERY_COUNT][];
+        for (int i = 0; i < QUERY_COUNT; i++) queryVectors[i] = near(centers, corpus.labelId(rnd.nextInt(corpus.size())), rnd);
+
+        truth = new int[QUERY_COUNT][];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            truth[i] = exact.searchExact(queryVectors[i], K).stream().mapToInt(RagHit::id).toArray();
+        }
+
+        ann = exact.withAnn(HnswIndex.build(exact, new HnswIndex.Params(m, 200, efSearch)));
+    }
+
+    @Benchmark
+    public List<RagHit> exactSearch(Cursor cursor) {
+        return exact.searchExact(queryVectors[cursor.advance()], K);
+    }
+
+    @Benchmark
+    public List<RagHit> annSearch(Cursor cursor, Recall recall) {
+        int q = cursor.advance();
+        List<RagHit> hits = ann.search(queryVectors[q], K);
+
+        for (RagHit h : hits) {
+            for (int id : truth[q]) {
+                if (id == h.id()) {
+                    recall.recallHits++;
+                    break;
+                }
+            }
+        }
+        recall.recallExpected += truth[q].length;
+        return hits;
+    }
+
+    // label 의 하위 중심 중 하나 + 잡음. 중심은 처음 쓸 때 만든다
+    private float[] near(float[][] centers, short labelId, SplittableRandom rnd) {
+        int c = (labelId * CENTERS_PER_LABEL + rnd.nextInt(CENTERS_PER_LABEL)) % centers.length;
+        if (centers[c] == null) centers[c] = randomUnit(rnd, null, 1f);
+        return randomUnit(rnd, centers[c], 0.08f);
+    }
+
+    private float[] randomUnit(SplittableRandom rnd, float[] center, float noise) {
+        float[] v = new float[dim];
+        double norm = 0;
+        for (int i = 0; i < dim; i++) {
+            v[i] = (float) ((center == null ? 0 : center[i]) + (rnd.nextDouble() * 2 - 1) * noise);
+            norm += v[i] * v[i];
+        }
+        float inv = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < dim; i++) v[i] *= inv;
+        return v;
+    }
+}
@@ -0,0 +1,100 @@
+package com.khi.ragservice.search;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * 인메모리 검색 엔진 (trigram / bm25 / vector / int8 vector) 을 dataset.txt 분포의 합성 코퍼스 위에서 측정.
+ * 코퍼스와 인덱스 생성은 @Setup 에서 한 번만 하고, 검색어는 고정 seed 로 만든 64개를 돌아가며 쓴다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RetrievalBenchmark {
+
+    private static final int K = 5;
+    private static final int QUERY_COUNT = 64;
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"384"})
+    public int dim;
+
+    private TrigramIndex trigram;
+    private Bm25Index bm25;
+    private VectorIndex vector;
+    private VectorIndex int8;
+    private String[] queries;
+    private float[][] queryVectors;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        int advance() {
+            next = (next + 1) & (QUERY_COUNT - 1);
+            return next;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticCorpus synthetic = SyntheticCorpus.fromDataset();
+        RagCorpus corpus = synthetic.generate(rows, 42L);
+        trigram = TrigramIndex.build(corpus);
+        bm25 = Bm25Index.build(corpus, new KoreanAnalyzer(), Bm25Index.Params.DEFAULT);
+        queries = synthetic.queries(QUERY_COUNT, 7L);
+
+        // 실제 임베딩 대신 정규화된 난수 벡터 (dot product 비용만 측정)
+        SplittableRandom rnd = new SplittableRandom(11L);
+        VectorIndex.Builder builder = VectorIndex.builder(corpus, dim);
+        for (int d = 0; d < corpus.size(); d++) builder.put(corpus.id(d), randomUnit(rnd));
+        vector = builder.build();
+        int8 = vector.withQuantized(Int8Vectors.quantize(vector), 4);
+
+        queryVectors = new float[QUERY_COUNT][];
+        for (int i = 0; i < QUERY_COUNT; i++) queryVectors[i] = randomUnit(rnd);
+    }
+
+    @Benchmark
+    public List<RagHit> trigramSearch(Cursor cursor) {
+        return trigram.search(queries[cursor.advance()], K);
+    }
+
+    @Benchmark
+    public List<RagHit> bm25Search(Cursor cursor) {
+        return bm25.search(queries[cursor.advance()], K);
+    }
+
+    @Benchmark
+    public List<RagHit> vectorSearch(Cursor cursor) {
+        return vector.search(queryVectors[cursor.advance()], K);
+    }
+
+    @Benchmark
+    public List<RagHit> int8Search(Cursor cursor) {
+        return int8.search(queryVectors[cursor.advance()], K);
+    }
+
+    @Benchmark
+    public void trigramExtract(Cursor cursor, Blackhole bh) {
+        bh.consume(Trigrams.extract(queries[cursor.advance()]));
+    }
+
+    private float[] randomUnit(SplittableRandom rnd) {
+        float[] v = new float[dim];
+        double norm = 0;
+        for (int i = 0; i < dim; i++) {
+            v[i] = (float) (rnd.nextDouble() * 2 - 1);
+            norm += v[i] * v[i];
+        }
+        float inv = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < dim; i++) v[i] *= inv;
+        return v;
+    }
+}
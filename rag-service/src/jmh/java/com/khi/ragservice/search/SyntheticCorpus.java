@@ -0,0 +1,123 @@
+package com.khi.ragservice.search;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/*
+ * dataset.txt 의 label 분포를 그대로 따르는 합성 코퍼스.
+ * 같은 label 의 문장들에서 단어를 섞어 새 문장을 만들고, seed 가 고정이라 매번 같은 코퍼스가 나온다.
+ */
+public final class SyntheticCorpus {
+
+    public record Sample(String text, String label, short labelId) {
+    }
+
+    private final List<Sample> samples;
+    private final List<String> labels;
+    private final Map<String, List<String[]>> wordsByLabel;
+    private final Map<String, Short> labelIds;
+    private final int[] cumulative;
+
+    private SyntheticCorpus(List<Sample> samples) {
+        this.samples = samples;
+        this.wordsByLabel = new LinkedHashMap<>();
+        this.labelIds = new LinkedHashMap<>();
+        for (Sample s : samples) {
+            wordsByLabel.computeIfAbsent(s.label(), k -> new ArrayList<>()).add(s.text().split(" "));
+            labelIds.putIfAbsent(s.label(), s.labelId());
+        }
+        this.labels = new ArrayList<>(wordsByLabel.keySet());
+        this.cumulative = new int[labels.size()];
+        int acc = 0;
+        for (int i = 0; i < labels.size(); i++) {
+            acc += wordsByLabel.get(labels.get(i)).size();
+            cumulative[i] = acc;
+        }
+    }
+
+    public static SyntheticCorpus fromDataset() {
+        ObjectMapper om = new ObjectMapper();
+        List<Sample> samples = new ArrayList<>();
+        try (InputStream in = SyntheticCorpus.class.getResourceAsStream("/dataset.txt")) {
+            if (in == null) throw new IllegalStateException("dataset.txt not found on classpath");
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                JsonNode n = om.readTree(line);
+                samples.add(new Sample(n.get("text").asText().trim().replaceAll("\\s+", " "),
+                        n.get("label").asText(), (short) n.get("label_id").asInt()));
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return new SyntheticCorpus(samples);
+    }
+
+    public List<Sample> samples() {
+        return samples;
+    }
+
+    public RagCorpus generate(int rows, long seed) {
+        SplittableRandom rnd = new SplittableRandom(seed);
+        int[] ids = new int[rows];
+        String[] texts = new String[rows];
+        String[] outLabels = new String[rows];
+        short[] outLabelIds = new short[rows];
+
+        for (int d = 0; d < rows; d++) {
+            String label = pickLabel(rnd);
+            List<String[]> pool = wordsByLabel.get(label);
+            String[] a = pool.get(rnd.nextInt(pool.size()));
+            String[] b = pool.get(rnd.nextInt(pool.size()));
+
+            // a 의 앞부분 + b 의 뒷부분을 이어 붙여 원래 문장 길이 분포를 유지
+            int cutA = 1 + rnd.nextInt(a.length);
+            int cutB = rnd.nextInt(b.length);
+            StringBuilder sb = new StringBuilder(64);
+            for (int i = 0; i < cutA; i++) sb.append(a[i]).append(' ');
+            for (int i = cutB; i < b.length; i++) sb.append(b[i]).append(' ');
+
+            ids[d] = d + 1;
+            texts[d] = sb.toString().trim();
+            outLabels[d] = label;
+            outLabelIds[d] = labelIds.get(label);
+        }
+        return new RagCorpus(ids, texts, outLabels, outLabelIds);
+    }
+
+    /* 원본 문장에서 단어 일부를 빼 만든 검색어 */
+    public String[] queries(int count, long seed) {
+        SplittableRandom rnd = new SplittableRandom(seed);
+        String[] out = new String[count];
+        for (int i = 0; i < count; i++) {
+            String[] words = samples.get(rnd.nextInt(samples.size())).text().split(" ");
+            StringBuilder sb = new StringBuilder();
+            for (String w : words) {
+                if (rnd.nextInt(4) == 0) continue;
+                if (sb.length() > 0) sb.append(' ');
+                sb.append(w);
+            }
+            out[i] = sb.length() == 0 ? words[0] : sb.toString();
+        }
+        return out;
+    }
+
+    private String pickLabel(SplittableRandom rnd) {
+        int r = rnd.nextInt(cumulative[cumulative.length - 1]);
+        for (int i = 0; i < cumulative.length; i++) {
+            if (r < cumulative[i]) return labels.get(i);
+        }
+        return labels.get(labels.size() - 1);
+    }
+}
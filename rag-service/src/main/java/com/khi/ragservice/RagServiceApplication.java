@@ -2,8 +2,10 @@ package com.khi.ragservice;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
 
-@SpringBootApplication
+// R2DBC ConnectionFactory 는 리액티브 모드에서만 ReactiveRagConfig 가 spring.datasource 설정으로 만든다
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
 public class RagServiceApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,32 @@
+package com.khi.ragservice.common.api;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class ApiResponse<T> {
+
+    private final ResponseStatus status;
+
+    private final String message;
+
+    private final T data;
+
+
+    /* 데이터가 있는 성공 응답 */
+    public static <T> ApiResponse<T> success(T data) {
+        return new ApiResponse<>(ResponseStatus.SUCCESS, "요청이 정상적으로 처리되었습니다.", data);
+    }
+
+    /* 요청 값 오류 응답 */
+    public static ApiResponse<?> failure(String message) {
+        return new ApiResponse<>(ResponseStatus.FAILURE, message, null);
+    }
+
+    /* 예외·비즈니스 오류 응답 */
+    public static ApiResponse<?> error(String message) {
+        return new ApiResponse<>(ResponseStatus.ERROR, message, null);
+    }
+}
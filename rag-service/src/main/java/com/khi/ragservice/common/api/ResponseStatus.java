@@ -0,0 +1,15 @@
+package com.khi.ragservice.common.api;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+public enum ResponseStatus {
+
+    SUCCESS("success"),
+    FAILURE("failure"),
+    ERROR("error");
+
+    @JsonValue
+    private final String code;
+}
@@ -0,0 +1,63 @@
+package com.khi.ragservice.common.concurrent;
+
+import com.khi.ragservice.common.exception.type.ConcurrencyLimitException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/*
+ * 외부 자원(Postgres, 임베더 등) 동시 호출 수 제한.
+ * virtual thread 에서는 스레드 풀 크기가 더 이상 동시성 상한이 아니므로 자원 앞에 세마포어를 둔다.
+ * 허가를 timeout 안에 얻지 못하면 ConcurrencyLimitException (-> 503).
+ * 같은 스레드의 중첩 호출은 허가를 다시 얻지 않는다.
+ */
+public final class Bulkhead {
+
+    private final String name;
+    private final int limit;
+    private final long timeoutNanos;
+    private final Semaphore permits;
+    private final ThreadLocal<Boolean> holding = new ThreadLocal<>();
+
+    public Bulkhead(String name, int limit, Duration timeout) {
+        if (limit <= 0) throw new IllegalArgumentException(name + " limit must be positive");
+        this.name = name;
+        this.limit = limit;
+        this.timeoutNanos = timeout.toNanos();
+        // fair: 오래 기다린 요청부터 처리해 꼬리 지연을 줄인다
+        this.permits = new Semaphore(limit, true);
+    }
+
+    public <T> T call(Supplier<T> action) {
+        if (holding.get() != null) return action.get();
+
+        acquire();
+        holding.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            holding.remove();
+            permits.release();
+        }
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    public int inUse() {
+        return limit - permits.availablePermits();
+    }
+
+    private void acquire() {
+        try {
+            if (!permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new ConcurrencyLimitException(name + " concurrency limit (" + limit + ") reached");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConcurrencyLimitException(name + " permit wait interrupted");
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.khi.ragservice.common.concurrent;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/*
+ * 요청 경로에서 쓰는 외부 자원별 동시성 상한.
+ * postgres 는 기본값을 Hikari 풀 크기와 맞춰 풀 대기열에서 커넥션을 기다리는 스레드가 쌓이지 않게 한다.
+ */
+@Slf4j
+@Component
+public class RagConcurrencyLimits {
+
+    private final Bulkhead postgres;
+    private final Bulkhead embedder;
+
+    public RagConcurrencyLimits(@Value("${rag.concurrency.postgres:${spring.datasource.hikari.maximum-pool-size:10}}") int postgresLimit,
+                                @Value("${rag.concurrency.embedder:16}") int embedderLimit,
+                                @Value("${rag.concurrency.acquire-timeout:2s}") Duration acquireTimeout,
+                                MeterRegistry meterRegistry) {
+
+        this.postgres = new Bulkhead("postgres", postgresLimit, acquireTimeout);
+        this.embedder = new Bulkhead("embedder", embedderLimit, acquireTimeout);
+
+        registerGauge(meterRegistry, "postgres", postgres);
+        registerGauge(meterRegistry, "embedder", embedder);
+        log.info("[rag] concurrency limits | postgres={} | embedder={} | acquireTimeout={}",
+                postgresLimit, embedderLimit, acquireTimeout);
+    }
+
+    public Bulkhead postgres() {
+        return postgres;
+    }
+
+    public Bulkhead embedder() {
+        return embedder;
+    }
+
+    private static void registerGauge(MeterRegistry meterRegistry, String resource, Bulkhead bulkhead) {
+        Gauge.builder("rag.bulkhead.in.use", bulkhead, Bulkhead::inUse)
+                .tag("resource", resource)
+                .register(meterRegistry);
+    }
+}
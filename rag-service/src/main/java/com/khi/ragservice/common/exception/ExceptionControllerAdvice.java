@@ -0,0 +1,40 @@
+package com.khi.ragservice.common.exception;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.khi.ragservice.common.api.ApiResponse;
+import com.khi.ragservice.common.exception.type.ConcurrencyLimitException;
+import com.khi.ragservice.common.exception.type.IndexNotReadyException;
+import com.khi.ragservice.common.exception.type.InvalidQueryException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@Slf4j
+@RestControllerAdvice
+public class ExceptionControllerAdvice {
+
+    /* 잘못된 mode, JSON 이 아닌 본문 등 */
+    @ExceptionHandler({InvalidQueryException.class, JsonProcessingException.class})
+    public ResponseEntity<ApiResponse<?>> handleBadRequest(Exception exception) {
+
+        log.warn("[RAG] bad request: {}", exception.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ApiResponse.failure(exception.getMessage()));
+    }
+
+    /* 인덱스가 아직 준비되지 않았거나 동시 호출 상한에 걸린 경우 */
+    @ExceptionHandler({IndexNotReadyException.class, ConcurrencyLimitException.class})
+    public ResponseEntity<ApiResponse<?>> handleNotReady(RuntimeException exception) {
+
+        log.warn("[RAG] not ready: {}", exception.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(ApiResponse.error(exception.getMessage()));
+    }
+
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<ApiResponse<?>> handleException(Exception exception) {
+
+        log.error("[RAG] error", exception);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error(exception.getMessage()));
+    }
+}
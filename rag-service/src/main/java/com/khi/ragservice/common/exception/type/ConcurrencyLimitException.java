@@ -0,0 +1,10 @@
+package com.khi.ragservice.common.exception.type;
+
+/* bulkhead 허가를 timeout 안에 얻지 못함 (-> 503) */
+public class ConcurrencyLimitException extends RuntimeException {
+
+    public ConcurrencyLimitException(String message) {
+
+        super(message);
+    }
+}
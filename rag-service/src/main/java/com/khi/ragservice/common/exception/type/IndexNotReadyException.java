@@ -0,0 +1,10 @@
+package com.khi.ragservice.common.exception.type;
+
+/* 검색 인덱스/엔진이 아직 준비되지 않았거나 꺼져 있음 (-> 503) */
+public class IndexNotReadyException extends RuntimeException {
+
+    public IndexNotReadyException(String message) {
+
+        super(message);
+    }
+}
@@ -0,0 +1,10 @@
+package com.khi.ragservice.common.exception.type;
+
+/* 요청 값(mode, k, 본문 형식 등)이 잘못됨 (-> 400) */
+public class InvalidQueryException extends RuntimeException {
+
+    public InvalidQueryException(String message) {
+
+        super(message);
+    }
+}
@@ -0,0 +1,38 @@
+package com.khi.ragservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+
+@Configuration
+public class RagExecutorConfig {
+
+    /*
+     * hybrid 모드에서 sparse/dense 후보 검색을 병렬로 돌리는 실행기.
+     * virtual thread 모드에서는 작업마다 virtual thread 를 만들고, 동시성은 RagConcurrencyLimits 의 세마포어로 제한한다.
+     */
+    @Bean(name = "ragSearchExecutor")
+    public Executor ragSearchExecutor(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("rag-search-");
+            executor.setVirtualThreads(true);
+            return executor;
+        }
+
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(cores);
+        executor.setMaxPoolSize(cores * 2);
+        executor.setQueueCapacity(1000);
+        executor.setThreadNamePrefix("rag-search-");
+        executor.initialize();
+
+        return executor;
+    }
+}
@@ -0,0 +1,59 @@
+package com.khi.ragservice.config;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/*
+ * 리액티브 모드(spring.main.web-application-type=reactive) 의 R2DBC 커넥션 풀.
+ * 별도 URL 이 없으면 spring.datasource 설정(jdbc:postgresql://...)에서 만든다.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveRagConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionPool ragConnectionFactory(@Value("${rag.reactive.r2dbc-url:}") String r2dbcUrl,
+                                               @Value("${spring.datasource.url:}") String jdbcUrl,
+                                               @Value("${spring.datasource.username:}") String username,
+                                               @Value("${spring.datasource.password:}") String password,
+                                               @Value("${rag.reactive.pool.max-size:${rag.concurrency.postgres:10}}") int maxSize,
+                                               @Value("${rag.concurrency.acquire-timeout:2s}") Duration acquireTimeout) {
+
+        String url = r2dbcUrl.isBlank() ? fromJdbcUrl(jdbcUrl) : r2dbcUrl;
+
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(url).mutate();
+        if (!username.isBlank()) options.option(ConnectionFactoryOptions.USER, username);
+        if (!password.isBlank()) options.option(ConnectionFactoryOptions.PASSWORD, password);
+
+        // memory 엔진이면 커넥션을 쓰지 않으므로 미리 열어 두지 않는다
+        ConnectionPoolConfiguration configuration = ConnectionPoolConfiguration
+                .builder(ConnectionFactories.get(options.build()))
+                .initialSize(0)
+                .maxSize(maxSize)
+                .maxAcquireTime(acquireTimeout)
+                .build();
+
+        log.info("[rag] r2dbc pool maxSize={} | acquireTimeout={}", maxSize, acquireTimeout);
+        return new ConnectionPool(configuration);
+    }
+
+    // jdbc 전용 쿼리 파라미터(prepareThreshold 등)는 r2dbc 드라이버가 모르므로 버린다
+    static String fromJdbcUrl(String jdbcUrl) {
+        if (jdbcUrl == null || !jdbcUrl.startsWith("jdbc:")) {
+            throw new IllegalStateException("rag.reactive.r2dbc-url or a jdbc spring.datasource.url is required in reactive mode");
+        }
+        String url = "r2dbc:" + jdbcUrl.substring("jdbc:".length());
+        int query = url.indexOf('?');
+        return query < 0 ? url : url.substring(0, query);
+    }
+}
@@ -0,0 +1,66 @@
+package com.khi.ragservice.controller;
+
+import com.khi.ragservice.common.api.ApiResponse;
+import com.khi.ragservice.dto.RagReloadStatusResponse;
+import com.khi.ragservice.loader.DatasetReloadService;
+import com.khi.ragservice.search.RagIndexManager;
+import com.khi.ragservice.search.RagIndexSnapshot;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+@RestController
+@RequestMapping("/rag/admin")
+@RequiredArgsConstructor
+public class AdminController {
+
+    private final DatasetReloadService reloadService;
+    private final RagIndexManager indexManager;
+
+    @Value("${rag.admin.token:}")
+    private String adminToken;
+
+    /* 백그라운드 재적재 트리거. 완료 후 인덱스 스냅샷이 원자적으로 교체된다 */
+    @PostMapping("/reload")
+    public ResponseEntity<ApiResponse<?>> reload(@RequestHeader(name = "X-Admin-Token", required = false) String token) {
+        if (!authorized(token)) return forbidden();
+
+        if (!reloadService.trigger("admin request")) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(ApiResponse.error("이미 재적재가 진행 중입니다."));
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success(status()));
+    }
+
+    @GetMapping("/reload")
+    public ResponseEntity<ApiResponse<?>> reloadStatus(@RequestHeader(name = "X-Admin-Token", required = false) String token) {
+        if (!authorized(token)) return forbidden();
+
+        return ResponseEntity.ok(ApiResponse.success(status()));
+    }
+
+    // 토큰이 설정되지 않았으면 관리자 API 자체를 막는다. 비교는 상수 시간 (응답 시간으로 토큰을 추측하지 못하게)
+    private boolean authorized(String token) {
+        return !adminToken.isEmpty() && token != null
+                && MessageDigest.isEqual(adminToken.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ResponseEntity<ApiResponse<?>> forbidden() {
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).body(ApiResponse.error("관리자 토큰이 없거나 올바르지 않습니다."));
+    }
+
+    private RagReloadStatusResponse status() {
+        RagIndexSnapshot snapshot = indexManager.current();
+
+        return new RagReloadStatusResponse(
+                reloadService.isRunning(),
+                reloadService.getLastStartedAt(),
+                reloadService.getLastFinishedAt(),
+                reloadService.getLastResult(),
+                snapshot == null ? 0 : snapshot.corpus().size());
+    }
+}
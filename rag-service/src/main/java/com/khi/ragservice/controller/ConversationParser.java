@@ -0,0 +1,59 @@
+package com.khi.ragservice.controller;
+
+import com.khi.ragservice.common.exception.type.InvalidQueryException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/* [{speaker, message}] 요청 본문 해석 (TestController / ReactiveRagController 공용) */
+final class ConversationParser {
+
+    private ConversationParser() {
+    }
+
+    static String toUtteranceString(ObjectMapper objectMapper, String body) {
+        if (body == null || body.isBlank()) return "";
+        try {
+            JsonNode root = objectMapper.readTree(body);
+            if (root.isArray()) {
+                StringBuilder sb = new StringBuilder();
+                for (JsonNode n : root) {
+                    String speaker = n.path("speaker").asText("");
+                    String msg = n.path("message").asText("");
+                    if (speaker.isEmpty() && msg.isEmpty()) continue;
+                    if (sb.length() > 0) sb.append(' ');
+                    if (!speaker.isEmpty()) sb.append(speaker).append(": ");
+                    sb.append(msg);
+                }
+                String merged = sb.toString().trim();
+                if (!merged.isEmpty()) return merged;
+            }
+            return body; // JSON이 아니면 원문 사용
+        } catch (Exception ignore) {
+            return body;
+        }
+    }
+
+    // 메시지가 비어 있는 항목은 제외
+    static List<Utterance> toUtterances(ObjectMapper objectMapper, String body) throws IOException {
+        List<Utterance> out = new ArrayList<>();
+        if (body == null || body.isBlank()) return out;
+
+        JsonNode root = objectMapper.readTree(body);
+        if (!root.isArray()) throw new InvalidQueryException("body must be a JSON array of {speaker, message}");
+
+        for (JsonNode n : root) {
+            String speaker = n.path("speaker").asText("");
+            String msg = n.path("message").asText("").trim();
+            if (msg.isEmpty()) continue;
+            out.add(new Utterance(speaker, msg));
+        }
+        return out;
+    }
+
+    record Utterance(String speaker, String message) {
+    }
+}
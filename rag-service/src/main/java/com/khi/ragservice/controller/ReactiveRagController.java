@@ -0,0 +1,119 @@
+package com.khi.ragservice.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.khi.ragservice.common.api.ApiResponse;
+import com.khi.ragservice.dto.RagBatchResponse;
+import com.khi.ragservice.dto.RagLabelResponse;
+import com.khi.ragservice.dto.RagResponse;
+import com.khi.ragservice.search.RetrievalMode;
+import com.khi.ragservice.service.LabelRagService;
+import com.khi.ragservice.service.ReactiveRagService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/*
+ * 리액티브 모드의 /rag 엔드포인트 (TestController 와 같은 경로 / 응답 형식).
+ * 게이트웨이가 클라이언트 연결을 끊으면 응답 구독이 취소되고, 진행 중인 R2DBC 쿼리와 임베더 호출도 취소된다.
+ * 응답은 Jackson 인코더가 compact 로 스트리밍한다 (pretty 미지원).
+ */
+@Slf4j
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/rag")
+@RequiredArgsConstructor
+public class ReactiveRagController {
+
+    private final ReactiveRagService ragService;
+    private final LabelRagService labelRagService;
+    private final ObjectMapper objectMapper;
+
+    @PostMapping("/test")
+    public Mono<String> test() { return Mono.just("ok"); }
+
+    @PostMapping("/rag")
+    public Mono<ApiResponse<RagResponse>> rag(@RequestBody(required = false) Mono<String> body,
+                                              @RequestParam(name = "mode", required = false) String mode) {
+        final int K = 5;
+        final RetrievalMode retrievalMode = RetrievalMode.from(mode);
+
+        return body.defaultIfEmpty("").flatMap(raw -> {
+            final String queryText = ConversationParser.toUtteranceString(objectMapper, raw).trim();
+            final long t0 = System.nanoTime();
+            log.info("[RAG] start ({}) | K={} | q.len={}", retrievalMode, K, queryText.length());
+
+            return ragService.search(queryText, K, retrievalMode)
+                    .doOnNext(items -> log.info("[RAG] done ({}) | items={} | {} ms",
+                            retrievalMode, items.size(), (System.nanoTime() - t0) / 1_000_000))
+                    .doOnCancel(() -> log.info("[RAG] cancelled ({}) | {} ms", retrievalMode, (System.nanoTime() - t0) / 1_000_000))
+                    .map(items -> ApiResponse.success(new RagResponse(queryText, K, modeName(retrievalMode), items)));
+        });
+    }
+
+    /* [{speaker, message}] 의 각 발화별 top-K 를 한 번의 배치 검색으로 반환 */
+    @PostMapping("/rag/batch")
+    public Mono<ApiResponse<RagBatchResponse>> ragBatch(@RequestBody(required = false) Mono<String> body,
+                                                        @RequestParam(name = "mode", required = false) String mode) {
+        final int K = 5;
+        final RetrievalMode retrievalMode = RetrievalMode.from(mode);
+
+        return body.defaultIfEmpty("").flatMap(raw -> {
+            final long t0 = System.nanoTime();
+            final List<ConversationParser.Utterance> utterances;
+            try {
+                utterances = ConversationParser.toUtterances(objectMapper, raw);
+            } catch (Exception e) {
+                return Mono.error(e);
+            }
+
+            List<String> queries = new ArrayList<>(utterances.size());
+            for (ConversationParser.Utterance u : utterances) queries.add(u.message());
+            log.info("[RAG] batch start ({}) | K={} | utterances={}", retrievalMode, K, queries.size());
+
+            return ragService.searchBatch(queries, K, retrievalMode)
+                    .doOnCancel(() -> log.info("[RAG] batch cancelled ({}) | {} ms", retrievalMode, (System.nanoTime() - t0) / 1_000_000))
+                    .map(hits -> {
+                        List<RagBatchResponse.Result> results = new ArrayList<>(utterances.size());
+                        for (int i = 0; i < utterances.size(); i++) {
+                            results.add(new RagBatchResponse.Result(utterances.get(i).speaker(), utterances.get(i).message(), hits.get(i)));
+                        }
+                        log.info("[RAG] batch done ({}) | utterances={} | {} ms",
+                                retrievalMode, results.size(), (System.nanoTime() - t0) / 1_000_000);
+                        return ApiResponse.success(new RagBatchResponse(K, modeName(retrievalMode), results));
+                    });
+        });
+    }
+
+    /* label 별 검색은 인메모리 인덱스 + 블로킹 임베딩 호출이라 boundedElastic 에서 실행 */
+    @PostMapping("/rag/labels")
+    public Mono<ApiResponse<RagLabelResponse>> ragLabels(@RequestBody(required = false) Mono<String> body,
+                                                         @RequestParam(name = "mode", required = false) String mode,
+                                                         @RequestParam(name = "k", defaultValue = "3") int perLabel) {
+        final RetrievalMode retrievalMode = RetrievalMode.from(mode);
+
+        return body.defaultIfEmpty("").flatMap(raw -> {
+            final String queryText = ConversationParser.toUtteranceString(objectMapper, raw).trim();
+            final long t0 = System.nanoTime();
+            log.info("[RAG] labels start ({}) | perLabel={} | q.len={}", retrievalMode, perLabel, queryText.length());
+
+            return Mono.fromCallable(() -> labelRagService.search(queryText, perLabel, retrievalMode))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .map(labels -> {
+                        log.info("[RAG] labels done ({}) | labels={} | {} ms",
+                                retrievalMode, labels.size(), (System.nanoTime() - t0) / 1_000_000);
+                        return ApiResponse.success(new RagLabelResponse(queryText, perLabel, modeName(retrievalMode), labels));
+                    });
+        });
+    }
+
+    private static String modeName(RetrievalMode mode) {
+        return mode.name().toLowerCase(Locale.ROOT);
+    }
+}
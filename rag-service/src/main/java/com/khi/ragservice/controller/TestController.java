@@ -1,149 +1,134 @@
 package com.khi.ragservice.controller;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.khi.ragservice.common.api.ApiResponse;
+import com.khi.ragservice.dto.RagBatchResponse;
+import com.khi.ragservice.dto.RagLabelResponse;
+import com.khi.ragservice.dto.RagResponse;
+import com.khi.ragservice.search.RagHit;
+import com.khi.ragservice.search.RetrievalMode;
+import com.khi.ragservice.service.LabelRagService;
+import com.khi.ragservice.service.RagService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 
-import javax.sql.DataSource;
-import java.sql.*;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 @Slf4j
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/rag")
 public class TestController {
 
-    @Autowired private DataSource dataSource;
+    @Autowired private RagService ragService;
+    @Autowired private LabelRagService labelRagService;
     @Autowired private ObjectMapper objectMapper;
 
+    // ObjectWriter 는 불변이라 요청마다 만들지 않고 공유한다
+    private ObjectWriter compactWriter;
+    private ObjectWriter prettyWriter;
+
     @PostConstruct
     public void init() {
-        log.info("[rag] TestController initialized (sparse mode)");
+        compactWriter = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        prettyWriter = compactWriter.withDefaultPrettyPrinter();
+        log.info("[rag] TestController initialized (modes: sparse, dense, hybrid)");
     }
 
     @PostMapping("/test")
     public String test() { return "ok"; }
 
+    /* pretty=true 일 때만 들여쓰기 (기본은 compact) */
     @PostMapping("/rag")
-    public String rag(@RequestBody(required = false) String body) {
+    public void rag(@RequestBody(required = false) String body,
+                    @RequestParam(name = "mode", required = false) String mode,
+                    @RequestParam(name = "pretty", defaultValue = "false") boolean pretty,
+                    HttpServletResponse response) throws IOException {
         final int K = 5;
         final String queryText = toUtteranceString(body).trim();
         final long t0 = System.nanoTime();
-        log.info("[RAG] start (sparse) | K={} | q.len={}", K, queryText.length());
-
-        try {
-            ensureTrgmReady(dataSource);
-
-            final String sqlFiltered = """
-                WITH q AS (SELECT ?::text AS q)
-                SELECT id, text, label, labelid AS label_id,
-                       similarity(
-                         (coalesce(text,'')||' '||coalesce(label,'')),
-                         q.q
-                       ) AS score
-                FROM rag_items, q
-                WHERE (
-                     (coalesce(text,'')||' '||coalesce(label,'')) % q.q
-                  OR  coalesce(text,'')  ILIKE '%'||q.q||'%'
-                  OR  coalesce(label,'') ILIKE '%'||q.q||'%'
-                )
-                ORDER BY score DESC NULLS LAST
-                LIMIT ?
-            """;
-
-            List<Map<String, Object>> items = runQuery(sqlFiltered, queryText, K);
-
-            if (items.isEmpty()) {
-                log.info("[RAG] no hits → fallback to full-table similarity sort");
-                final String sqlFallback = """
-                    WITH q AS (SELECT ?::text AS q)
-                    SELECT id, text, label, labelid AS label_id,
-                           similarity(
-                             (coalesce(text,'')||' '||coalesce(label,'')),
-                             q.q
-                           ) AS score
-                    FROM rag_items, q
-                    ORDER BY score DESC NULLS LAST
-                    LIMIT ?
-                """;
-                items = runQuery(sqlFallback, queryText, K);
-            }
-
-            Map<String, Object> out = new LinkedHashMap<>();
-            out.put("query_text", queryText);
-            out.put("k", K);
-            out.put("items", items);
-
-            String result = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(out);
-            long t1 = System.nanoTime();
-            log.info("[RAG] done (sparse) | items={} | {} ms", items.size(), (t1 - t0) / 1_000_000);
-            return result;
-
-        } catch (Exception e) {
-            log.error("[RAG] error", e);
-            return "{\"error\":\"" + e.getClass().getSimpleName() + ": " + e.getMessage() + "\"}";
-        }
+
+        final RetrievalMode retrievalMode = RetrievalMode.from(mode);
+        log.info("[RAG] start ({}) | K={} | q.len={}", retrievalMode, K, queryText.length());
+
+        List<RagHit> items = ragService.search(queryText, K, retrievalMode);
+        writeJson(response, ApiResponse.success(new RagResponse(queryText, K, modeName(retrievalMode), items)), pretty);
+
+        log.info("[RAG] done ({}) | items={} | {} ms", retrievalMode, items.size(), (System.nanoTime() - t0) / 1_000_000);
     }
 
-    private List<Map<String, Object>> runQuery(String sql, String queryText, int k) throws Exception {
-        List<Map<String, Object>> items = new ArrayList<>();
-        try (Connection con = dataSource.getConnection();
-             PreparedStatement ps = con.prepareStatement(sql)) {
-            ps.setString(1, queryText);
-            ps.setInt(2, k);
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    Map<String, Object> m = new LinkedHashMap<>();
-                    m.put("id", rs.getInt("id"));
-                    m.put("text", rs.getString("text"));
-                    m.put("label", rs.getString("label"));
-                    m.put("label_id", rs.getInt("label_id"));
-                    m.put("score", rs.getDouble("score"));
-                    items.add(m);
-                }
-            }
+    /* [{speaker, message}] 의 각 발화별 top-K 를 한 번의 배치 검색으로 반환 */
+    @PostMapping("/rag/batch")
+    public void ragBatch(@RequestBody(required = false) String body,
+                         @RequestParam(name = "mode", required = false) String mode,
+                         @RequestParam(name = "pretty", defaultValue = "false") boolean pretty,
+                         HttpServletResponse response) throws IOException {
+        final int K = 5;
+        final long t0 = System.nanoTime();
+
+        final RetrievalMode retrievalMode = RetrievalMode.from(mode);
+
+        List<ConversationParser.Utterance> utterances = toUtterances(body);
+        List<String> queries = new ArrayList<>(utterances.size());
+        for (ConversationParser.Utterance u : utterances) queries.add(u.message());
+        log.info("[RAG] batch start ({}) | K={} | utterances={}", retrievalMode, K, queries.size());
+
+        List<List<RagHit>> hits = ragService.searchBatch(queries, K, retrievalMode);
+
+        List<RagBatchResponse.Result> results = new ArrayList<>(utterances.size());
+        for (int i = 0; i < utterances.size(); i++) {
+            results.add(new RagBatchResponse.Result(utterances.get(i).speaker(), utterances.get(i).message(), hits.get(i)));
         }
-        return items;
+        writeJson(response, ApiResponse.success(new RagBatchResponse(K, modeName(retrievalMode), results)), pretty);
+
+        log.info("[RAG] batch done ({}) | utterances={} | {} ms",
+                retrievalMode, results.size(), (System.nanoTime() - t0) / 1_000_000);
     }
 
-    private String toUtteranceString(String body) {
-        if (body == null || body.isBlank()) return "";
-        try {
-            JsonNode root = objectMapper.readTree(body);
-            if (root.isArray()) {
-                StringBuilder sb = new StringBuilder();
-                for (JsonNode n : root) {
-                    String speaker = n.path("speaker").asText("");
-                    String msg = n.path("message").asText("");
-                    if (speaker.isEmpty() && msg.isEmpty()) continue;
-                    if (sb.length() > 0) sb.append(' ');
-                    if (!speaker.isEmpty()) sb.append(speaker).append(": ");
-                    sb.append(msg);
-                }
-                String merged = sb.toString().trim();
-                if (!merged.isEmpty()) return merged;
-            }
-            return body; // JSON이 아니면 원문 사용
-        } catch (Exception ignore) {
-            return body;
-        }
+    /* 대화 전체를 질의로 label_id 별 top-k 근거와 label 점수 분포를 반환 (k 는 label 당 개수) */
+    @PostMapping("/rag/labels")
+    public void ragLabels(@RequestBody(required = false) String body,
+                          @RequestParam(name = "mode", required = false) String mode,
+                          @RequestParam(name = "k", defaultValue = "3") int perLabel,
+                          @RequestParam(name = "pretty", defaultValue = "false") boolean pretty,
+                          HttpServletResponse response) throws IOException {
+        final String queryText = toUtteranceString(body).trim();
+        final long t0 = System.nanoTime();
+
+        final RetrievalMode retrievalMode = RetrievalMode.from(mode);
+        log.info("[RAG] labels start ({}) | perLabel={} | q.len={}", retrievalMode, perLabel, queryText.length());
+
+        List<RagLabelResponse.LabelResult> labels = labelRagService.search(queryText, perLabel, retrievalMode);
+        writeJson(response, ApiResponse.success(new RagLabelResponse(queryText, perLabel, modeName(retrievalMode), labels)), pretty);
+
+        log.info("[RAG] labels done ({}) | labels={} | {} ms", retrievalMode, labels.size(), (System.nanoTime() - t0) / 1_000_000);
     }
 
-    private void ensureTrgmReady(DataSource ds) {
-        try (var con = ds.getConnection(); var st = con.createStatement()) {
-            st.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
-            st.execute("""
-                CREATE INDEX IF NOT EXISTS idx_rag_items_trgm
-                ON rag_items USING gin (
-                  (coalesce(text,'')||' '||coalesce(label,'')) gin_trgm_ops
-                )
-            """);
-            st.execute("ANALYZE rag_items");
-        } catch (Exception e) {
-            log.warn("[rag] pg_trgm prepare failed (continue): {}", e.toString());
-        }
+    // 중간 String 없이 응답 스트림에 바로 직렬화
+    private void writeJson(HttpServletResponse response, Object body, boolean pretty) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        (pretty ? prettyWriter : compactWriter).writeValue(response.getOutputStream(), body);
+    }
+
+    private static String modeName(RetrievalMode mode) {
+        return mode.name().toLowerCase(Locale.ROOT);
+    }
+
+    private List<ConversationParser.Utterance> toUtterances(String body) throws IOException {
+        return ConversationParser.toUtterances(objectMapper, body);
+    }
+
+    String toUtteranceString(String body) {
+        return ConversationParser.toUtteranceString(objectMapper, body);
     }
 }
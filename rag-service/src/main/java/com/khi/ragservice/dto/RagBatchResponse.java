@@ -0,0 +1,12 @@
+package com.khi.ragservice.dto;
+
+import com.khi.ragservice.search.RagHit;
+
+import java.util.List;
+
+/* POST /rag/rag/batch 응답 data. results 는 요청 발화 순서 (빈 메시지 제외) */
+public record RagBatchResponse(int k, String mode, List<Result> results) {
+
+    public record Result(String speaker, String message, List<RagHit> items) {
+    }
+}
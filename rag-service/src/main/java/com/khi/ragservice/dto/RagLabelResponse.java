@@ -0,0 +1,20 @@
+package com.khi.ragservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.khi.ragservice.search.RagHit;
+
+import java.util.List;
+
+/*
+ * POST /rag/rag/labels 응답 data. labels 는 score 내림차순.
+ * score 는 label 의 근거(items) 점수 합, share 는 전체 label score 합 대비 비율 (합계 1)
+ */
+public record RagLabelResponse(@JsonProperty("query_text") String queryText,
+                               @JsonProperty("per_label") int perLabel,
+                               String mode,
+                               List<LabelResult> labels) {
+
+    public record LabelResult(@JsonProperty("label_id") int labelId, String label, double score, double share,
+                              List<RagHit> items) {
+    }
+}
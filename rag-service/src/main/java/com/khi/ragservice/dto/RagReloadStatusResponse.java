@@ -0,0 +1,13 @@
+package com.khi.ragservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Instant;
+
+/* GET·POST /rag/admin/reload 응답 data. docs 는 현재 서빙 중인 스냅샷의 문서 수 */
+public record RagReloadStatusResponse(boolean running,
+                                      @JsonProperty("last_started_at") Instant lastStartedAt,
+                                      @JsonProperty("last_finished_at") Instant lastFinishedAt,
+                                      @JsonProperty("last_result") String lastResult,
+                                      int docs) {
+}
@@ -0,0 +1,10 @@
+package com.khi.ragservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.khi.ragservice.search.RagHit;
+
+import java.util.List;
+
+/* POST /rag/rag 응답 data */
+public record RagResponse(@JsonProperty("query_text") String queryText, int k, String mode, List<RagHit> items) {
+}
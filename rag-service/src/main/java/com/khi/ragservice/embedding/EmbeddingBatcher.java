@@ -0,0 +1,182 @@
+package com.khi.ragservice.embedding;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/*
+ * 동시에 들어오는 단건 임베딩 요청을 모아 backend(/embed-batch) 한 번으로 보내는 micro-batcher.
+ * - 첫 요청이 들어오면 maxWait 동안 (또는 maxBatch 개가 찰 때까지) 더 모은 뒤 한 배치로 보낸다
+ * - 같은 텍스트가 이미 대기 중이거나 호출 중이면 새로 보내지 않고 그 future 를 같이 기다린다
+ * - cache 가 있으면 먼저 캐시를 보고, 받은 벡터는 캐시에 넣는다
+ * 배치 호출은 virtual thread 에서 하므로 배치 여러 개가 동시에 나갈 수 있다 (동시 호출 수는 backend 의 bulkhead 가 제한).
+ */
+@Slf4j
+public class EmbeddingBatcher implements AutoCloseable {
+
+    private final Function<List<String>, List<float[]>> backend;
+    private final int maxBatch;
+    private final long maxWaitNanos;
+    private final EmbeddingCache cache;
+
+    private final LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final ConcurrentHashMap<String, CompletableFuture<float[]>> inFlight = new ConcurrentHashMap<>();
+    private final ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor();
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /* cache 는 null 이면 사용하지 않는다 */
+    public EmbeddingBatcher(Function<List<String>, List<float[]>> backend, int maxBatch, Duration maxWait,
+                            EmbeddingCache cache) {
+        this.backend = backend;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.maxWaitNanos = Math.max(0, maxWait.toNanos());
+        this.cache = cache;
+        this.dispatcher = Thread.ofPlatform().name("embed-batcher").daemon().start(this::dispatchLoop);
+    }
+
+    /* text 는 접두어까지 붙은 최종 입력 */
+    public CompletableFuture<float[]> submit(String text) {
+        String key = EmbeddingCache.key(text);
+        if (cache != null) {
+            float[] cached = cache.get(key);
+            if (cached != null) return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<float[]> future = new CompletableFuture<>();
+        CompletableFuture<float[]> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalesced.increment();
+            return existing;
+        }
+        if (!running) {
+            inFlight.remove(key, future);
+            future.completeExceptionally(new IllegalStateException("embedding batcher is closed"));
+            return future;
+        }
+        Pending pending = new Pending(key, text, future);
+        queue.add(pending);
+        // close 가 큐를 비운 뒤에 넣었으면 아무도 꺼내지 않으므로 직접 실패시킨다
+        if (!running && queue.remove(pending)) {
+            fail(List.of(pending), new IllegalStateException("embedding batcher is closed"));
+        }
+        return future;
+    }
+
+    public CompletableFuture<List<float[]>> submitAll(List<String> texts) {
+        List<CompletableFuture<float[]>> futures = new ArrayList<>(texts.size());
+        for (String t : texts) futures.add(submit(t));
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).thenApply(ignored -> {
+            List<float[]> out = new ArrayList<>(futures.size());
+            for (CompletableFuture<float[]> f : futures) out.add(f.join());
+            return out;
+        });
+    }
+
+    public float[] embed(String text) {
+        return join(submit(text));
+    }
+
+    public List<float[]> embedAll(List<String> texts) {
+        if (texts.isEmpty()) return List.of();
+        return join(submitAll(texts));
+    }
+
+    public long batchCount() {
+        return batches.sum();
+    }
+
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        dispatcher.interrupt();
+        callers.shutdown();
+        List<Pending> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        fail(pending, new IllegalStateException("embedding batcher is closed"));
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            List<Pending> batch = new ArrayList<>(Math.min(maxBatch, 64));
+            try {
+                batch.add(queue.take());
+
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatch) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                callers.execute(() -> call(batch));
+            } catch (InterruptedException e) {
+                // close: 모으던 배치는 더 이상 나갈 곳이 없다
+                Thread.currentThread().interrupt();
+                fail(batch, new IllegalStateException("embedding batcher is closed"));
+                return;
+            } catch (RuntimeException e) {
+                // RejectedExecution (close 중) 등: 꺼낸 배치는 실패시키고 다음 루프에서 running 을 다시 본다
+                log.warn("[embed] batch dispatch failed: {}", e.toString());
+                fail(batch, e);
+            }
+        }
+    }
+
+    private void call(List<Pending> batch) {
+        batches.increment();
+        List<String> texts = new ArrayList<>(batch.size());
+        for (Pending p : batch) texts.add(p.text);
+
+        try {
+            List<float[]> vectors = backend.apply(texts);
+            for (int i = 0; i < batch.size(); i++) {
+                Pending p = batch.get(i);
+                if (cache != null) cache.put(p.key, vectors.get(i));
+                inFlight.remove(p.key, p.future);
+                p.future.complete(vectors.get(i));
+            }
+        } catch (Throwable t) {
+            // Error 도 future 와 inFlight 를 정리해야 한다. 남겨 두면 같은 텍스트의 이후 요청이 끝나지 않는 future 에 합쳐진다
+            fail(batch, t);
+            if (t instanceof Error error) throw error;
+        }
+    }
+
+    private void fail(List<Pending> batch, Throwable error) {
+        for (Pending p : batch) {
+            inFlight.remove(p.key, p.future);
+            p.future.completeExceptionally(error);
+        }
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+
+    private record Pending(String key, String text, CompletableFuture<float[]> future) {
+    }
+}
@@ -0,0 +1,140 @@
+package com.khi.ragservice.embedding;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+
+/*
+ * 임베딩 입력 텍스트(접두어 포함)의 SHA-256 을 키로 하는 벡터 캐시.
+ * 메모리는 Caffeine 크기 제한 캐시이고, spillDir 이 있으면 용량 때문에 밀려난 벡터를
+ * <spillDir>/<model>/<hash 앞 2글자>/<hash>.vec 파일로 내려 두었다가 메모리에 없을 때 다시 읽는다.
+ * 종료 시 flush 로 메모리에 남은 벡터도 파일로 남겨 재기동 후에도 재사용한다.
+ * 같은 모델이면 같은 텍스트의 벡터는 바뀌지 않으므로 만료는 두지 않고, 모델을 바꾸면 디렉터리가 달라져 옛 벡터를 읽지 않는다.
+ */
+@Slf4j
+public class EmbeddingCache {
+
+    private final Cache<String, float[]> memory;
+    private final Path spillDir;
+
+    /* model 은 spill 디렉터리 이름에 쓰인다 (파일 이름에 못 쓰는 문자는 '_') */
+    public EmbeddingCache(long maxSize, Path spillDir, String model) {
+        this.spillDir = spillDir == null ? null : spillDir.resolve(model.replaceAll("[^A-Za-z0-9._-]", "_"));
+        this.memory = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .removalListener((String key, float[] vector, RemovalCause cause) -> {
+                    if (cause == RemovalCause.SIZE && key != null && vector != null) spill(key, vector);
+                })
+                .build();
+    }
+
+    public static String key(String text) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    Cache<String, float[]> memory() {
+        return memory;
+    }
+
+    /* 메모리에 없을 때 디스크(블로킹 I/O)까지 볼 수 있는지 */
+    boolean spills() {
+        return spillDir != null;
+    }
+
+    /* 메모리 → 디스크 순으로 찾고, 디스크에서 찾으면 메모리로 올린다. 없으면 null */
+    public float[] get(String key) {
+        float[] v = memory.getIfPresent(key);
+        if (v != null || spillDir == null) return v;
+
+        v = readSpilled(key);
+        if (v != null) memory.put(key, v);
+        return v;
+    }
+
+    public void put(String key, float[] vector) {
+        memory.put(key, vector);
+    }
+
+    /* 메모리에 있는 벡터를 모두 파일로 남긴다 (이미 있는 파일은 건너뜀) */
+    public void flush() {
+        if (spillDir == null) return;
+        int written = 0;
+        for (Map.Entry<String, float[]> e : memory.asMap().entrySet()) {
+            if (spill(e.getKey(), e.getValue())) written++;
+        }
+        log.info("[embed] vector cache flushed | entries={} | written={}", memory.estimatedSize(), written);
+    }
+
+    // 임시 파일에 쓴 뒤 rename 해서 읽는 쪽이 쓰다 만 파일을 보지 않게 한다
+    private boolean spill(String key, float[] vector) {
+        if (spillDir == null) return false;
+        Path target = pathOf(key);
+        if (Files.exists(target)) return false;
+
+        Path tmp = null;
+        try {
+            Files.createDirectories(target.getParent());
+            ByteBuffer buf = ByteBuffer.allocate(Integer.BYTES + vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buf.putInt(vector.length);
+            for (float f : vector) buf.putFloat(f);
+            tmp = Files.createTempFile(target.getParent(), key, ".tmp");
+            Files.write(tmp, buf.array());
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (IOException e) {
+            log.warn("[embed] spill {} failed: {}", target, e.toString());
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignore) {
+                    // best effort
+                }
+            }
+            return false;
+        }
+    }
+
+    private float[] readSpilled(String key) {
+        Path path = pathOf(key);
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+            int dim = buf.getInt();
+            if (dim <= 0 || buf.remaining() != dim * Float.BYTES) {
+                log.warn("[embed] corrupt spilled vector {} -> ignored", path.getFileName());
+                return null;
+            }
+            float[] v = new float[dim];
+            buf.asFloatBuffer().get(v);
+            return v;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.warn("[embed] read spilled vector {} failed: {}", path.getFileName(), e.toString());
+            return null;
+        }
+    }
+
+    private Path pathOf(String key) {
+        return spillDir.resolve(key.substring(0, 2)).resolve(key + ".vec");
+    }
+}
@@ -0,0 +1,15 @@
+package com.khi.ragservice.embedding;
+
+import java.util.List;
+
+public interface EmbeddingClient {
+
+    /* 검색 질의 임베딩 (e5 의 "query: " 접두어 적용) */
+    float[] embedQuery(String text);
+
+    /* 여러 질의를 한 번의 호출로 임베딩, 입력 순서대로 반환 */
+    List<float[]> embedQueries(List<String> texts);
+
+    /* 저장용 문서 임베딩 (e5 의 "passage: " 접두어 적용), 입력 순서대로 반환 */
+    List<float[]> embedPassages(List<String> texts);
+}
@@ -0,0 +1,153 @@
+package com.khi.ragservice.embedding;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.khi.ragservice.common.concurrent.Bulkhead;
+import com.khi.ragservice.common.concurrent.RagConcurrencyLimits;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/*
+ * embedder/app.py (multilingual-e5-small) 의 /embed-batch 호출 클라이언트.
+ * 질의 임베딩은 EmbeddingBatcher 를 거친다: 동시에 들어온 단건 질의를 rag.embedding.batch.max-wait 동안 모아
+ * 한 번에 보내고, 같은 질의는 한 번만 보내며, 벡터는 텍스트 해시 키 캐시(메모리 LRU + 선택적 디스크)에 남긴다.
+ * 문서(passage) 임베딩은 인덱싱용 대량 호출이라 배치/캐시를 거치지 않는다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "rag.embedding.enabled", havingValue = "true")
+public class HttpEmbeddingClient implements EmbeddingClient {
+
+    static final String QUERY_PREFIX = "query: ";
+    static final String PASSAGE_PREFIX = "passage: ";
+
+    private final RestClient restClient;
+    private final Bulkhead bulkhead;
+    private final EmbeddingCache cache;
+    private final EmbeddingBatcher batcher;
+    private final int maxBatch;
+
+    public HttpEmbeddingClient(@Value("${rag.embedding.url:http://localhost:8081}") String baseUrl,
+                               @Value("${rag.embedding.batch.max-size:32}") int maxBatch,
+                               @Value("${rag.embedding.batch.max-wait:5ms}") Duration maxWait,
+                               @Value("${rag.embedding.cache.max-size:50000}") long cacheSize,
+                               @Value("${rag.embedding.cache.dir:}") String cacheDir,
+                               @Value("${rag.embedding.model:intfloat/multilingual-e5-small}") String model,
+                               @Value("${rag.embedding.connect-timeout:2s}") Duration connectTimeout,
+                               @Value("${rag.embedding.read-timeout:30s}") Duration readTimeout,
+                               ObjectProvider<RestClient.Builder> restClientBuilder,
+                               RagConcurrencyLimits limits,
+                               MeterRegistry meterRegistry) {
+
+        // 리액티브 모드에서는 RestClient.Builder 가 자동 구성되지 않는다 (인덱스 빌드용 passage 임베딩은 이 클라이언트를 계속 쓴다)
+        // timeout 이 없으면 멈춘 embedder 가 bulkhead 허가를 계속 쥐고 있게 된다
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(
+                HttpClient.newBuilder().connectTimeout(connectTimeout).build());
+        requestFactory.setReadTimeout(readTimeout);
+        this.restClient = restClientBuilder.getIfAvailable(RestClient::builder)
+                .baseUrl(baseUrl)
+                .requestFactory(requestFactory)
+                .build();
+        this.bulkhead = limits.embedder();
+        this.maxBatch = Math.max(1, maxBatch);
+
+        this.cache = cacheSize > 0 ? new EmbeddingCache(cacheSize, cacheDir.isBlank() ? null : Path.of(cacheDir), model)
+                : null;
+        if (cache != null) CaffeineCacheMetrics.monitor(meterRegistry, cache.memory(), "rag.embedding");
+        this.batcher = new EmbeddingBatcher(this::embedBatch, this.maxBatch, maxWait, cache);
+
+        log.info("[embed] embedder url={} model={} | timeout connect={} read={} | batch maxSize={} maxWait={} | cache maxSize={} dir={}",
+                baseUrl, model, connectTimeout, readTimeout, this.maxBatch, maxWait, cacheSize, cacheDir.isBlank() ? "-" : cacheDir);
+    }
+
+    @Override
+    public float[] embedQuery(String text) {
+        return batcher.embed(QUERY_PREFIX + text);
+    }
+
+    @Override
+    public List<float[]> embedQueries(List<String> texts) {
+        return batcher.embedAll(prefixed(QUERY_PREFIX, texts));
+    }
+
+    /* 리액티브 모드용: 배치/캐시를 거친 질의 임베딩 future */
+    public CompletableFuture<float[]> submitQuery(String text) {
+        return batcher.submit(QUERY_PREFIX + text);
+    }
+
+    public CompletableFuture<List<float[]>> submitQueries(List<String> texts) {
+        return texts.isEmpty() ? CompletableFuture.completedFuture(List.of())
+                : batcher.submitAll(prefixed(QUERY_PREFIX, texts));
+    }
+
+    /* 벡터 캐시 (rag.embedding.cache.max-size 가 0 이면 null). 리액티브 모드의 비배치 경로도 같은 캐시를 쓴다 */
+    EmbeddingCache cache() {
+        return cache;
+    }
+
+    /* max-size 가 1 이면 모으지 않는다 (캐시와 중복 요청 합치기는 그대로) */
+    public boolean isBatching() {
+        return maxBatch > 1;
+    }
+
+    @PreDestroy
+    public void close() {
+        batcher.close();
+        if (cache != null) cache.flush();
+    }
+
+    @Override
+    public List<float[]> embedPassages(List<String> texts) {
+        return embedBatch(prefixed(PASSAGE_PREFIX, texts));
+    }
+
+    static List<String> prefixed(String prefix, List<String> texts) {
+        List<String> out = new ArrayList<>(texts.size());
+        for (String t : texts) out.add(prefix + t);
+        return out;
+    }
+
+    private List<float[]> embedBatch(List<String> texts) {
+        if (texts.isEmpty()) return List.of();
+
+        JsonNode body = bulkhead.call(() -> restClient.post()
+                .uri("/embed-batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("texts", texts))
+                .retrieve()
+                .body(JsonNode.class));
+
+        return toVectors(body, texts.size());
+    }
+
+    static List<float[]> toVectors(JsonNode body, int expected) {
+        JsonNode embeddings = body == null ? null : body.get("embeddings");
+        if (embeddings == null || !embeddings.isArray() || embeddings.size() != expected) {
+            throw new IllegalStateException("embedder returned unexpected payload for " + expected + " texts");
+        }
+
+        List<float[]> out = new ArrayList<>(expected);
+        for (JsonNode row : embeddings) {
+            float[] v = new float[row.size()];
+            for (int i = 0; i < v.length; i++) v[i] = (float) row.get(i).asDouble();
+            out.add(v);
+        }
+        return out;
+    }
+}
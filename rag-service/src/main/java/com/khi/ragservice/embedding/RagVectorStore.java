@@ -0,0 +1,210 @@
+package com.khi.ragservice.embedding;
+
+import com.khi.ragservice.search.VectorIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * rag_items 임베딩 저장소. 벡터는 float32 little-endian bytea 로 저장한다.
+ * (pgvector 확장이 없는 환경에서도 동작하도록 bytea 사용)
+ * text_md5 는 임베딩한 시점의 md5(text) 로, text 가 바뀐 행만 다시 임베딩하는 데 쓴다.
+ * (label 만 바뀐 행은 다시 임베딩하지 않는다)
+ * model 은 임베딩한 embedder 모델(rag.embedding.model)로, 모델을 바꾸면 전체가 다시 임베딩 대상이 되고
+ * 다시 임베딩되기 전까지 다른 모델의 벡터는 인덱스로 읽지 않는다 (차원이 달라 dense 검색이 깨지거나 순위가 섞이지 않도록).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RagVectorStore {
+
+    private final DataSource dataSource;
+
+    @Value("${rag.embedding.model:intfloat/multilingual-e5-small}")
+    private String model;
+
+    public void ensureTable() {
+        try (var con = dataSource.getConnection(); var st = con.createStatement()) {
+            st.execute("""
+                CREATE TABLE IF NOT EXISTS rag_item_vectors (
+                  id INT PRIMARY KEY,
+                  dim INT NOT NULL,
+                  vec BYTEA NOT NULL
+                )
+            """);
+            st.execute("ALTER TABLE rag_item_vectors ADD COLUMN IF NOT EXISTS text_md5 CHAR(32)");
+            // 컬럼 추가 전에 임베딩된 행은 현재 text 로 임베딩된 것으로 보고 채운다 (첫 기동에 전체 재임베딩 방지)
+            int backfilled = st.executeUpdate("""
+                UPDATE rag_item_vectors v SET text_md5 = md5(r.text)
+                FROM rag_items r
+                WHERE r.id = v.id AND v.text_md5 IS NULL
+            """);
+            if (backfilled > 0) log.info("[embed] backfilled text_md5 for {} existing vectors", backfilled);
+
+            st.execute("ALTER TABLE rag_item_vectors ADD COLUMN IF NOT EXISTS model TEXT");
+        } catch (Exception e) {
+            log.warn("[embed] ensure rag_item_vectors failed: {}", e.toString());
+            return;
+        }
+
+        // model 컬럼 추가 전의 벡터는 지금 설정된 모델로 임베딩된 것으로 본다
+        // (첫 기동에 전체 재임베딩 방지. 이 업그레이드와 모델 교체를 동시에 한다면 rag_item_vectors 를 먼저 비울 것)
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement ps = con.prepareStatement("UPDATE rag_item_vectors SET model = ? WHERE model IS NULL")) {
+            ps.setString(1, model);
+            int backfilled = ps.executeUpdate();
+            if (backfilled > 0) log.info("[embed] backfilled model={} for {} existing vectors", model, backfilled);
+        } catch (Exception e) {
+            log.warn("[embed] backfill rag_item_vectors.model failed: {}", e.toString());
+        }
+    }
+
+    /* 벡터가 없거나 text 또는 모델이 바뀐 rag_items 를 batchSize 단위로 임베딩해 저장하고, 저장한 건수를 반환한다 */
+    public long embedMissing(EmbeddingClient client, int batchSize) throws SQLException {
+        ensureTable();
+        deleteOrphans();
+
+        long total = 0;
+        // id 기준 keyset 페이징: 배치마다 처음부터 anti-join 을 다시 훑지 않도록 마지막 id 다음부터 찾는다
+        int lastId = Integer.MIN_VALUE;
+        while (true) {
+            List<Integer> ids = new ArrayList<>(batchSize);
+            List<String> texts = new ArrayList<>(batchSize);
+            try (Connection con = dataSource.getConnection();
+                 PreparedStatement ps = con.prepareStatement("""
+                     SELECT r.id, r.text
+                     FROM rag_items r
+                     LEFT JOIN rag_item_vectors v ON v.id = r.id
+                     WHERE r.id > ?
+                       AND (v.id IS NULL
+                            OR v.text_md5 IS DISTINCT FROM md5(r.text)
+                            OR v.model IS DISTINCT FROM ?)
+                     ORDER BY r.id
+                     LIMIT ?
+                 """)) {
+                ps.setInt(1, lastId);
+                ps.setString(2, model);
+                ps.setInt(3, batchSize);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getInt(1));
+                        texts.add(rs.getString(2));
+                    }
+                }
+            }
+            if (ids.isEmpty()) break;
+            lastId = ids.get(ids.size() - 1);
+
+            List<float[]> vectors = client.embedPassages(texts);
+            save(ids, texts, vectors);
+            total += ids.size();
+            log.info("[embed] embedded {} rows (total={})", ids.size(), total);
+        }
+        return total;
+    }
+
+    public void save(List<Integer> ids, List<String> texts, List<float[]> vectors) throws SQLException {
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement ps = con.prepareStatement("""
+                 INSERT INTO rag_item_vectors(id, dim, vec, text_md5, model) VALUES (?, ?, ?, md5(?), ?)
+                 ON CONFLICT (id) DO UPDATE
+                   SET dim = EXCLUDED.dim, vec = EXCLUDED.vec, text_md5 = EXCLUDED.text_md5, model = EXCLUDED.model
+             """)) {
+            for (int i = 0; i < ids.size(); i++) {
+                float[] v = vectors.get(i);
+                ps.setInt(1, ids.get(i));
+                ps.setInt(2, v.length);
+                ps.setBytes(3, encode(v));
+                ps.setString(4, texts.get(i));
+                ps.setString(5, model);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /* rag_items 에서 삭제된 행의 벡터 제거 */
+    private void deleteOrphans() throws SQLException {
+        try (var con = dataSource.getConnection(); var st = con.createStatement()) {
+            int deleted = st.executeUpdate("""
+                DELETE FROM rag_item_vectors v
+                WHERE NOT EXISTS (SELECT 1 FROM rag_items r WHERE r.id = v.id)
+            """);
+            if (deleted > 0) log.info("[embed] deleted {} orphan vectors", deleted);
+        }
+    }
+
+    /* 지금 모델로 저장된 벡터 차원. 저장된 벡터가 없으면 0 */
+    public int dimension() {
+        try (var con = dataSource.getConnection();
+             var ps = con.prepareStatement("SELECT dim FROM rag_item_vectors WHERE model = ? LIMIT 1")) {
+            ps.setString(1, model);
+            try (var rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (Exception e) {
+            log.warn("[embed] read vector dim failed: {}", e.toString());
+            return 0;
+        }
+    }
+
+    public int loadInto(VectorIndex.Builder builder) throws SQLException {
+        return loadInto(builder, null);
+    }
+
+    /* ids 가 null 이면 전체, 아니면 해당 id 들의 벡터만 읽는다 (지금 모델로 임베딩된 것만) */
+    public int loadInto(VectorIndex.Builder builder, int[] ids) throws SQLException {
+        if (ids != null && ids.length == 0) return 0;
+
+        int loaded = 0;
+        try (Connection con = dataSource.getConnection()) {
+            // PostgreSQL 은 autocommit 이 꺼져 있어야 fetchSize 단위로 커서 스트리밍한다
+            boolean autoCommit = con.getAutoCommit();
+            con.setAutoCommit(false);
+            String sql = ids == null
+                    ? "SELECT id, vec FROM rag_item_vectors WHERE model = ?"
+                    : "SELECT id, vec FROM rag_item_vectors WHERE model = ? AND id = ANY(?)";
+            try (PreparedStatement ps = con.prepareStatement(sql)) {
+                ps.setString(1, model);
+                if (ids != null) {
+                    Integer[] boxed = new Integer[ids.length];
+                    for (int i = 0; i < ids.length; i++) boxed[i] = ids[i];
+                    ps.setArray(2, con.createArrayOf("integer", boxed));
+                }
+                ps.setFetchSize(1000);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        if (builder.put(rs.getInt(1), decode(rs.getBytes(2)))) loaded++;
+                    }
+                }
+            } finally {
+                con.commit();
+                con.setAutoCommit(autoCommit);
+            }
+        }
+        return loaded;
+    }
+
+    static byte[] encode(float[] v) {
+        ByteBuffer buf = ByteBuffer.allocate(v.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buf.asFloatBuffer().put(v);
+        return buf.array();
+    }
+
+    static float[] decode(byte[] bytes) {
+        float[] v = new float[bytes.length / Float.BYTES];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(v);
+        return v;
+    }
+}
@@ -0,0 +1,110 @@
+package com.khi.ragservice.embedding;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * 리액티브 모드의 질의 임베딩 클라이언트 (/embed-batch, WebClient).
+ * rag.embedding.batch.max-size > 1 이면 HttpEmbeddingClient 의 batcher/캐시를 같이 쓴다.
+ * 이때 배치는 여러 요청이 공유하므로 구독이 취소돼도 배치 호출은 끝까지 가고 결과는 캐시에 남는다.
+ * 배치를 끄면 WebClient 로 직접 호출하고, 구독이 취소되면 진행 중인 HTTP 요청도 함께 끊긴다.
+ * 이때도 벡터 캐시(EmbeddingCache)는 HttpEmbeddingClient 와 같은 것을 같은 키로 보고 채운다.
+ * 메모리에 없고 디스크 spill 이 켜져 있으면 파일 읽기는 boundedElastic 에서 한다.
+ */
+@Slf4j
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@ConditionalOnProperty(name = "rag.embedding.enabled", havingValue = "true")
+public class ReactiveEmbeddingClient {
+
+    private final WebClient webClient;
+    private final HttpEmbeddingClient batched;
+    private final EmbeddingCache cache;
+
+    public ReactiveEmbeddingClient(@Value("${rag.embedding.url:http://localhost:8081}") String baseUrl,
+                                   WebClient.Builder webClientBuilder,
+                                   HttpEmbeddingClient httpEmbeddingClient) {
+
+        this.webClient = webClientBuilder.baseUrl(baseUrl).build();
+        this.batched = httpEmbeddingClient.isBatching() ? httpEmbeddingClient : null;
+        this.cache = httpEmbeddingClient.cache();
+        log.info("[embed] reactive embedder url={} | batched={}", baseUrl, batched != null);
+    }
+
+    // suppressCancel: 다른 요청과 공유하는 future 이므로 구독 취소가 future 를 취소하지 않게 한다
+    public Mono<float[]> embedQuery(String text) {
+        if (batched != null) return Mono.fromFuture(() -> batched.submitQuery(text), true);
+
+        String input = HttpEmbeddingClient.QUERY_PREFIX + text;
+        if (cache == null) return embedBatch(List.of(input)).map(vectors -> vectors.get(0));
+
+        String key = EmbeddingCache.key(input);
+        return cached(key).switchIfEmpty(Mono.defer(() -> embedBatch(List.of(input)).map(vectors -> {
+            cache.put(key, vectors.get(0));
+            return vectors.get(0);
+        })));
+    }
+
+    public Mono<List<float[]>> embedQueries(List<String> texts) {
+        if (batched != null) return Mono.fromFuture(() -> batched.submitQueries(texts), true);
+
+        List<String> inputs = HttpEmbeddingClient.prefixed(HttpEmbeddingClient.QUERY_PREFIX, texts);
+        if (cache == null) return embedBatch(inputs);
+
+        // 캐시에 없는 텍스트만 모아 한 번 호출하고, 결과는 입력 순서대로 합친다
+        String[] keys = new String[inputs.size()];
+        float[][] out = new float[inputs.size()][];
+        for (int i = 0; i < keys.length; i++) keys[i] = EmbeddingCache.key(inputs.get(i));
+
+        return Flux.range(0, keys.length)
+                .concatMap(i -> cached(keys[i]).doOnNext(v -> out[i] = v))
+                .then(Mono.defer(() -> {
+                    List<Integer> missing = new ArrayList<>();
+                    for (int i = 0; i < out.length; i++) if (out[i] == null) missing.add(i);
+                    if (missing.isEmpty()) return Mono.just(List.of(out));
+
+                    List<String> missingInputs = new ArrayList<>(missing.size());
+                    for (int i : missing) missingInputs.add(inputs.get(i));
+                    return embedBatch(missingInputs).map(vectors -> {
+                        for (int j = 0; j < missing.size(); j++) {
+                            int i = missing.get(j);
+                            out[i] = vectors.get(j);
+                            cache.put(keys[i], out[i]);
+                        }
+                        return List.of(out);
+                    });
+                }));
+    }
+
+    private Mono<float[]> cached(String key) {
+        float[] hit = cache.memory().getIfPresent(key);
+        if (hit != null) return Mono.just(hit);
+        if (!cache.spills()) return Mono.empty();
+        return Mono.fromCallable(() -> cache.get(key)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<List<float[]>> embedBatch(List<String> texts) {
+        if (texts.isEmpty()) return Mono.just(List.of());
+
+        return webClient.post()
+                .uri("/embed-batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("texts", texts))
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .map(body -> HttpEmbeddingClient.toVectors(body, texts.size()));
+    }
+}
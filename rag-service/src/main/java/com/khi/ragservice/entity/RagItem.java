@@ -22,4 +22,8 @@ public class RagItem {
 
     @Column(nullable = false, name = "labelid")
     private Short labelId;
+
+    /* text/label/labelId 의 SHA-256. 증분 적재 시 변경 여부 비교용 */
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
 }
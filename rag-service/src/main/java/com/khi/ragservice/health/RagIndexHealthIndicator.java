@@ -0,0 +1,34 @@
+package com.khi.ragservice.health;
+
+import com.khi.ragservice.schema.TrgmSchemaInitializer;
+import com.khi.ragservice.service.RagService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/*
+ * 검색 인덱스가 준비되기 전에는 DOWN 을 보고한다.
+ * eureka.client.healthcheck 로 등록 상태에 반영되어 게이트웨이가 준비된 인스턴스로만 라우팅한다.
+ */
+@Component("ragIndex")
+@RequiredArgsConstructor
+public class RagIndexHealthIndicator implements HealthIndicator {
+
+    private final RagService ragService;
+    private final TrgmSchemaInitializer trgmSchema;
+
+    @Override
+    public Health health() {
+        Health.Builder builder = ragService.isReady() ? Health.up() : Health.down();
+
+        builder.withDetail("engine", ragService.engineName())
+                .withDetail("pgTrgmReady", trgmSchema.isReady())
+                .withDetail("denseReady", ragService.isDenseReady());
+
+        if (trgmSchema.getLastError() != null) {
+            builder.withDetail("pgTrgmError", trgmSchema.getLastError());
+        }
+        return builder.build();
+    }
+}
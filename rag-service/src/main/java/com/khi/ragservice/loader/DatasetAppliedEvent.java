@@ -0,0 +1,8 @@
+package com.khi.ragservice.loader;
+
+/*
+ * 새 데이터셋(fingerprint)이 rag_items 에 반영되었을 때 발행.
+ * upsertedIds/removedIds 로 파생 데이터(인덱스, 임베딩)를 바뀐 행만 갱신할 수 있다.
+ */
+public record DatasetAppliedEvent(String fingerprint, long totalRecords, int[] upsertedIds, int[] removedIds) {
+}
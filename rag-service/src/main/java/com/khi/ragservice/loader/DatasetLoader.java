@@ -2,16 +2,24 @@ package com.khi.ragservice.loader;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.khi.ragservice.embedding.EmbeddingClient;
+import com.khi.ragservice.embedding.RagVectorStore;
 import com.khi.ragservice.entity.RagItem;
 import com.khi.ragservice.repository.RagItemRepository;
+import com.khi.ragservice.search.RagSnapshotStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Component;
 
 import javax.sql.DataSource;
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
@@ -19,7 +27,10 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Slf4j
 @Component
@@ -30,13 +41,27 @@ public class DatasetLoader implements CommandLineRunner {
     private final DataSource dataSource;
     private final ObjectMapper objectMapper;
     private final ResourceLoader resourceLoader;
+    private final RagVectorStore vectorStore;
+    private final ObjectProvider<EmbeddingClient> embeddingClient;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RagItemBulkWriter bulkWriter;
+    private final RagSnapshotStore snapshotStore;
+
+    @Value("${rag.dataset.path:classpath:dataset.txt}")
+    private String datasetPath;
+
+    // rag_items 에 반영된 것으로 확인된 데이터셋 fingerprint (인덱스 스냅샷 파일 키)
+    private volatile String fingerprint;
 
     private static final boolean SEED_ENABLED = true;
-    private static final String DATASET_PATH = "classpath:dataset.txt";
-    private static final boolean SKIP_IF_NOT_EMPTY = true;
+    // 증분 적재(content_hash diff)라 비어 있지 않아도 fingerprint 가 다르면 반영한다
+    private static final boolean SKIP_IF_NOT_EMPTY = false;
     private static final boolean USE_FINGERPRINT = true;
     private static final boolean RESET_BEFORE_SEED = false;
     private static final int BATCH_SIZE = 1000;
+    private static final int PARSE_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private static final int MAX_IN_FLIGHT_CHUNKS = PARSE_THREADS * 2;
+    private static final int EMBED_BATCH_SIZE = 64;
 
     @Override
     public void run(String... args) throws Exception {
@@ -45,85 +70,213 @@ public class DatasetLoader implements CommandLineRunner {
             return;
         }
 
+        /*
+         * DB 에 마지막으로 반영된 데이터셋이 지금 파일(크기/수정 시각으로 확인)과 같고 그 fingerprint 의 스냅샷이
+         * (임베딩 상태까지 같은 키로) 있으면 재반영/임베딩 없이 스냅샷으로 뜬다. seed_history 조회 한 번만 한다.
+         * 로컬 스냅샷만 보고 건너뛰면 DB 가 초기화된 경우 rag_items 가 빈 채로 남으므로 DB 기록을 같이 확인한다.
+         */
+        if (USE_FINGERPRINT && snapshotStore.isEnabled()) {
+            var resource = resourceLoader.getResource(datasetPath);
+            String fp = resource.exists() ? appliedFingerprint(dataSource, sourceStamp(resource)) : null;
+            if (fp != null && snapshotStore.exists(fp)) {
+                this.fingerprint = fp;
+                log.info("[seed] dataset already applied and index snapshot exists -> skip seed");
+                return;
+            }
+        }
+
+        load();
+    }
+
+    /*
+     * 데이터셋 반영 → 임베딩 → DatasetAppliedEvent 발행. 기동 시와 실행 중 재적재가 같은 경로를 탄다.
+     * 변경이 없으면(fingerprint 동일) null 을 반환한다.
+     */
+    public synchronized DatasetAppliedEvent load() throws Exception {
+        DatasetAppliedEvent applied = seed();
+        embedMissing();
+
+        // 임베딩까지 끝난 뒤 발행해야 인덱스 갱신 시 새 벡터를 읽는다
+        if (applied != null) eventPublisher.publishEvent(applied);
+        return applied;
+    }
+
+    public String getDatasetPath() {
+        return datasetPath;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    private DatasetAppliedEvent seed() throws Exception {
         if (RESET_BEFORE_SEED) {
             truncateForReset(dataSource);
         }
 
         if (!RESET_BEFORE_SEED && SKIP_IF_NOT_EMPTY && repo.count() > 0) {
             log.info("[seed] rag_items not empty -> skip dataset seed");
-            return;
+            return null;
         }
 
-        var resource = resourceLoader.getResource(DATASET_PATH);
+        var resource = resourceLoader.getResource(datasetPath);
         if (!resource.exists()) {
-            log.warn("[seed] dataset not found: {}", DATASET_PATH);
-            return;
+            log.warn("[seed] dataset not found: {}", datasetPath);
+            return null;
         }
 
         String fingerprint = null;
+        String stamp = null;
         if (USE_FINGERPRINT) {
-            fingerprint = calcSha256(resource);
             ensureSeedHistoryTable(dataSource);
+            stamp = sourceStamp(resource);
+
+            // 파일이 마지막 반영 때와 같으면(크기/수정 시각) 전체 해시를 다시 계산하지 않는다
+            String applied = RESET_BEFORE_SEED ? null : appliedFingerprint(dataSource, stamp);
+            if (applied != null) {
+                log.info("[seed] dataset unchanged since last apply -> skip seed");
+                this.fingerprint = applied;
+                return null;
+            }
+
+            fingerprint = calcSha256(resource);
             if (!RESET_BEFORE_SEED && isSeedAlreadyApplied(dataSource, fingerprint)) {
                 log.info("[seed] same dataset fingerprint already applied -> skip seed");
-                return;
+                upsertSeedHistory(dataSource, fingerprint, stamp);
+                this.fingerprint = fingerprint;
+                return null;
             }
         }
 
-        log.info("[seed] loading JSON dataset from {}", DATASET_PATH);
-
-        List<RagItem> batch = new ArrayList<>(BATCH_SIZE);
-        long total = 0;
+        log.info("[seed] loading JSON dataset from {}", datasetPath);
 
-        try (var in = resource.getInputStream();
-             var reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+        long total;
+        RagItemBulkWriter.MergeResult merged;
+        ExecutorService workers = Executors.newFixedThreadPool(PARSE_THREADS);
+        try (var in = new BufferedInputStream(resource.getInputStream());
+             var session = bulkWriter.open()) {
 
-            reader.mark(4096);
-            String firstLine = reader.readLine();
-            if (firstLine == null) {
+            int head = peekFirstSignificantByte(in);
+            if (head < 0) {
                 log.warn("[seed] dataset is empty");
-                return;
+                return null;
             }
-            String head = firstLine.stripLeading();
-            reader.reset();
-
-            if (head.startsWith("[")) {
-                String all = reader.lines().collect(Collectors.joining("\n"));
-                JsonNode arr = objectMapper.readTree(all);
-                if (!arr.isArray()) throw new IllegalArgumentException("dataset is not a JSON array");
-                for (JsonNode node : arr) {
-                    total += processNode(node, batch);
-                    if (batch.size() >= BATCH_SIZE) flushBatch(batch);
-                }
+
+            if (head == '[') {
+                // JSON 배열: 로더 스레드는 원소 경계만 찾아 원시 바이트로 넘기고, 트리 파싱은 워커에서 병렬로
+                total = copyParallel(new JsonArrayElements(in), objectMapper::readTree, session, workers);
             } else {
-                // NDJSON
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    line = stripBom(line).trim();
-                    if (line.isEmpty()) continue;
-                    JsonNode node = objectMapper.readTree(line);
-                    total += processNode(node, batch);
-                    if (batch.size() >= BATCH_SIZE) flushBatch(batch);
-                }
+                // NDJSON: 줄 단위로 읽고 파싱은 워커에서 병렬로
+                var reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+                total = copyParallel(reader.lines().iterator(), this::parseLine, session, workers);
             }
-            if (!batch.isEmpty()) flushBatch(batch);
+            merged = session.commit();
+        } finally {
+            workers.shutdownNow();
         }
 
         if (USE_FINGERPRINT && fingerprint != null) {
-            upsertSeedHistory(dataSource, fingerprint);
+            upsertSeedHistory(dataSource, fingerprint, stamp);
         }
+        this.fingerprint = fingerprint;
 
-        log.info("[seed] JSON dataset load done. totalRecords={}", total);
+        log.info("[seed] JSON dataset load done. totalRecords={} | upserted={} | removed={}",
+                total, merged.upsertedIds().length, merged.removedIds().length);
+        return new DatasetAppliedEvent(fingerprint, total, merged.upsertedIds(), merged.removedIds());
+    }
+
+    // 시드가 스킵된 경우에도 벡터가 없는 행은 임베딩한다
+    private void embedMissing() {
+        EmbeddingClient client = embeddingClient.getIfAvailable();
+        if (client == null) return;
+
+        long t0 = System.nanoTime();
+        try {
+            long embedded = vectorStore.embedMissing(client, EMBED_BATCH_SIZE);
+            log.info("[seed] embedding done. embedded={} | {} ms", embedded, (System.nanoTime() - t0) / 1_000_000);
+        } catch (Exception e) {
+            log.warn("[seed] embedding failed (dense retrieval unavailable): {}", e.toString());
+        }
+    }
+
+    /*
+     * 원소를 BATCH_SIZE 단위 청크로 묶어 워커에서 파싱/정규화/COPY 인코딩하고,
+     * 제출 순서대로 COPY 스트림에 쓴다. 동시에 떠 있는 청크 수를 제한해 메모리를 일정하게 유지한다.
+     */
+    private <T> long copyParallel(Iterator<T> source, NodeParser<T> parser,
+                                  RagItemBulkWriter.Session session, ExecutorService workers) throws Exception {
+        Deque<Future<EncodedChunk>> inFlight = new ArrayDeque<>();
+        List<T> chunk = new ArrayList<>(BATCH_SIZE);
+        long total = 0;
+
+        while (source.hasNext()) {
+            chunk.add(source.next());
+            if (chunk.size() >= BATCH_SIZE) {
+                inFlight.add(submitChunk(chunk, parser, workers));
+                chunk = new ArrayList<>(BATCH_SIZE);
+                if (inFlight.size() >= MAX_IN_FLIGHT_CHUNKS) total += writeNext(inFlight, session);
+            }
+        }
+        if (!chunk.isEmpty()) inFlight.add(submitChunk(chunk, parser, workers));
+        while (!inFlight.isEmpty()) total += writeNext(inFlight, session);
+        return total;
+    }
+
+    private <T> Future<EncodedChunk> submitChunk(List<T> chunk, NodeParser<T> parser, ExecutorService workers) {
+        return workers.submit(() -> {
+            List<RagItem> rows = new ArrayList<>(chunk.size());
+            for (T raw : chunk) {
+                JsonNode node = parser.parse(raw);
+                if (node == null) continue;
+                RagItem item = processNode(node);
+                if (item != null) rows.add(item);
+            }
+            return new EncodedChunk(rows.size(), RagItemBulkWriter.encode(rows));
+        });
     }
 
-    private int processNode(JsonNode node, List<RagItem> batch) {
+    private long writeNext(Deque<Future<EncodedChunk>> inFlight, RagItemBulkWriter.Session session) throws Exception {
+        EncodedChunk encoded;
+        try {
+            encoded = inFlight.poll().get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) throw cause;
+            throw e;
+        }
+        session.write(encoded.copyData());
+        log.info("[seed] copied {} rows", encoded.rows());
+        return encoded.rows();
+    }
+
+    private JsonNode parseLine(String line) throws Exception {
+        line = stripBom(line).trim();
+        if (line.isEmpty()) return null;
+        return objectMapper.readTree(line);
+    }
+
+    // BOM 과 앞쪽 공백을 건너뛴 첫 바이트. 스트림 위치는 BOM 다음으로 되돌린다
+    private static int peekFirstSignificantByte(BufferedInputStream in) throws IOException {
+        in.mark(3);
+        if (!(in.read() == 0xEF && in.read() == 0xBB && in.read() == 0xBF)) in.reset();
+
+        in.mark(4096);
+        int b;
+        int read = 0;
+        while ((b = in.read()) >= 0 && Character.isWhitespace(b) && ++read < 4096) {
+            // skip
+        }
+        in.reset();
+        return b;
+    }
+
+    private RagItem processNode(JsonNode node) {
         Map<String, JsonNode> idx = normalizeKeys(node);
 
         int id = parseInt(req(idx, "id"), "id");
         String text = normalizeSpace(req(idx, "text").asText(""));
         if (text.isBlank()) {
             log.warn("[seed] skip row id={} due to blank text", id);
-            return 0;
+            return null;
         }
         String label = req(idx, "label").asText("");
         short labelId = (short) parseInt(req(idx, "label_id"), "label_id");
@@ -133,20 +286,8 @@ public class DatasetLoader implements CommandLineRunner {
         item.setText(text);
         item.setLabel(label);
         item.setLabelId(labelId);
-
-        batch.add(item);
-        return 1;
-    }
-
-    private void flushBatch(List<RagItem> batch) {
-        try {
-            repo.saveAll(batch);
-            log.info("[seed] inserted {} rows", batch.size());
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        } finally {
-            batch.clear();
-        }
+        item.setContentHash(contentHash(text, label, labelId));
+        return item;
     }
 
     private void truncateForReset(DataSource ds) {
@@ -167,35 +308,69 @@ public class DatasetLoader implements CommandLineRunner {
                   applied_at TIMESTAMPTZ NOT NULL DEFAULT now()
                 )
             """);
+            st.execute("ALTER TABLE seed_history ADD COLUMN IF NOT EXISTS source_stamp TEXT");
         } catch (Exception e) {
             log.warn("[seed] ensure seed_history failed: {}", e.toString());
         }
     }
 
+    // 마지막으로 반영된 fingerprint 와 같을 때만 true (이전에 반영했다가 다른 데이터셋으로 바뀐 경우는 다시 반영)
     private boolean isSeedAlreadyApplied(DataSource ds, String fp) {
+        if (fp == null) return false;
         try (Connection con = ds.getConnection();
-             PreparedStatement ps = con.prepareStatement("SELECT 1 FROM seed_history WHERE fingerprint = ? LIMIT 1")) {
-            ps.setString(1, fp);
-            try (ResultSet rs = ps.executeQuery()) { return rs.next(); }
+             PreparedStatement ps = con.prepareStatement(
+                     "SELECT fingerprint FROM seed_history ORDER BY applied_at DESC, id DESC LIMIT 1")) {
+            try (ResultSet rs = ps.executeQuery()) { return rs.next() && fp.equals(rs.getString(1)); }
         } catch (Exception e) {
             log.warn("[seed] query seed_history failed: {}", e.toString());
             return false;
         }
     }
 
-    private void upsertSeedHistory(DataSource ds, String fp) {
+    /* 마지막 반영이 같은 source stamp 로 기록되어 있으면 그 fingerprint, 아니면(또는 조회 실패 시) null */
+    private String appliedFingerprint(DataSource ds, String stamp) {
+        if (stamp == null) return null;
+        try (Connection con = ds.getConnection();
+             PreparedStatement ps = con.prepareStatement(
+                     "SELECT fingerprint, source_stamp FROM seed_history ORDER BY applied_at DESC, id DESC LIMIT 1")) {
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && stamp.equals(rs.getString(2)) ? rs.getString(1) : null;
+            }
+        } catch (Exception e) {
+            log.warn("[seed] query seed_history failed: {}", e.toString());
+            return null;
+        }
+    }
+
+    private void upsertSeedHistory(DataSource ds, String fp, String stamp) {
         try (Connection con = ds.getConnection();
              PreparedStatement ps = con.prepareStatement("""
-                 INSERT INTO seed_history(fingerprint) VALUES (?)
-                 ON CONFLICT (fingerprint) DO NOTHING
+                 INSERT INTO seed_history(fingerprint, source_stamp) VALUES (?, ?)
+                 ON CONFLICT (fingerprint) DO UPDATE
+                   SET applied_at = now(), source_stamp = EXCLUDED.source_stamp
              """)) {
             ps.setString(1, fp);
+            ps.setString(2, stamp);
             ps.executeUpdate();
         } catch (Exception e) {
             log.warn("[seed] upsert seed_history failed: {}", e.toString());
         }
     }
 
+    /*
+     * 해시 없이 파일이 바뀌었는지 보는 값 (경로|크기|수정 시각).
+     * 크기와 수정 시각이 모두 같은 채 내용만 바뀌는 경우는 감지하지 못한다. 알 수 없으면 null (매번 해시)
+     */
+    private static String sourceStamp(org.springframework.core.io.Resource res) {
+        try {
+            long modified = res.lastModified();
+            if (modified <= 0) return null;
+            return res.getURI() + "|" + res.contentLength() + "|" + modified;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
     private static String stripBom(String s) {
         return s == null ? null : s.replace("\uFEFF", "");
     }
@@ -205,7 +380,7 @@ public class DatasetLoader implements CommandLineRunner {
         return k.replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT);
     }
 
-    private static Map<String, JsonNode> normalizeKeys(JsonNode node) {
+    static Map<String, JsonNode> normalizeKeys(JsonNode node) {
         Map<String, JsonNode> out = new LinkedHashMap<>();
         var it = node.fieldNames();
         while (it.hasNext()) {
@@ -229,7 +404,21 @@ public class DatasetLoader implements CommandLineRunner {
         return Integer.parseInt(s.trim());
     }
 
-    private static String normalizeSpace(String text) {
+    private static String contentHash(String text, String label, short labelId) {
+        try {
+            var md = MessageDigest.getInstance("SHA-256");
+            md.update(text.getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0x1F);
+            md.update(label.getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0x1F);
+            md.update(Short.toString(labelId).getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(md.digest());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String normalizeSpace(String text) {
         return text == null ? "" : text.trim().replaceAll("\\s+", " ");
     }
 
@@ -248,4 +437,12 @@ public class DatasetLoader implements CommandLineRunner {
             return null;
         }
     }
+
+    @FunctionalInterface
+    private interface NodeParser<T> {
+        JsonNode parse(T raw) throws Exception;
+    }
+
+    private record EncodedChunk(int rows, byte[] copyData) {
+    }
 }
@@ -0,0 +1,76 @@
+package com.khi.ragservice.loader;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * 실행 중 데이터셋 재적재. 백그라운드 스레드 하나에서 DatasetLoader.load() 를 실행하고
+ * 새 인덱스는 RagIndexManager 가 다 만든 뒤 스냅샷 참조만 교체하므로
+ * 진행 중인 요청은 계속 이전 스냅샷으로 응답한다.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DatasetReloadService {
+
+    private final DatasetLoader datasetLoader;
+
+    private final ExecutorService reloadExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "rag-dataset-reload");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @Getter private volatile Instant lastStartedAt;
+    @Getter private volatile Instant lastFinishedAt;
+    @Getter private volatile String lastResult;
+
+    /* 이미 재적재 중이면 false */
+    public boolean trigger(String reason) {
+        if (!running.compareAndSet(false, true)) {
+            log.info("[reload] already running -> ignore ({})", reason);
+            return false;
+        }
+
+        lastStartedAt = Instant.now();
+        reloadExecutor.execute(() -> {
+            long t0 = System.nanoTime();
+            try {
+                log.info("[reload] start ({}) | path={}", reason, datasetLoader.getDatasetPath());
+                DatasetAppliedEvent applied = datasetLoader.load();
+                lastResult = applied == null
+                        ? "unchanged"
+                        : "applied fingerprint=" + applied.fingerprint()
+                          + " upserted=" + applied.upsertedIds().length
+                          + " removed=" + applied.removedIds().length;
+                log.info("[reload] done | {} | {} ms", lastResult, (System.nanoTime() - t0) / 1_000_000);
+            } catch (Exception e) {
+                lastResult = "failed: " + e;
+                log.error("[reload] failed", e);
+            } finally {
+                lastFinishedAt = Instant.now();
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reloadExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,83 @@
+package com.khi.ragservice.loader;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.nio.file.*;
+
+/*
+ * rag.dataset.watch=true 이고 rag.dataset.path 가 file: 경로일 때
+ * 파일 변경을 감지해 재적재를 트리거한다. (연속 이벤트는 DEBOUNCE_MS 동안 묶음)
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "rag.dataset.watch", havingValue = "true")
+public class DatasetWatcher {
+
+    private static final long DEBOUNCE_MS = 2_000L;
+
+    private final DatasetLoader datasetLoader;
+    private final DatasetReloadService reloadService;
+    private final ResourceLoader resourceLoader;
+
+    private volatile Thread watchThread;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() throws Exception {
+        var resource = resourceLoader.getResource(datasetLoader.getDatasetPath());
+        if (!resource.isFile()) {
+            log.warn("[reload] dataset is not a file resource -> watch disabled ({})", datasetLoader.getDatasetPath());
+            return;
+        }
+
+        Path file = resource.getFile().toPath().toAbsolutePath();
+        Path dir = file.getParent();
+        WatchService watchService = FileSystems.getDefault().newWatchService();
+        dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        watchThread = new Thread(() -> watch(watchService, dir, file), "rag-dataset-watch");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        log.info("[reload] watching {}", file);
+    }
+
+    private void watch(WatchService watchService, Path dir, Path file) {
+        try (watchService) {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.context() instanceof Path p && dir.resolve(p).equals(file)) changed = true;
+                }
+                key.reset();
+
+                if (changed) {
+                    // 파일 쓰기가 끝날 때까지 잠깐 기다리고 그 사이 이벤트는 버린다
+                    Thread.sleep(DEBOUNCE_MS);
+                    WatchKey extra;
+                    while ((extra = watchService.poll()) != null) {
+                        extra.pollEvents();
+                        extra.reset();
+                    }
+                    reloadService.trigger("file changed");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("[reload] watch stopped: {}", e.toString());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (watchThread != null) watchThread.interrupt();
+    }
+}
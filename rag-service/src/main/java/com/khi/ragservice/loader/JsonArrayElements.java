@@ -0,0 +1,114 @@
+package com.khi.ragservice.loader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/*
+ * 최상위 JSON 배열을 원소 단위 원시 바이트로 잘라 준다. 괄호 깊이와 문자열/이스케이프만 추적하고 트리는 만들지 않으므로,
+ * 로더 스레드는 바이트만 훑고 실제 파싱(readTree)은 워커에서 병렬로 한다.
+ * UTF-8 의 멀티바이트 문자는 0x80 이상이라 구조 문자({ } [ ] , ")와 겹치지 않는다.
+ * 원소 자체의 문법 검사는 워커의 파서가 한다. 여기서는 배열 경계가 깨진 경우만 예외를 던진다.
+ */
+final class JsonArrayElements implements Iterator<byte[]> {
+
+    private final InputStream in;
+    // 바이트 단위 InputStream.read() 호출을 피하려고 직접 블록으로 읽는다
+    private final byte[] chunk = new byte[64 * 1024];
+    private int chunkPos;
+    private int chunkLimit;
+    private byte[] buf = new byte[4096];
+    private byte[] next;
+    private boolean done;
+
+    /* in 은 BOM 다음, '[' 앞(공백 허용)에 위치해야 한다 */
+    JsonArrayElements(InputStream in) throws IOException {
+        this.in = in;
+        int b = skipWhitespace();
+        if (b != '[') throw new IOException("dataset is not a JSON array");
+        advance();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    @Override
+    public byte[] next() {
+        if (next == null) throw new NoSuchElementException();
+        byte[] out = next;
+        try {
+            advance();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out;
+    }
+
+    private void advance() throws IOException {
+        next = null;
+        if (done) return;
+
+        int b = skipWhitespace();
+        if (b == ']') {
+            done = true;
+            return;
+        }
+
+        int len = 0;
+        int depth = 0;
+        boolean inString = false;
+        boolean escaped = false;
+        while (true) {
+            if (b < 0) throw new IOException("unterminated JSON array");
+
+            if (inString) {
+                if (escaped) escaped = false;
+                else if (b == '\\') escaped = true;
+                else if (b == '"') inString = false;
+            } else if (b == '"') {
+                inString = true;
+            } else if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                if (depth == 0) {
+                    // 배열의 닫는 괄호: 마지막 원소
+                    done = true;
+                    break;
+                }
+                depth--;
+            } else if (b == ',' && depth == 0) {
+                break;
+            }
+
+            if (len == buf.length) buf = Arrays.copyOf(buf, len * 2);
+            buf[len++] = (byte) b;
+            b = read();
+        }
+
+        if (len == 0) throw new IOException("empty element in JSON array");
+        next = Arrays.copyOf(buf, len);
+    }
+
+    private int skipWhitespace() throws IOException {
+        int b;
+        while ((b = read()) >= 0 && (b == ' ' || b == '\t' || b == '\n' || b == '\r')) {
+            // skip
+        }
+        return b;
+    }
+
+    private int read() throws IOException {
+        if (chunkPos == chunkLimit) {
+            int n = in.read(chunk, 0, chunk.length);
+            if (n <= 0) return -1;
+            chunkPos = 0;
+            chunkLimit = n;
+        }
+        return chunk[chunkPos++] & 0xFF;
+    }
+}
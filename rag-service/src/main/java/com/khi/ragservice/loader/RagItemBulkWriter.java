@@ -0,0 +1,167 @@
+package com.khi.ragservice.loader;
+
+import com.khi.ragservice.entity.RagItem;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * rag_items 대량 적재. COPY FROM STDIN 으로 임시 스테이징 테이블에 넣은 뒤
+ * content_hash 를 비교해 새로 생겼거나 바뀐 행만 upsert 하고, 데이터셋에서 빠진 행은 삭제한다.
+ * (같은 id 가 여러 번 나오면 마지막 행이 이김)
+ * 하나의 트랜잭션이라 중간에 실패하면 아무것도 반영되지 않는다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RagItemBulkWriter {
+
+    private final DataSource dataSource;
+
+    public Session open() throws SQLException {
+        Connection con = dataSource.getConnection();
+        try {
+            con.setAutoCommit(false);
+            try (Statement st = con.createStatement()) {
+                st.execute("ALTER TABLE rag_items ADD COLUMN IF NOT EXISTS content_hash VARCHAR(64)");
+                st.execute("""
+                    CREATE TEMP TABLE rag_items_stage (
+                      id INT NOT NULL,
+                      text TEXT NOT NULL,
+                      label TEXT NOT NULL,
+                      labelid SMALLINT NOT NULL,
+                      content_hash VARCHAR(64) NOT NULL,
+                      seq BIGSERIAL
+                    ) ON COMMIT DROP
+                """);
+            }
+            CopyIn copyIn = con.unwrap(PGConnection.class).getCopyAPI()
+                    .copyIn("COPY rag_items_stage (id, text, label, labelid, content_hash) FROM STDIN");
+            return new Session(con, copyIn);
+        } catch (SQLException e) {
+            con.rollback();
+            con.close();
+            throw e;
+        }
+    }
+
+    /* COPY text 포맷으로 인코딩 (탭 구분, \\ \t \n \r 이스케이프) */
+    public static byte[] encode(List<RagItem> rows) {
+        StringBuilder sb = new StringBuilder(rows.size() * 160);
+        for (RagItem item : rows) {
+            sb.append(item.getId()).append('\t');
+            appendEscaped(sb, item.getText());
+            sb.append('\t');
+            appendEscaped(sb, item.getLabel());
+            sb.append('\t').append(item.getLabelId());
+            sb.append('\t').append(item.getContentHash()).append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void appendEscaped(StringBuilder sb, String v) {
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            switch (c) {
+                case '\\' -> sb.append("\\\\");
+                case '\t' -> sb.append("\\t");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                default -> sb.append(c);
+            }
+        }
+    }
+
+    /* staged: 데이터셋 행 수, upsertedIds: 새로 생기거나 바뀐 id, removedIds: 삭제된 id */
+    public record MergeResult(long staged, int[] upsertedIds, int[] removedIds) {
+    }
+
+    public static final class Session implements AutoCloseable {
+
+        private final Connection con;
+        private final CopyIn copyIn;
+        private boolean committed;
+
+        private Session(Connection con, CopyIn copyIn) {
+            this.con = con;
+            this.copyIn = copyIn;
+        }
+
+        public void write(byte[] copyData) throws SQLException {
+            copyIn.writeToCopy(copyData, 0, copyData.length);
+        }
+
+        /* COPY 를 끝내고 rag_items 와 diff 후 반영, 커밋 */
+        public MergeResult commit() throws SQLException {
+            long staged = copyIn.endCopy();
+
+            int[] upserted;
+            int[] removed;
+            try (Statement st = con.createStatement()) {
+                st.execute("CREATE INDEX ON rag_items_stage (id)");
+                st.execute("ANALYZE rag_items_stage");
+
+                upserted = collectIds(st.executeQuery("""
+                    WITH src AS (
+                      SELECT DISTINCT ON (id) id, text, label, labelid, content_hash
+                      FROM rag_items_stage
+                      ORDER BY id, seq DESC
+                    )
+                    INSERT INTO rag_items (id, text, label, labelid, content_hash)
+                    SELECT s.id, s.text, s.label, s.labelid, s.content_hash
+                    FROM src s
+                    LEFT JOIN rag_items r ON r.id = s.id
+                    WHERE r.id IS NULL OR r.content_hash IS DISTINCT FROM s.content_hash
+                    ON CONFLICT (id) DO UPDATE
+                      SET text = EXCLUDED.text, label = EXCLUDED.label,
+                          labelid = EXCLUDED.labelid, content_hash = EXCLUDED.content_hash
+                    RETURNING id
+                """));
+
+                removed = collectIds(st.executeQuery("""
+                    DELETE FROM rag_items r
+                    WHERE NOT EXISTS (SELECT 1 FROM rag_items_stage s WHERE s.id = r.id)
+                    RETURNING r.id
+                """));
+            }
+            con.commit();
+            committed = true;
+
+            log.info("[seed] COPY staged={} upserted={} removed={}", staged, upserted.length, removed.length);
+            return new MergeResult(staged, upserted, removed);
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                if (copyIn.isActive()) copyIn.cancelCopy();
+                if (!committed) con.rollback();
+            } finally {
+                con.close();
+            }
+        }
+
+        private static int[] collectIds(ResultSet rs) throws SQLException {
+            try (rs) {
+                int[] ids = new int[256];
+                int n = 0;
+                while (rs.next()) {
+                    if (n == ids.length) ids = Arrays.copyOf(ids, n * 2);
+                    ids[n++] = rs.getInt(1);
+                }
+                return Arrays.copyOf(ids, n);
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.khi.ragservice.schema;
+
+import com.khi.ragservice.loader.DatasetAppliedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/*
+ * pg_trgm 확장/GIN 인덱스 생성과 ANALYZE 를 요청마다가 아니라
+ * 기동 시(시드 이후) 또는 데이터셋 재적재 이후에 한 번만 수행한다.
+ * rag.retrieval.engine=postgres 일 때만 실행한다. 다른 엔진은 메모리 인덱스(스냅샷)로 서비스하므로
+ * 큰 테이블의 ANALYZE 가 readiness 를 늦추거나 기동마다 Postgres 에 부하를 주지 않도록 건너뛴다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TrgmSchemaInitializer {
+
+    private final DataSource dataSource;
+
+    @Value("${rag.retrieval.engine:memory}")
+    private String engine;
+
+    private volatile boolean ready;
+
+    private volatile String lastError;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (!isPostgresEngine()) {
+            log.info("[rag] retrieval engine={} -> skip pg_trgm prepare", engine);
+            return;
+        }
+        prepare();
+    }
+
+    // 기동 시 시드는 onReady 가 처리하므로, 이미 준비된 뒤의 재적재에만 다시 ANALYZE
+    @EventListener
+    public void onDatasetApplied(DatasetAppliedEvent event) {
+        if (ready) prepare();
+    }
+
+    public synchronized void prepare() {
+        long t0 = System.nanoTime();
+        try (var con = dataSource.getConnection(); var st = con.createStatement()) {
+            st.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+            st.execute("""
+                CREATE INDEX IF NOT EXISTS idx_rag_items_trgm
+                ON rag_items USING gin (
+                  (coalesce(text,'')||' '||coalesce(label,'')) gin_trgm_ops
+                )
+            """);
+            st.execute("ANALYZE rag_items");
+
+            ready = true;
+            lastError = null;
+            log.info("[rag] pg_trgm schema ready | {} ms", (System.nanoTime() - t0) / 1_000_000);
+        } catch (Exception e) {
+            lastError = e.toString();
+            log.warn("[rag] pg_trgm prepare failed: {}", e.toString());
+        }
+    }
+
+    private boolean isPostgresEngine() {
+        return "postgres".equalsIgnoreCase(engine);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+}
@@ -0,0 +1,245 @@
+package com.khi.ragservice.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * TextAnalyzer term 기반 in-process 역색인 + BM25F 점수 (text, label 두 필드).
+ *
+ *   tf'(t, d) = tf_text / (1 - b + b·len_text/avg_text) + labelBoost · tf_label / (1 - b + b·len_label/avg_label)
+ *   score(q, d) = Σ_t idf(t) · tf'·(k1 + 1) / (tf' + k1),   idf(t) = ln(1 + (N - df + 0.5) / (df + 0.5))
+ *
+ * 문서 쪽 항(tf' 포화값)은 질의와 무관하므로 posting 마다 미리 계산해 두고,
+ * 검색은 질의 term 의 posting 만 훑으며 idf 를 곱해 더한다.
+ * 생성 후에는 불변이므로 여러 요청 스레드에서 동시에 읽어도 안전하다.
+ */
+public final class Bm25Index {
+
+    public record Params(double k1, double b, double labelBoost) {
+
+        public static final Params DEFAULT = new Params(1.2, 0.75, 2.0);
+    }
+
+    private final RagCorpus corpus;
+    private final TextAnalyzer analyzer;
+    private final Map<String, Integer> terms;
+    private final float[] idf;
+    private final int[] postingStarts;
+    private final int[] postingDocs;
+    private final float[] postingWeights;
+
+    private Bm25Index(RagCorpus corpus, TextAnalyzer analyzer, Map<String, Integer> terms, float[] idf,
+                      int[] postingStarts, int[] postingDocs, float[] postingWeights) {
+        this.corpus = corpus;
+        this.analyzer = analyzer;
+        this.terms = terms;
+        this.idf = idf;
+        this.postingStarts = postingStarts;
+        this.postingDocs = postingDocs;
+        this.postingWeights = postingWeights;
+    }
+
+    public static Bm25Index build(RagCorpus corpus, TextAnalyzer analyzer, Params params) {
+        final int n = corpus.size();
+        Map<String, Integer> terms = new HashMap<>(Math.max(16, n));
+        // label 은 종류가 적으므로 문자열별로 한 번만 분석
+        Map<String, int[]> labelTermCache = new HashMap<>();
+
+        // 1차: 문서별 (term, tf_text, tf_label) 목록과 필드 길이, df
+        int[] docStarts = new int[n + 1];
+        int[] entryTerms = new int[Math.max(16, n * 8)];
+        int[] entryTextTf = new int[entryTerms.length];
+        int[] entryLabelTf = new int[entryTerms.length];
+        int entries = 0;
+        int[] textLengths = new int[n];
+        int[] labelLengths = new int[n];
+        int[] df = new int[16];
+        long textTotal = 0;
+        long labelTotal = 0;
+
+        for (int d = 0; d < n; d++) {
+            int[] textTerms = termIds(analyzer.analyze(corpus.text(d)), terms);
+            int[] labelTerms = labelTermCache.computeIfAbsent(corpus.label(d), l -> termIds(analyzer.analyze(l), terms));
+            textLengths[d] = textTerms.length;
+            labelLengths[d] = labelTerms.length;
+            textTotal += textTerms.length;
+            labelTotal += labelTerms.length;
+
+            int[] sortedText = textTerms.clone();
+            int[] sortedLabel = labelTerms.clone();
+            Arrays.sort(sortedText);
+            Arrays.sort(sortedLabel);
+
+            // 두 정렬 배열을 병합하며 term 별 tf 를 센다
+            int ti = 0;
+            int li = 0;
+            while (ti < sortedText.length || li < sortedLabel.length) {
+                int term = Math.min(ti < sortedText.length ? sortedText[ti] : Integer.MAX_VALUE,
+                        li < sortedLabel.length ? sortedLabel[li] : Integer.MAX_VALUE);
+                int tfText = 0;
+                int tfLabel = 0;
+                while (ti < sortedText.length && sortedText[ti] == term) { tfText++; ti++; }
+                while (li < sortedLabel.length && sortedLabel[li] == term) { tfLabel++; li++; }
+
+                if (entries == entryTerms.length) {
+                    int cap = entries * 2;
+                    entryTerms = Arrays.copyOf(entryTerms, cap);
+                    entryTextTf = Arrays.copyOf(entryTextTf, cap);
+                    entryLabelTf = Arrays.copyOf(entryLabelTf, cap);
+                }
+                entryTerms[entries] = term;
+                entryTextTf[entries] = tfText;
+                entryLabelTf[entries] = tfLabel;
+                entries++;
+
+                if (term >= df.length) df = Arrays.copyOf(df, Math.max(df.length * 2, term + 1));
+                df[term]++;
+            }
+            docStarts[d + 1] = entries;
+        }
+
+        final int termCount = terms.size();
+        final double avgText = n == 0 ? 1.0 : Math.max(1.0, (double) textTotal / n);
+        final double avgLabel = n == 0 ? 1.0 : Math.max(1.0, (double) labelTotal / n);
+
+        float[] idf = new float[termCount];
+        for (int t = 0; t < termCount; t++) {
+            idf[t] = (float) Math.log(1.0 + (n - df[t] + 0.5) / (df[t] + 0.5));
+        }
+
+        // 2차: term 별 CSR posting 에 포화된 tf' 를 채운다 (doc 오름차순)
+        int[] starts = new int[termCount + 1];
+        for (int t = 0; t < termCount; t++) starts[t + 1] = Math.addExact(starts[t], df[t]);
+        int[] docs = new int[entries];
+        float[] weights = new float[entries];
+        int[] fill = Arrays.copyOf(starts, termCount);
+
+        final double k1 = params.k1();
+        final double b = params.b();
+        for (int d = 0; d < n; d++) {
+            double textNorm = 1.0 - b + b * textLengths[d] / avgText;
+            double labelNorm = 1.0 - b + b * labelLengths[d] / avgLabel;
+            for (int e = docStarts[d]; e < docStarts[d + 1]; e++) {
+                double tf = entryTextTf[e] / textNorm + params.labelBoost() * entryLabelTf[e] / labelNorm;
+                int p = fill[entryTerms[e]]++;
+                docs[p] = d;
+                weights[p] = (float) (tf * (k1 + 1.0) / (tf + k1));
+            }
+        }
+
+        return new Bm25Index(corpus, analyzer, terms, idf, starts, docs, weights);
+    }
+
+    public RagCorpus corpus() {
+        return corpus;
+    }
+
+    public int termCount() {
+        return terms.size();
+    }
+
+    /* 질의 term 이 하나도 색인에 없으면 빈 목록 */
+    public List<RagHit> search(String queryText, int k) {
+        final int n = corpus.size();
+        if (n == 0 || k <= 0) return List.of();
+
+        Scores scores = accumulate(queryText);
+        TopK top = new TopK(k);
+        for (int i = 0; i < scores.size(); i++) top.offer(scores.docs()[i], scores.values()[i]);
+
+        List<RagHit> out = new ArrayList<>(top.size());
+        for (int r = 0; r < top.size(); r++) out.add(corpus.hit(top.doc(r), top.score(r)));
+        return out;
+    }
+
+    /* 모든 문서의 BM25 점수를 매기는 scorer (질의 term 이 없는 문서는 0) */
+    public DocScorer scorer(String queryText) {
+        Scores scores = accumulate(queryText);
+        return scores::get;
+    }
+
+    /*
+     * 질의 term 들의 posting 을 doc 순서로 병합해, 닿은 문서만 (doc, score) 로 모은다.
+     * 질의마다 float[n] 을 잡지 않으므로 메모리가 posting 길이에만 비례한다.
+     * 한 문서 안에서는 term 오름차순으로 더하므로 합산 순서가 항상 같다.
+     */
+    private Scores accumulate(String queryText) {
+        // 질의 쪽 중복 term 은 한 번만 센다
+        int[] queryTerms = lookup(analyzer.analyze(queryText));
+        Arrays.sort(queryTerms);
+        int distinct = 0;
+        for (int i = 0; i < queryTerms.length; i++) {
+            int term = queryTerms[i];
+            if (term < 0 || (distinct > 0 && term == queryTerms[distinct - 1])) continue;
+            queryTerms[distinct++] = term;
+        }
+
+        int[] cursors = new int[distinct];
+        for (int i = 0; i < distinct; i++) cursors[i] = postingStarts[queryTerms[i]];
+        int capacity = Math.min(corpus.size(), postingVolume(queryTerms, distinct));
+        int[] docs = new int[capacity];
+        float[] values = new float[capacity];
+        int size = 0;
+        while (true) {
+            int doc = Integer.MAX_VALUE;
+            for (int i = 0; i < distinct; i++) {
+                if (cursors[i] < postingStarts[queryTerms[i] + 1]) doc = Math.min(doc, postingDocs[cursors[i]]);
+            }
+            if (doc == Integer.MAX_VALUE) break;
+
+            float score = 0f;
+            for (int i = 0; i < distinct; i++) {
+                int p = cursors[i];
+                if (p < postingStarts[queryTerms[i] + 1] && postingDocs[p] == doc) {
+                    score += idf[queryTerms[i]] * postingWeights[p];
+                    cursors[i] = p + 1;
+                }
+            }
+            docs[size] = doc;
+            values[size++] = score;
+        }
+        return new Scores(docs, values, size);
+    }
+
+    /* doc 오름차순으로 정렬된 희소 점수 */
+    private record Scores(int[] docs, float[] values, int size) {
+
+        double get(int doc) {
+            int i = Arrays.binarySearch(docs, 0, size, doc);
+            return i >= 0 ? values[i] : 0.0;
+        }
+    }
+
+    private int postingVolume(int[] queryTerms, int count) {
+        long volume = 0;
+        for (int i = 0; i < count; i++) volume += postingStarts[queryTerms[i] + 1] - postingStarts[queryTerms[i]];
+        return (int) Math.min(volume, Integer.MAX_VALUE);
+    }
+
+    // 조회만 한다 (색인에 없는 term 은 -1)
+    private int[] lookup(List<String> tokens) {
+        int[] out = new int[tokens.size()];
+        for (int i = 0; i < out.length; i++) {
+            Integer id = terms.get(tokens.get(i));
+            out[i] = id == null ? -1 : id;
+        }
+        return out;
+    }
+
+    // 색인 시: 처음 보는 term 에 다음 id 를 부여
+    private static int[] termIds(List<String> tokens, Map<String, Integer> dictionary) {
+        int[] out = new int[tokens.size()];
+        for (int i = 0; i < out.length; i++) {
+            Integer id = dictionary.get(tokens.get(i));
+            if (id == null) {
+                id = dictionary.size();
+                dictionary.put(tokens.get(i), id);
+            }
+            out[i] = id;
+        }
+        return out;
+    }
+}
@@ -0,0 +1,56 @@
+package com.khi.ragservice.search;
+
+import com.khi.ragservice.common.exception.type.IndexNotReadyException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * rag.retrieval.engine=bm25 일 때의 sparse 검색.
+ * 질의 term 이 색인에 하나도 없으면 trigram 인덱스 결과로 대신한다 (항상 K 개를 채우던 기존 동작 유지).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class Bm25Retriever implements RagRetriever {
+
+    private final RagIndexManager indexManager;
+
+    @Override
+    public boolean isReady() {
+        RagIndexSnapshot current = indexManager.current();
+        return current != null && current.bm25() != null;
+    }
+
+    @Override
+    public List<RagHit> retrieve(String queryText, int k) {
+        return retrieve(snapshot(), queryText, k);
+    }
+
+    // 배치 전체가 같은 스냅샷을 보도록 한 번만 읽는다
+    @Override
+    public List<List<RagHit>> retrieveBatch(List<String> queryTexts, int k) {
+        RagIndexSnapshot current = snapshot();
+
+        List<List<RagHit>> out = new ArrayList<>(queryTexts.size());
+        for (String q : queryTexts) out.add(retrieve(current, q, k));
+        return out;
+    }
+
+    private static List<RagHit> retrieve(RagIndexSnapshot current, String queryText, int k) {
+        List<RagHit> hits = current.bm25().search(queryText, k);
+        if (!hits.isEmpty()) return hits;
+
+        log.info("[RAG] no bm25 terms matched → fallback to trigram similarity");
+        return current.trigram().search(queryText, k);
+    }
+
+    private RagIndexSnapshot snapshot() {
+        RagIndexSnapshot current = indexManager.current();
+        if (current == null || current.bm25() == null) throw new IndexNotReadyException("bm25 index is not ready");
+        return current;
+    }
+}
@@ -0,0 +1,57 @@
+package com.khi.ragservice.search;
+
+import com.khi.ragservice.common.exception.type.IndexNotReadyException;
+import com.khi.ragservice.embedding.EmbeddingClient;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+public class DenseRetriever implements RagRetriever {
+
+    private final RagIndexManager indexManager;
+    private final ObjectProvider<EmbeddingClient> embeddingClient;
+
+    @Override
+    public boolean isReady() {
+        RagIndexSnapshot current = indexManager.current();
+        return current != null && current.vector() != null && embeddingClient.getIfAvailable() != null;
+    }
+
+    @Override
+    public List<RagHit> retrieve(String queryText, int k) {
+        EmbeddingClient client = client();
+        VectorIndex index = vectorIndex();
+        return index.search(client.embedQuery(queryText), k);
+    }
+
+    // 질의 임베딩은 /embed-batch 한 번으로 처리
+    @Override
+    public List<List<RagHit>> retrieveBatch(List<String> queryTexts, int k) {
+        if (queryTexts.isEmpty()) return List.of();
+
+        EmbeddingClient client = client();
+        VectorIndex index = vectorIndex();
+
+        List<float[]> vectors = client.embedQueries(queryTexts);
+        List<List<RagHit>> out = new ArrayList<>(vectors.size());
+        for (float[] v : vectors) out.add(index.search(v, k));
+        return out;
+    }
+
+    private EmbeddingClient client() {
+        EmbeddingClient client = embeddingClient.getIfAvailable();
+        if (client == null) throw new IndexNotReadyException("dense retrieval is disabled (rag.embedding.enabled=false)");
+        return client;
+    }
+
+    private VectorIndex vectorIndex() {
+        RagIndexSnapshot current = indexManager.current();
+        if (current == null || current.vector() == null) throw new IndexNotReadyException("vector index is not ready");
+        return current.vector();
+    }
+}
@@ -0,0 +1,8 @@
+package com.khi.ragservice.search;
+
+/* 한 질의에 대한 문서(ordinal)별 점수. 점수를 매길 수 없는 문서(벡터 없음)는 NaN */
+@FunctionalInterface
+public interface DocScorer {
+
+    double score(int doc);
+}
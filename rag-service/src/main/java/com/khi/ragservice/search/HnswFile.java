@@ -0,0 +1,139 @@
+package com.khi.ragservice.search;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/*
+ * HnswIndex 그래프의 바이너리 파일 포맷 (big-endian). 벡터는 스냅샷 파일 / DB 에 있으므로 그래프만 저장한다.
+ *
+ *   header : magic, version, n, m, efConstruction, entryPoint, layerCount, fingerprint(64 byte)
+ *   layer  : size, maxDegree, docOf[size], counts[size], links[size * maxDegree]
+ *
+ * 읽을 때는 배열마다 따로 mmap 해서 힙 배열로 한 번에 복사한다.
+ */
+public final class HnswFile {
+
+    private static final int MAGIC = 0x484E5357; // "HNSW"
+    private static final int VERSION = 1;
+    private static final int FINGERPRINT_BYTES = 64;
+    private static final int HEADER_BYTES = 7 * Integer.BYTES + FINGERPRINT_BYTES;
+
+    private HnswFile() {
+    }
+
+    public static void write(Path path, String fingerprint, HnswIndex index) throws IOException {
+        HnswIndex.Layer[] layers = index.layers();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 20))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(index.vectors().size());
+            out.writeInt(index.params().m());
+            out.writeInt(index.params().efConstruction());
+            out.writeInt(index.entryPoint());
+            out.writeInt(layers.length);
+            out.write(fixedFingerprint(fingerprint));
+
+            for (HnswIndex.Layer layer : layers) {
+                out.writeInt(layer.size);
+                out.writeInt(layer.maxDegree);
+                for (int s = 0; s < layer.size; s++) out.writeInt(layer.docOf[s]);
+                for (int s = 0; s < layer.size; s++) out.writeInt(layer.counts[s]);
+                for (int p = 0, end = layer.size * layer.maxDegree; p < end; p++) out.writeInt(layer.links[p]);
+            }
+        }
+    }
+
+    /*
+     * fingerprint / 문서 수 / m / efConstruction 이 다르거나 포맷이 맞지 않으면 IOException.
+     * 저장 이후 벡터가 생긴 문서가 있으면 이어서 삽입한다.
+     */
+    public static HnswIndex read(Path path, String fingerprint, VectorIndex vectors, HnswIndex.Params params)
+            throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining()) {
+                if (ch.read(header, header.position()) < 0) throw new IOException("truncated hnsw header");
+            }
+            header.flip();
+
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("not a hnsw graph (or unsupported version)");
+            }
+            final int n = header.getInt();
+            final int m = header.getInt();
+            final int efConstruction = header.getInt();
+            final int entryPoint = header.getInt();
+            final int layerCount = header.getInt();
+            byte[] fp = new byte[FINGERPRINT_BYTES];
+            header.get(fp);
+            if (!Arrays.equals(fp, fixedFingerprint(fingerprint))) throw new IOException("hnsw fingerprint mismatch");
+            if (n != vectors.size()) throw new IOException("hnsw graph has " + n + " docs, index has " + vectors.size());
+            if (m != params.m() || efConstruction != params.efConstruction()) {
+                throw new IOException("hnsw params changed (m=" + m + ", efConstruction=" + efConstruction + ")");
+            }
+            if (layerCount < 1 || layerCount > 64 || entryPoint < -1 || entryPoint >= n) {
+                throw new IOException("corrupt hnsw header");
+            }
+
+            long position = HEADER_BYTES;
+            HnswIndex.Layer[] layers = new HnswIndex.Layer[layerCount];
+            for (int l = 0; l < layerCount; l++) {
+                int[] dims = ints(ch, position, 2);
+                position += 2L * Integer.BYTES;
+                final int size = dims[0];
+                final int maxDegree = dims[1];
+                if (size < 0 || size > n || maxDegree < 1) throw new IOException("corrupt hnsw layer " + l);
+
+                int[] docOf = ints(ch, position, size);
+                position += (long) size * Integer.BYTES;
+                int[] counts = ints(ch, position, size);
+                position += (long) size * Integer.BYTES;
+                int[] links = ints(ch, position, Math.multiplyExact(size, maxDegree));
+                position += (long) size * maxDegree * Integer.BYTES;
+
+                HnswIndex.Layer layer = new HnswIndex.Layer(n, maxDegree, Math.max(16, size));
+                for (int s = 0; s < size; s++) {
+                    int d = docOf[s];
+                    if (d < 0 || d >= n || layer.slotOf[d] >= 0) throw new IOException("corrupt hnsw layer " + l);
+                    layer.add(d);
+                }
+                System.arraycopy(counts, 0, layer.counts, 0, size);
+                System.arraycopy(links, 0, layer.links, 0, links.length);
+                layers[l] = layer;
+            }
+            if (position != ch.size()) throw new IOException("trailing bytes in hnsw graph");
+
+            HnswIndex index = new HnswIndex(vectors, params);
+            index.restore(layers, entryPoint);
+            index.insertMissing();
+            return index;
+        } catch (IndexOutOfBoundsException | BufferUnderflowException | IllegalArgumentException
+                 | ArithmeticException e) {
+            throw new IOException("corrupt hnsw graph: " + e, e);
+        }
+    }
+
+    private static int[] ints(FileChannel ch, long position, int count) throws IOException {
+        int[] out = new int[count];
+        if (count == 0) return out;
+        if (position + (long) count * Integer.BYTES > ch.size()) throw new IOException("truncated hnsw graph");
+        ch.map(FileChannel.MapMode.READ_ONLY, position, (long) count * Integer.BYTES).asIntBuffer().get(out);
+        return out;
+    }
+
+    private static byte[] fixedFingerprint(String fingerprint) {
+        byte[] out = new byte[FINGERPRINT_BYTES];
+        byte[] raw = fingerprint.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(raw, 0, out, 0, Math.min(raw.length, FINGERPRINT_BYTES));
+        return out;
+    }
+}
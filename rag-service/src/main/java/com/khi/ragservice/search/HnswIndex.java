@@ -0,0 +1,562 @@
+package com.khi.ragservice.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/*
+ * VectorIndex 위의 HNSW 근사 최근접 탐색 그래프 (내적 = cosine 유사도 기준).
+ * 노드는 RagCorpus ordinal 이고 벡터는 복사하지 않고 VectorIndex 의 matrix 를 그대로 읽는다.
+ * - 층 l 의 최대 이웃 수는 M (0층만 2M), 노드의 최상위 층은 floor(-ln(U) / ln(M))
+ * - 이웃은 논문의 heuristic 으로 고른다 (후보가 이미 고른 이웃들보다 기준 노드에 더 가까울 때만 채택)
+ * - refresh 는 이전 그래프를 새 코퍼스 ordinal 로 옮기면서 지워지거나 벡터가 바뀐 노드만 끊고 새 노드를 삽입한다
+ * 층 난수는 고정 seed 라 같은 벡터로 만들면 같은 그래프가 나온다.
+ * build/refresh 가 끝난 뒤에는 읽기 전용이므로 여러 요청 스레드에서 동시에 search 해도 된다.
+ */
+public final class HnswIndex {
+
+    /* m / efConstruction 은 그래프 모양을 정하고, efSearch 는 검색 시에만 쓰인다 */
+    public record Params(int m, int efConstruction, int efSearch) {
+
+        public static final Params DEFAULT = new Params(16, 200, 64);
+
+        public Params {
+            if (m < 2 || efConstruction < 1 || efSearch < 1) {
+                throw new IllegalArgumentException("invalid hnsw params: m=" + m + " efConstruction=" + efConstruction
+                        + " efSearch=" + efSearch);
+            }
+        }
+
+        boolean sameGraph(Params other) {
+            return m == other.m && efConstruction == other.efConstruction;
+        }
+    }
+
+    private static final long SEED = 42L;
+    private static final int MAX_LEVEL = 16;
+
+    private final VectorIndex vectors;
+    private final Params params;
+    private final double levelMult;
+    private final int[] levels;
+    private Layer[] layers;
+    private int entryPoint = -1;
+    private int nodeCount;
+
+    HnswIndex(VectorIndex vectors, Params params) {
+        this.vectors = vectors;
+        this.params = params;
+        this.levelMult = 1.0 / Math.log(params.m());
+        this.levels = new int[vectors.size()];
+        Arrays.fill(levels, -1);
+        this.layers = new Layer[]{new Layer(vectors.size(), params.m() * 2, Math.max(16, vectors.vectorCount()))};
+    }
+
+    public static HnswIndex build(VectorIndex vectors, Params params) {
+        HnswIndex index = new HnswIndex(vectors, params);
+        index.insertMissing();
+        return index;
+    }
+
+    /*
+     * previous 그래프를 vectors(새 코퍼스) 로 옮긴다.
+     * reused[doc] 이 true 인 (이전 인덱스에서 벡터를 그대로 복사한) 노드는 이웃 연결을 유지하고,
+     * 지워지거나 벡터가 바뀐 노드는 그래프에서 빼면서 그 노드를 가리키던 이웃들을 서로 다시 잇는다.
+     * 나머지 (새로 생기거나 바뀐) 벡터만 삽입한다.
+     */
+    public static HnswIndex refresh(HnswIndex previous, VectorIndex vectors, boolean[] reused, Params params) {
+        if (!previous.params.sameGraph(params) || previous.vectors.dim() != vectors.dim()) return build(vectors, params);
+
+        RagCorpus oldCorpus = previous.vectors.corpus();
+        RagCorpus corpus = vectors.corpus();
+        int[] remap = new int[oldCorpus.size()];
+        for (int o = 0; o < remap.length; o++) {
+            remap[o] = -1;
+            if (previous.levels[o] < 0) continue;
+            int d = corpus.ordinalOf(oldCorpus.id(o));
+            if (d >= 0 && reused[d]) remap[o] = d;
+        }
+
+        HnswIndex index = new HnswIndex(vectors, params);
+        Layer[] oldLayers = previous.layers;
+        for (int l = 0; l < oldLayers.length; l++) {
+            if (l > 0) index.layers = Arrays.copyOf(index.layers, l + 1);
+            Layer old = oldLayers[l];
+            Layer layer = l == 0 ? index.layers[0] : new Layer(vectors.size(), params.m(), Math.max(16, old.size));
+            index.layers[l] = layer;
+            for (int s = 0; s < old.size; s++) {
+                int d = remap[old.docOf[s]];
+                if (d < 0) continue;
+                layer.add(d);
+                index.levels[d] = l;
+            }
+        }
+        for (int l = 0; l < oldLayers.length; l++) index.copyLinks(oldLayers[l], index.layers[l], remap);
+
+        int entry = previous.entryPoint >= 0 ? remap[previous.entryPoint] : -1;
+        if (entry < 0) {
+            for (int d = 0; d < index.levels.length; d++) {
+                if (index.levels[d] >= 0 && (entry < 0 || index.levels[d] > index.levels[entry])) entry = d;
+            }
+        }
+        index.entryPoint = entry;
+        index.nodeCount = index.layers[0].size;
+        if (entry >= 0) index.layers = Arrays.copyOf(index.layers, index.levels[entry] + 1);
+
+        index.insertMissing();
+        return index;
+    }
+
+    public Params params() {
+        return params;
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    public int levelCount() {
+        return entryPoint < 0 ? 0 : levels[entryPoint] + 1;
+    }
+
+    public List<RagHit> search(float[] query, int k) {
+        if (k <= 0 || entryPoint < 0) return List.of();
+
+        int ep = entryPoint;
+        for (int l = levels[ep]; l > 0; l--) ep = greedy(query, ep, l);
+
+        Candidates found = searchLayer(query, ep, Math.max(params.efSearch(), k), 0,
+                new Visited(Math.max(params.efSearch(), k) * params.m()));
+        TopK top = new TopK(k);
+        for (int i = 0; i < found.size; i++) top.offer(found.docs[i], found.sims[i]);
+
+        RagCorpus corpus = vectors.corpus();
+        List<RagHit> out = new ArrayList<>(top.size());
+        for (int r = 0; r < top.size(); r++) out.add(corpus.hit(top.doc(r), top.score(r)));
+        return out;
+    }
+
+    /* 벡터는 있는데 그래프에 없는 문서를 ordinal 순서로 삽입. 삽입한 개수를 반환 */
+    int insertMissing() {
+        SplittableRandom rnd = new SplittableRandom(SEED + nodeCount);
+        float[] q = new float[vectors.dim()];
+        Visited visited = new Visited(params.efConstruction() * params.m());
+        int inserted = 0;
+        for (int d = 0; d < levels.length; d++) {
+            if (levels[d] >= 0 || !vectors.hasVector(d)) continue;
+            insert(d, randomLevel(rnd), q, visited);
+            inserted++;
+        }
+        return inserted;
+    }
+
+    private void insert(int doc, int level, float[] q, Visited visited) {
+        ensureLayers(level);
+        levels[doc] = level;
+        for (int l = 0; l <= level; l++) layers[l].add(doc);
+        nodeCount++;
+        if (entryPoint < 0) {
+            entryPoint = doc;
+            return;
+        }
+
+        vectors.copyRow(doc, q);
+        final int top = levels[entryPoint];
+        int ep = entryPoint;
+        for (int l = top; l > level; l--) ep = greedy(q, ep, l);
+
+        int[] selected = new int[params.m()];
+        for (int l = Math.min(level, top); l >= 0; l--) {
+            visited.clear();
+            Candidates found = searchLayer(q, ep, params.efConstruction(), l, visited);
+            int count = selectNeighbors(found.docs, found.sims, found.size, params.m(), selected);
+
+            Layer layer = layers[l];
+            int base = layer.slotOf[doc] * layer.maxDegree;
+            System.arraycopy(selected, 0, layer.links, base, count);
+            layer.counts[layer.slotOf[doc]] = count;
+            for (int i = 0; i < count; i++) link(selected[i], doc, l);
+
+            ep = found.docs[0];
+        }
+        if (level > top) entryPoint = doc;
+    }
+
+    // 가득 찬 이웃 목록에 추가할 때는 기존 이웃 + to 중에서 heuristic 으로 다시 고른다
+    private void link(int from, int to, int level) {
+        Layer layer = layers[level];
+        int slot = layer.slotOf[from];
+        int base = slot * layer.maxDegree;
+        int count = layer.counts[slot];
+        if (count < layer.maxDegree) {
+            layer.links[base + count] = to;
+            layer.counts[slot] = count + 1;
+            return;
+        }
+
+        int[] candidates = new int[count + 1];
+        System.arraycopy(layer.links, base, candidates, 0, count);
+        candidates[count] = to;
+        relink(layer, from, candidates, count + 1);
+    }
+
+    // candidates 를 from 과의 유사도 내림차순으로 정렬해 maxDegree 개를 다시 고른다
+    private void relink(Layer layer, int from, int[] candidates, int count) {
+        float[] sims = new float[count];
+        for (int i = 0; i < count; i++) sims[i] = vectors.similarity(from, candidates[i]);
+        sortDescending(candidates, sims, count);
+
+        int slot = layer.slotOf[from];
+        int[] selected = new int[layer.maxDegree];
+        int kept = selectNeighbors(candidates, sims, count, layer.maxDegree, selected);
+        System.arraycopy(selected, 0, layer.links, slot * layer.maxDegree, kept);
+        layer.counts[slot] = kept;
+    }
+
+    /*
+     * candidates 는 기준 노드와의 유사도 내림차순.
+     * 후보가 이미 고른 이웃 중 어느 것보다도 기준 노드에 더 가까우면 채택하고 (서로 다른 방향의 이웃 유지),
+     * max 개가 안 되면 버린 후보로 나머지를 채운다.
+     */
+    private int selectNeighbors(int[] candidates, float[] sims, int count, int max, int[] out) {
+        int selected = 0;
+        int[] pruned = new int[count];
+        int prunedCount = 0;
+        for (int i = 0; i < count && selected < max; i++) {
+            int c = candidates[i];
+            boolean diverse = true;
+            for (int j = 0; j < selected; j++) {
+                if (vectors.similarity(c, out[j]) > sims[i]) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) out[selected++] = c;
+            else pruned[prunedCount++] = c;
+        }
+        for (int i = 0; i < prunedCount && selected < max; i++) out[selected++] = pruned[i];
+        return selected;
+    }
+
+    // 이전 층의 이웃 목록을 remap 해서 옮긴다. 빠진 이웃이 있으면 그 이웃의 이웃까지 후보로 모아 다시 고른다
+    private void copyLinks(Layer old, Layer layer, int[] remap) {
+        int[] candidates = new int[old.maxDegree * (old.maxDegree + 1)];
+        for (int s = 0; s < old.size; s++) {
+            int from = remap[old.docOf[s]];
+            if (from < 0) continue;
+
+            int count = 0;
+            boolean lost = false;
+            int base = s * old.maxDegree;
+            for (int i = 0; i < old.counts[s]; i++) {
+                int nb = remap[old.links[base + i]];
+                if (nb >= 0) candidates[count++] = nb;
+                else lost = true;
+            }
+            if (lost) {
+                for (int i = 0; i < old.counts[s]; i++) {
+                    int removed = old.links[base + i];
+                    if (remap[removed] >= 0) continue;
+                    int rBase = old.slotOf[removed] * old.maxDegree;
+                    for (int j = 0; j < old.counts[old.slotOf[removed]]; j++) {
+                        int nb = remap[old.links[rBase + j]];
+                        if (nb >= 0 && nb != from && !contains(candidates, count, nb)) candidates[count++] = nb;
+                    }
+                }
+            }
+
+            int slot = layer.slotOf[from];
+            if (count <= layer.maxDegree) {
+                System.arraycopy(candidates, 0, layer.links, slot * layer.maxDegree, count);
+                layer.counts[slot] = count;
+            } else {
+                relink(layer, from, Arrays.copyOf(candidates, count), count);
+            }
+        }
+    }
+
+    // 층 level 에서 이웃 중 더 가까운 노드로 옮겨 가다 더 이상 나아지지 않으면 멈춘다 (ef = 1)
+    private int greedy(float[] q, int ep, int level) {
+        Layer layer = layers[level];
+        int current = ep;
+        float best = vectors.similarity(q, current);
+        boolean moved = true;
+        while (moved) {
+            moved = false;
+            int slot = layer.slotOf[current];
+            int base = slot * layer.maxDegree;
+            for (int i = 0, count = layer.counts[slot]; i < count; i++) {
+                int nb = layer.links[base + i];
+                float s = vectors.similarity(q, nb);
+                if (s > best) {
+                    best = s;
+                    current = nb;
+                    moved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /* ep 에서 시작하는 best-first 탐색. 가장 가까운 ef 개를 유사도 내림차순으로 반환 */
+    private Candidates searchLayer(float[] q, int ep, int ef, int level, Visited visited) {
+        Layer layer = layers[level];
+        MinHeap frontier = new MinHeap(ef * 2);   // -유사도 (가장 가까운 후보가 top)
+        MinHeap results = new MinHeap(ef + 1);    // 유사도 (가장 먼 결과가 top)
+
+        float epSim = vectors.similarity(q, ep);
+        visited.add(ep);
+        frontier.push(ep, -epSim);
+        results.push(ep, epSim);
+
+        while (frontier.size > 0) {
+            float closest = -frontier.topKey();
+            if (results.size >= ef && closest < results.topKey()) break;
+            int current = frontier.pop();
+
+            int slot = layer.slotOf[current];
+            int base = slot * layer.maxDegree;
+            for (int i = 0, count = layer.counts[slot]; i < count; i++) {
+                int nb = layer.links[base + i];
+                if (!visited.add(nb)) continue;
+                float s = vectors.similarity(q, nb);
+                if (results.size < ef || s > results.topKey()) {
+                    frontier.push(nb, -s);
+                    results.push(nb, s);
+                    if (results.size > ef) results.pop();
+                }
+            }
+        }
+
+        Candidates out = new Candidates(results.size);
+        for (int i = results.size - 1; i >= 0; i--) {
+            out.sims[i] = results.topKey();
+            out.docs[i] = results.pop();
+        }
+        return out;
+    }
+
+    private int randomLevel(SplittableRandom rnd) {
+        return (int) Math.min(MAX_LEVEL, -Math.log(1.0 - rnd.nextDouble()) * levelMult);
+    }
+
+    private void ensureLayers(int level) {
+        if (level < layers.length) return;
+        int from = layers.length;
+        layers = Arrays.copyOf(layers, level + 1);
+        for (int l = from; l <= level; l++) layers[l] = new Layer(levels.length, params.m(), 16);
+    }
+
+    // ---- HnswFile 용 ----
+
+    VectorIndex vectors() {
+        return vectors;
+    }
+
+    int entryPoint() {
+        return entryPoint;
+    }
+
+    Layer[] layers() {
+        return layers;
+    }
+
+    /* 파일에서 읽은 층들로 그래프를 복원. 층 구성이 맞지 않으면 IllegalArgumentException */
+    void restore(Layer[] restored, int entry) {
+        if (restored.length == 0 || restored[0].maxDegree != params.m() * 2) {
+            throw new IllegalArgumentException("unexpected hnsw layer layout");
+        }
+        for (int l = 0; l < restored.length; l++) {
+            Layer layer = restored[l];
+            if (l > 0 && layer.maxDegree != params.m()) throw new IllegalArgumentException("unexpected hnsw degree");
+            for (int s = 0; s < layer.size; s++) {
+                int d = layer.docOf[s];
+                if (!vectors.hasVector(d) || levels[d] != l - 1) throw new IllegalArgumentException("corrupt hnsw layer " + l);
+                levels[d] = l;
+                if (layer.counts[s] > layer.maxDegree) throw new IllegalArgumentException("corrupt hnsw degree");
+            }
+        }
+        for (int l = 0; l < restored.length; l++) {
+            Layer layer = restored[l];
+            for (int s = 0; s < layer.size; s++) {
+                for (int i = 0, base = s * layer.maxDegree; i < layer.counts[s]; i++) {
+                    int nb = layer.links[base + i];
+                    if (nb < 0 || nb >= levels.length || levels[nb] < l) throw new IllegalArgumentException("corrupt hnsw link");
+                }
+            }
+        }
+        if (entry < 0 ? restored[0].size != 0 : levels[entry] != restored.length - 1) {
+            throw new IllegalArgumentException("corrupt hnsw entry point");
+        }
+        this.layers = restored;
+        this.entryPoint = entry;
+        this.nodeCount = restored[0].size;
+    }
+
+    private static boolean contains(int[] values, int count, int v) {
+        for (int i = 0; i < count; i++) if (values[i] == v) return true;
+        return false;
+    }
+
+    // 이웃 후보는 수십 개라 삽입 정렬로 충분
+    private static void sortDescending(int[] docs, float[] sims, int count) {
+        for (int i = 1; i < count; i++) {
+            int d = docs[i];
+            float s = sims[i];
+            int j = i - 1;
+            while (j >= 0 && sims[j] < s) {
+                docs[j + 1] = docs[j];
+                sims[j + 1] = sims[j];
+                j--;
+            }
+            docs[j + 1] = d;
+            sims[j + 1] = s;
+        }
+    }
+
+    /* 한 층의 인접 리스트. slot 은 층에 들어온 순서이고 links 에는 이웃의 doc 을 그대로 둔다 */
+    static final class Layer {
+
+        final int maxDegree;
+        final int[] slotOf;
+        int[] docOf;
+        int[] counts;
+        int[] links;
+        int size;
+
+        Layer(int n, int maxDegree, int capacity) {
+            this.maxDegree = maxDegree;
+            this.slotOf = new int[n];
+            Arrays.fill(slotOf, -1);
+            this.docOf = new int[capacity];
+            this.counts = new int[capacity];
+            this.links = new int[Math.multiplyExact(capacity, maxDegree)];
+        }
+
+        int add(int doc) {
+            if (size == docOf.length) {
+                int cap = size * 2;
+                docOf = Arrays.copyOf(docOf, cap);
+                counts = Arrays.copyOf(counts, cap);
+                links = Arrays.copyOf(links, Math.multiplyExact(cap, maxDegree));
+            }
+            slotOf[doc] = size;
+            docOf[size] = doc;
+            return size++;
+        }
+    }
+
+    private static final class Candidates {
+
+        final int[] docs;
+        final float[] sims;
+        final int size;
+
+        Candidates(int size) {
+            this.docs = new int[size];
+            this.sims = new float[size];
+            this.size = size;
+        }
+    }
+
+    /* (doc, key) 쌍의 primitive 이진 최소 힙 */
+    private static final class MinHeap {
+
+        private int[] docs;
+        private float[] keys;
+        private int size;
+
+        MinHeap(int capacity) {
+            this.docs = new int[Math.max(capacity, 4)];
+            this.keys = new float[docs.length];
+        }
+
+        void push(int doc, float key) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) break;
+                docs[i] = docs[parent];
+                keys[i] = keys[parent];
+                i = parent;
+            }
+            docs[i] = doc;
+            keys[i] = key;
+        }
+
+        float topKey() {
+            return keys[0];
+        }
+
+        int pop() {
+            int top = docs[0];
+            int lastDoc = docs[--size];
+            float lastKey = keys[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && keys[child + 1] < keys[child]) child++;
+                if (keys[child] >= lastKey) break;
+                docs[i] = docs[child];
+                keys[i] = keys[child];
+                i = child;
+            }
+            docs[i] = lastDoc;
+            keys[i] = lastKey;
+            return top;
+        }
+    }
+
+    /* 방문한 doc 집합 (open addressing). 탐색 한 번에 보는 노드는 ef·M 규모라 코퍼스 크기 배열보다 싸다 */
+    private static final class Visited {
+
+        private int[] table;
+        private int size;
+
+        Visited(int expected) {
+            this.table = new int[Integer.highestOneBit(Math.max(expected, 16) * 2 - 1) << 1];
+        }
+
+        /* 처음 본 doc 이면 true */
+        boolean add(int doc) {
+            int key = doc + 1;
+            int mask = table.length - 1;
+            int i = mix(key) & mask;
+            while (table[i] != 0) {
+                if (table[i] == key) return false;
+                i = (i + 1) & mask;
+            }
+            table[i] = key;
+            if (++size * 2 > table.length) grow();
+            return true;
+        }
+
+        void clear() {
+            Arrays.fill(table, 0);
+            size = 0;
+        }
+
+        private void grow() {
+            int[] old = table;
+            table = new int[old.length * 2];
+            int mask = table.length - 1;
+            for (int key : old) {
+                if (key == 0) continue;
+                int i = mix(key) & mask;
+                while (table[i] != 0) i = (i + 1) & mask;
+                table[i] = key;
+            }
+        }
+
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
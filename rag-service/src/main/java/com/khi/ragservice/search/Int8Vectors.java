@@ -0,0 +1,99 @@
+package com.khi.ragservice.search;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/*
+ * 임베딩의 int8 스칼라 양자화 사본. 행마다 대칭 scale 을 둔다: scale = max|v| / 127, code = round(v / scale).
+ * 코드는 행 경계로 나눈 여러 개의 direct ByteBuffer (세그먼트당 최대 1GB) 에 이어서 저장하므로
+ * 행 수 × dim 이 2GB 를 넘어도 된다. 384 차원이면 행당 코드 384 byte + scale 4 byte 로 float32 의 약 1/4.
+ * 점수는 float 질의 × int8 코드의 비대칭 내적에 scale 을 곱한 값이라 질의 쪽 양자화 오차는 없다.
+ * 생성 후 불변이고 절대 위치 get 만 쓰므로 여러 스레드에서 같이 읽어도 된다.
+ * (Java 21 의 FFM MemorySegment 는 preview 라 direct ByteBuffer 세그먼트로 대신한다)
+ */
+public final class Int8Vectors {
+
+    private static final long SEGMENT_BYTES = 1L << 30;
+
+    private final RagCorpus corpus;
+    private final int dim;
+    private final int rowsPerSegment;
+    private final ByteBuffer[] segments;
+    private final float[] scales;
+
+    private Int8Vectors(RagCorpus corpus, int dim, int rowsPerSegment, ByteBuffer[] segments, float[] scales) {
+        this.corpus = corpus;
+        this.dim = dim;
+        this.rowsPerSegment = rowsPerSegment;
+        this.segments = segments;
+        this.scales = scales;
+    }
+
+    /* 벡터가 없는 행은 scale 이 NaN 이고 검색에서 빠진다 */
+    public static Int8Vectors quantize(VectorIndex vectors) {
+        final int n = vectors.size();
+        final int dim = vectors.dim();
+        final int rowsPerSegment = (int) Math.max(1, Math.min(n, SEGMENT_BYTES / dim));
+        ByteBuffer[] segments = new ByteBuffer[(n + rowsPerSegment - 1) / rowsPerSegment];
+        for (int s = 0; s < segments.length; s++) {
+            int rows = Math.min(rowsPerSegment, n - s * rowsPerSegment);
+            segments[s] = ByteBuffer.allocateDirect(rows * dim).order(ByteOrder.nativeOrder());
+        }
+
+        float[] scales = new float[n];
+        float[] row = new float[dim];
+        byte[] codes = new byte[dim];
+        for (int d = 0; d < n; d++) {
+            if (!vectors.hasVector(d)) {
+                scales[d] = Float.NaN;
+                continue;
+            }
+            vectors.copyRow(d, row);
+            float max = 0f;
+            for (float v : row) max = Math.max(max, Math.abs(v));
+            float scale = max == 0f ? 1f : max / 127f;
+            for (int i = 0; i < dim; i++) codes[i] = (byte) Math.round(row[i] / scale);
+            scales[d] = scale;
+            segments[d / rowsPerSegment].put((d % rowsPerSegment) * dim, codes);
+        }
+        return new Int8Vectors(vectors.corpus(), dim, rowsPerSegment, segments, scales);
+    }
+
+    public int dim() {
+        return dim;
+    }
+
+    /* 코드 + scale 의 off-heap/heap 합계 byte */
+    public long bytes() {
+        long total = (long) scales.length * Float.BYTES;
+        for (ByteBuffer s : segments) total += s.capacity();
+        return total;
+    }
+
+    /* 근사 점수 상위 k 개 (doc, 근사 점수) */
+    TopK top(float[] query, int k) {
+        TopK top = new TopK(k);
+        final int n = corpus.size();
+        for (int d = 0; d < n; d++) {
+            if (Float.isNaN(scales[d])) continue;
+            top.offer(d, score(query, d));
+        }
+        return top;
+    }
+
+    float score(float[] q, int doc) {
+        final ByteBuffer seg = segments[doc / rowsPerSegment];
+        final int offset = (doc % rowsPerSegment) * dim;
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        final int upper = dim & ~3;
+        for (; i < upper; i += 4) {
+            s0 += q[i] * seg.get(offset + i);
+            s1 += q[i + 1] * seg.get(offset + i + 1);
+            s2 += q[i + 2] * seg.get(offset + i + 2);
+            s3 += q[i + 3] * seg.get(offset + i + 3);
+        }
+        for (; i < dim; i++) s0 += q[i] * seg.get(offset + i);
+        return ((s0 + s1) + (s2 + s3)) * scales[doc];
+    }
+}
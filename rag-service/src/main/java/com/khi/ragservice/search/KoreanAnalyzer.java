@@ -0,0 +1,79 @@
+package com.khi.ragservice.search;
+
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/*
+ * 한국어 문장용 분석기 (BM25 색인/질의 공용).
+ * - NFKC 정규화 + 소문자화, 한글 음절 / 그 외 문자·숫자 / 구분자 경계로 어절 분리
+ * - 한글 어절은 끝의 조사를 떼어 낸 뒤 (남는 어간이 2음절 이상일 때만)
+ *   음절 bigram 과, 3음절 이상이면 어간 전체를 term 으로 낸다. 1음절 어절은 그대로 낸다.
+ * - 영문/숫자 어절은 단어 그대로 낸다
+ * bigram(2글자) 과 어간(3글자 이상) 은 길이가 달라 term 이 서로 겹치지 않는다.
+ */
+@Component
+public class KoreanAnalyzer implements TextAnalyzer {
+
+    /* 긴 것부터 비교한다 ("에서" 가 "서" 보다 먼저) */
+    private static final String[] PARTICLES = {
+            "으로부터", "에게서", "한테서", "이라고", "이라는", "이라도", "까지도", "에서도", "에서는",
+            "으로", "에서", "에게", "한테", "께서", "까지", "부터", "보다", "처럼", "만큼", "이랑", "이나",
+            "이라", "라고", "라는", "마다", "조차", "마저", "은", "는", "이", "가", "을", "를", "에",
+            "의", "도", "만", "와", "과", "로", "랑", "나", "께"
+    };
+
+    private static final int MIN_STEM = 2;
+
+    @Override
+    public List<String> analyze(String text) {
+        if (text == null || text.isEmpty()) return List.of();
+
+        String s = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        List<String> out = new ArrayList<>(s.length());
+
+        int i = 0;
+        final int len = s.length();
+        while (i < len) {
+            char c = s.charAt(i);
+            if (isHangul(c)) {
+                int start = i;
+                while (i < len && isHangul(s.charAt(i))) i++;
+                addHangul(out, s, start, stripParticle(s, start, i));
+            } else if (Character.isLetterOrDigit(c)) {
+                int start = i;
+                while (i < len && Character.isLetterOrDigit(s.charAt(i)) && !isHangul(s.charAt(i))) i++;
+                out.add(s.substring(start, i));
+            } else {
+                i++;
+            }
+        }
+        return out;
+    }
+
+    /* [start, end) 어절에서 조사를 뗀 어간의 끝 위치 */
+    static int stripParticle(String s, int start, int end) {
+        for (String p : PARTICLES) {
+            int stemEnd = end - p.length();
+            if (stemEnd - start >= MIN_STEM && s.startsWith(p, stemEnd)) return stemEnd;
+        }
+        return end;
+    }
+
+    private static void addHangul(List<String> out, String s, int start, int end) {
+        final int n = end - start;
+        if (n == 1) {
+            out.add(s.substring(start, end));
+            return;
+        }
+        for (int j = start; j + 1 < end; j++) out.add(s.substring(j, j + 2));
+        if (n >= 3) out.add(s.substring(start, end));
+    }
+
+    private static boolean isHangul(char c) {
+        return c >= '가' && c <= '힣';
+    }
+}
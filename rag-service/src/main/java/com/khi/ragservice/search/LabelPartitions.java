@@ -0,0 +1,84 @@
+package com.khi.ragservice.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * 코퍼스를 label_id 별 구간으로 나눈 doc ordinal 목록 (label_id 오름차순, 구간 안은 doc 오름차순).
+ * 파티션마다 독립적으로 top-K 를 고르므로 여러 스레드에서 파티션을 나눠 처리할 수 있다.
+ */
+public final class LabelPartitions {
+
+    private final RagCorpus corpus;
+    private final short[] labelIds;
+    private final int[] starts;
+    private final int[] docs;
+
+    private LabelPartitions(RagCorpus corpus, short[] labelIds, int[] starts, int[] docs) {
+        this.corpus = corpus;
+        this.labelIds = labelIds;
+        this.starts = starts;
+        this.docs = docs;
+    }
+
+    static LabelPartitions of(RagCorpus corpus) {
+        final int n = corpus.size();
+        short[] sorted = new short[n];
+        for (int d = 0; d < n; d++) sorted[d] = corpus.labelId(d);
+        Arrays.sort(sorted);
+
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) sorted[count++] = sorted[i];
+        }
+        short[] labelIds = Arrays.copyOf(sorted, count);
+
+        // counting sort: doc 을 순서대로 넣으므로 구간 안은 doc 오름차순
+        int[] starts = new int[count + 1];
+        for (int d = 0; d < n; d++) starts[partitionOf(labelIds, corpus.labelId(d)) + 1]++;
+        for (int p = 0; p < count; p++) starts[p + 1] += starts[p];
+        int[] docs = new int[n];
+        int[] fill = Arrays.copyOf(starts, count);
+        for (int d = 0; d < n; d++) docs[fill[partitionOf(labelIds, corpus.labelId(d))]++] = d;
+
+        return new LabelPartitions(corpus, labelIds, starts, docs);
+    }
+
+    public int count() {
+        return labelIds.length;
+    }
+
+    public int docCount() {
+        return docs.length;
+    }
+
+    public short labelId(int partition) {
+        return labelIds[partition];
+    }
+
+    public String label(int partition) {
+        return corpus.label(docs[starts[partition]]);
+    }
+
+    public int size(int partition) {
+        return starts[partition + 1] - starts[partition];
+    }
+
+    /* 파티션 안에서 scorer 기준 top-K (NaN 은 제외) */
+    public List<RagHit> top(int partition, DocScorer scorer, int k) {
+        TopK top = new TopK(k);
+        for (int i = starts[partition], end = starts[partition + 1]; i < end; i++) {
+            double score = scorer.score(docs[i]);
+            if (!Double.isNaN(score)) top.offer(docs[i], score);
+        }
+
+        List<RagHit> out = new ArrayList<>(top.size());
+        for (int r = 0; r < top.size(); r++) out.add(corpus.hit(top.doc(r), top.score(r)));
+        return out;
+    }
+
+    private static int partitionOf(short[] labelIds, short labelId) {
+        return Arrays.binarySearch(labelIds, labelId);
+    }
+}
@@ -0,0 +1,220 @@
+package com.khi.ragservice.search;
+
+import com.khi.ragservice.common.exception.type.IndexNotReadyException;
+import com.khi.ragservice.common.concurrent.RagConcurrencyLimits;
+import com.khi.ragservice.schema.TrgmSchemaInitializer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PgTrgmRetriever implements RagRetriever {
+
+    /*
+     * ILIKE 패턴은 q 의 \, %, _ 를 이스케이프해 q 를 글자 그대로의 부분 문자열로 찾는다
+     * (TrigramIndex 의 메모리 엔진과 같은 의미. 사용자 발화의 % / _ 가 와일드카드로 해석되지 않는다).
+     */
+    static final String SQL_FILTERED = """
+        WITH q AS (
+          SELECT t.q, '%'||replace(replace(replace(t.q, '\\', '\\\\'), '%', '\\%'), '_', '\\_')||'%' AS pat
+          FROM (SELECT ?::text AS q) t
+        )
+        SELECT id, text, label, labelid AS label_id,
+               similarity(
+                 (coalesce(text,'')||' '||coalesce(label,'')),
+                 q.q
+               ) AS score
+        FROM rag_items, q
+        WHERE (
+             (coalesce(text,'')||' '||coalesce(label,'')) % q.q
+          OR  coalesce(text,'')  ILIKE q.pat
+          OR  coalesce(label,'') ILIKE q.pat
+        )
+        ORDER BY score DESC NULLS LAST
+        LIMIT ?
+    """;
+
+    static final String SQL_FALLBACK = """
+        WITH q AS (SELECT ?::text AS q)
+        SELECT id, text, label, labelid AS label_id,
+               similarity(
+                 (coalesce(text,'')||' '||coalesce(label,'')),
+                 q.q
+               ) AS score
+        FROM rag_items, q
+        ORDER BY score DESC NULLS LAST
+        LIMIT ?
+    """;
+
+    /* 질의 배열을 unnest 해서 LATERAL 로 질의별 top-K 를 한 번에 구한다 */
+    static final String SQL_FILTERED_BATCH = """
+        WITH q AS (
+          SELECT t.q, t.ord,
+                 '%'||replace(replace(replace(t.q, '\\', '\\\\'), '%', '\\%'), '_', '\\_')||'%' AS pat
+          FROM unnest(?::text[]) WITH ORDINALITY AS t(q, ord)
+        )
+        SELECT q.ord, r.id, r.text, r.label, r.label_id, r.score
+        FROM q
+        CROSS JOIN LATERAL (
+            SELECT id, text, label, labelid AS label_id,
+                   similarity(
+                     (coalesce(text,'')||' '||coalesce(label,'')),
+                     q.q
+                   ) AS score
+            FROM rag_items
+            WHERE (
+                 (coalesce(text,'')||' '||coalesce(label,'')) % q.q
+              OR  coalesce(text,'')  ILIKE q.pat
+              OR  coalesce(label,'') ILIKE q.pat
+            )
+            ORDER BY score DESC NULLS LAST
+            LIMIT ?
+        ) r
+        ORDER BY q.ord, r.score DESC NULLS LAST
+    """;
+
+    static final String SQL_FALLBACK_BATCH = """
+        WITH q AS (SELECT t.q, t.ord FROM unnest(?::text[]) WITH ORDINALITY AS t(q, ord))
+        SELECT q.ord, r.id, r.text, r.label, r.label_id, r.score
+        FROM q
+        CROSS JOIN LATERAL (
+            SELECT id, text, label, labelid AS label_id,
+                   similarity(
+                     (coalesce(text,'')||' '||coalesce(label,'')),
+                     q.q
+                   ) AS score
+            FROM rag_items
+            ORDER BY score DESC NULLS LAST
+            LIMIT ?
+        ) r
+        ORDER BY q.ord, r.score DESC NULLS LAST
+    """;
+
+    /* JDBC 의 ? 자리표시자를 R2DBC Postgres 의 $1, $2 ... 로 바꾼다 (SQL 본문에는 다른 ? 가 없다) */
+    static String indexedBindMarkers(String sql) {
+        StringBuilder sb = new StringBuilder(sql.length() + 8);
+        int index = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '?') sb.append('$').append(++index);
+            else sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private final DataSource dataSource;
+    private final TrgmSchemaInitializer trgmSchema;
+    private final RagConcurrencyLimits limits;
+
+    @Override
+    public boolean isReady() {
+        return trgmSchema.isReady();
+    }
+
+    @Override
+    public List<RagHit> retrieve(String queryText, int k) {
+        if (!trgmSchema.isReady()) throw new IndexNotReadyException("pg_trgm index is not ready");
+
+        // filtered / fallback 을 같은 커넥션에서 실행 (요청당 풀 획득 1회)
+        return limits.postgres().call(() -> {
+            try (Connection con = dataSource.getConnection()) {
+                List<RagHit> items = runQuery(con, SQL_FILTERED, queryText, k);
+                if (items.isEmpty()) {
+                    log.info("[RAG] no hits → fallback to full-table similarity sort");
+                    items = runQuery(con, SQL_FALLBACK, queryText, k);
+                }
+                return items;
+            } catch (SQLException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        });
+    }
+
+    // 필터 쿼리 1회 + (매칭이 없던 질의만 모아) fallback 쿼리 최대 1회
+    @Override
+    public List<List<RagHit>> retrieveBatch(List<String> queryTexts, int k) {
+        if (!trgmSchema.isReady()) throw new IndexNotReadyException("pg_trgm index is not ready");
+        if (queryTexts.isEmpty()) return List.of();
+
+        return limits.postgres().call(() -> {
+            try (Connection con = dataSource.getConnection()) {
+                return filteredWithFallback(con, queryTexts, k);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        });
+    }
+
+    private List<List<RagHit>> filteredWithFallback(Connection con, List<String> queryTexts, int k) throws SQLException {
+        List<List<RagHit>> out = runBatchQuery(con, SQL_FILTERED_BATCH, queryTexts, k);
+
+        List<Integer> missed = new ArrayList<>();
+        for (int i = 0; i < out.size(); i++) {
+            if (out.get(i).isEmpty()) missed.add(i);
+        }
+        if (!missed.isEmpty()) {
+            log.info("[RAG] batch no hits for {} queries → fallback to full-table similarity sort", missed.size());
+            List<String> missedTexts = new ArrayList<>(missed.size());
+            for (int i : missed) missedTexts.add(queryTexts.get(i));
+
+            List<List<RagHit>> fallback = runBatchQuery(con, SQL_FALLBACK_BATCH, missedTexts, k);
+            for (int j = 0; j < missed.size(); j++) out.set(missed.get(j), fallback.get(j));
+        }
+        return out;
+    }
+
+    /*
+     * 같은 SQL 문자열을 매번 prepareStatement 해도 pgjdbc 가 커넥션별로 파싱 결과와
+     * 서버측 prepared statement 를 캐시한다 (prepareThreshold / preparedStatementCacheQueries).
+     */
+    private static List<List<RagHit>> runBatchQuery(Connection con, String sql, List<String> queryTexts, int k) throws SQLException {
+        List<List<RagHit>> out = new ArrayList<>(queryTexts.size());
+        for (int i = 0; i < queryTexts.size(); i++) out.add(new ArrayList<>(k));
+
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setArray(1, con.createArrayOf("text", queryTexts.toArray()));
+            ps.setInt(2, k);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int ord = rs.getInt("ord");
+                    out.get(ord - 1).add(new RagHit(
+                            rs.getInt("id"),
+                            rs.getString("text"),
+                            rs.getString("label"),
+                            rs.getInt("label_id"),
+                            rs.getDouble("score")));
+                }
+            }
+        }
+        return out;
+    }
+
+    private static List<RagHit> runQuery(Connection con, String sql, String queryText, int k) throws SQLException {
+        List<RagHit> items = new ArrayList<>();
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setString(1, queryText);
+            ps.setInt(2, k);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    items.add(new RagHit(
+                            rs.getInt("id"),
+                            rs.getString("text"),
+                            rs.getString("label"),
+                            rs.getInt("label_id"),
+                            rs.getDouble("score")));
+                }
+            }
+        }
+        return items;
+    }
+}
@@ -0,0 +1,134 @@
+package com.khi.ragservice.search;
+
+import com.khi.ragservice.entity.RagItem;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/*
+ * id 오름차순으로 정렬된 rag_items 의 열(column) 배열.
+ * 각 인덱스(trigram, vector)는 문서를 이 배열의 ordinal 로 참조한다.
+ * 스냅샷 파일에서 mmap 한 경우 text/label 은 UTF-8 바이트로 두고 처음 읽을 때 String 으로 만든다.
+ */
+public final class RagCorpus {
+
+    private final int[] ids;
+    private final StringColumn texts;
+    private final StringColumn labels;
+    private final short[] labelIds;
+
+    // 처음 요청될 때 만든다 (코퍼스가 불변이라 동시에 두 번 만들어져도 결과가 같다)
+    private volatile LabelPartitions labelPartitions;
+
+    public RagCorpus(int[] ids, String[] texts, String[] labels, short[] labelIds) {
+        this(ids, new StringColumn(texts, null, null), new StringColumn(labels, null, null), labelIds);
+    }
+
+    private RagCorpus(int[] ids, StringColumn texts, StringColumn labels, short[] labelIds) {
+        this.ids = ids;
+        this.texts = texts;
+        this.labels = labels;
+        this.labelIds = labelIds;
+    }
+
+    /* offsets 는 n+1 개, i 번째 문자열은 data[offsets[i], offsets[i+1]) */
+    static RagCorpus mapped(int[] ids, short[] labelIds,
+                            ByteBuffer textData, IntBuffer textOffsets,
+                            ByteBuffer labelData, IntBuffer labelOffsets) {
+        return new RagCorpus(ids,
+                new StringColumn(new String[ids.length], textData, textOffsets),
+                new StringColumn(new String[ids.length], labelData, labelOffsets),
+                labelIds);
+    }
+
+    public static RagCorpus of(Collection<RagItem> items) {
+        List<RagItem> sorted = new ArrayList<>(items);
+        sorted.sort((a, b) -> Integer.compare(a.getId(), b.getId()));
+
+        final int n = sorted.size();
+        int[] ids = new int[n];
+        String[] texts = new String[n];
+        String[] labels = new String[n];
+        short[] labelIds = new short[n];
+        for (int d = 0; d < n; d++) {
+            RagItem item = sorted.get(d);
+            ids[d] = item.getId();
+            texts[d] = item.getText() == null ? "" : item.getText();
+            labels[d] = item.getLabel() == null ? "" : item.getLabel();
+            labelIds[d] = item.getLabelId() == null ? 0 : item.getLabelId();
+        }
+        return new RagCorpus(ids, texts, labels, labelIds);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public int id(int doc) {
+        return ids[doc];
+    }
+
+    public String text(int doc) {
+        return texts.get(doc);
+    }
+
+    public String label(int doc) {
+        return labels.get(doc);
+    }
+
+    public short labelId(int doc) {
+        return labelIds[doc];
+    }
+
+    /* id -> ordinal, 없으면 음수 */
+    public int ordinalOf(int id) {
+        return Arrays.binarySearch(ids, id);
+    }
+
+    public LabelPartitions labelPartitions() {
+        LabelPartitions p = labelPartitions;
+        if (p == null) {
+            p = LabelPartitions.of(this);
+            labelPartitions = p;
+        }
+        return p;
+    }
+
+    public RagHit hit(int doc, double score) {
+        return new RagHit(ids[doc], texts.get(doc), labels.get(doc), labelIds[doc], score);
+    }
+
+    /*
+     * 문자열 열. data 가 null 이면 values 가 이미 다 채워져 있다.
+     * 여러 스레드가 같은 칸을 동시에 디코딩해도 결과가 같고 String 은 불변이라 동기화하지 않는다.
+     */
+    private static final class StringColumn {
+
+        private final String[] values;
+        private final ByteBuffer data;
+        private final IntBuffer offsets;
+
+        StringColumn(String[] values, ByteBuffer data, IntBuffer offsets) {
+            this.values = values;
+            this.data = data;
+            this.offsets = offsets;
+        }
+
+        String get(int i) {
+            String v = values[i];
+            if (v == null) {
+                int from = offsets.get(i);
+                byte[] bytes = new byte[offsets.get(i + 1) - from];
+                data.get(from, bytes);
+                v = new String(bytes, StandardCharsets.UTF_8);
+                values[i] = v;
+            }
+            return v;
+        }
+    }
+}
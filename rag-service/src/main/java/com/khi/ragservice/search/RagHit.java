@@ -0,0 +1,7 @@
+package com.khi.ragservice.search;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/* 검색 결과 한 행. 응답 items 의 원소로 그대로 직렬화된다 */
+public record RagHit(int id, String text, String label, @JsonProperty("label_id") int labelId, double score) {
+}
@@ -0,0 +1,268 @@
+package com.khi.ragservice.search;
+
+import com.khi.ragservice.embedding.EmbeddingClient;
+import com.khi.ragservice.embedding.RagVectorStore;
+import com.khi.ragservice.loader.DatasetAppliedEvent;
+import com.khi.ragservice.loader.DatasetLoader;
+import com.khi.ragservice.repository.RagItemRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RagIndexManager {
+
+    private final RagItemRepository repo;
+    private final RagVectorStore vectorStore;
+    private final ObjectProvider<EmbeddingClient> embeddingClient;
+    private final DatasetLoader datasetLoader;
+    private final RagSnapshotStore snapshotStore;
+    private final TextAnalyzer analyzer;
+
+    @Value("${rag.retrieval.engine:memory}")
+    private String engine;
+
+    @Value("${rag.bm25.k1:1.2}")
+    private double bm25K1;
+
+    @Value("${rag.bm25.b:0.75}")
+    private double bm25B;
+
+    @Value("${rag.bm25.label-boost:2.0}")
+    private double bm25LabelBoost;
+
+    @Value("${rag.ann.enabled:false}")
+    private boolean annEnabled;
+
+    @Value("${rag.ann.m:16}")
+    private int annM;
+
+    @Value("${rag.ann.ef-construction:200}")
+    private int annEfConstruction;
+
+    @Value("${rag.ann.ef-search:64}")
+    private int annEfSearch;
+
+    @Value("${rag.ann.min-vectors:20000}")
+    private int annMinVectors;
+
+    @Value("${rag.vector.quantization:none}")
+    private String quantization;
+
+    @Value("${rag.vector.rerank:4}")
+    private int rerank;
+
+    private volatile RagIndexSnapshot snapshot;
+
+    /*
+     * DatasetLoader(CommandLineRunner) 가 끝난 뒤 실행된다.
+     * 현재 데이터셋 fingerprint 의 스냅샷 파일이 있으면 mmap 으로 바로 올리고, 없으면 DB 에서 만든 뒤 파일로 남긴다.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        String fingerprint = datasetLoader.getFingerprint();
+        RagIndexSnapshot mapped = snapshotStore.load(fingerprint);
+        if (mapped != null) {
+            // 스냅샷 키에 임베딩 상태가 들어가므로 보통은 없지만, 벡터 섹션이 비어 있으면 벡터만 DB 에서 읽는다
+            VectorIndex vector = mapped.vector();
+            if (vector == null && embeddingClient.getIfAvailable() != null) vector = loadVectors(mapped.corpus());
+            this.snapshot = new RagIndexSnapshot(mapped.corpus(), mapped.trigram(),
+                    quantize(withAnn(fingerprint, vector, null, null)), buildBm25(mapped.corpus()));
+            return;
+        }
+
+        long t0 = System.nanoTime();
+        RagCorpus corpus = RagCorpus.of(repo.findAll());
+
+        TrigramIndex trigram = TrigramIndex.build(corpus);
+        log.info("[rag] trigram index built | docs={} | terms={} | {} ms",
+                trigram.size(), trigram.termCount(), (System.nanoTime() - t0) / 1_000_000);
+
+        VectorIndex vector = embeddingClient.getIfAvailable() != null ? loadVectors(corpus) : null;
+        vector = quantize(withAnn(fingerprint, vector, null, null));
+
+        this.snapshot = new RagIndexSnapshot(corpus, trigram, vector, buildBm25(corpus));
+        saveSnapshot(fingerprint, this.snapshot);
+        this.snapshot = mapFloatRows(fingerprint, this.snapshot);
+    }
+
+    /*
+     * 실행 중 데이터셋이 다시 반영된 경우: text 가 그대로인 행의 벡터는 이전 인덱스에서 복사하고
+     * 새로 생기거나 text 가 바뀐 행의 벡터만 DB 에서 읽는다. HNSW 그래프도 바뀐 노드만 빼고 새로 넣는다.
+     * (기동 시에는 아직 스냅샷이 없으므로 ApplicationReadyEvent 의 rebuild 가 처리)
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener
+    public void onDatasetApplied(DatasetAppliedEvent event) {
+        RagIndexSnapshot previous = snapshot;
+        if (previous == null) return;
+
+        long t0 = System.nanoTime();
+        RagCorpus corpus = RagCorpus.of(repo.findAll());
+        TrigramIndex trigram = TrigramIndex.build(corpus);
+        VectorIndex vector = null;
+        if (previous.vector() != null) {
+            boolean[] reused = new boolean[corpus.size()];
+            vector = quantize(withAnn(event.fingerprint(), refreshVectors(previous, corpus, reused),
+                    previous.vector().ann(), reused));
+        } else if (embeddingClient.getIfAvailable() != null) {
+            // 기동 시 벡터가 없었던 경우(embedder 다운 등): 재적재의 embedMissing 이 채운 벡터를 처음부터 읽는다
+            vector = quantize(withAnn(event.fingerprint(), loadVectors(corpus), null, null));
+        }
+
+        this.snapshot = new RagIndexSnapshot(corpus, trigram, vector, buildBm25(corpus));
+        log.info("[rag] index refreshed | docs={} | upserted={} | removed={} | {} ms",
+                corpus.size(), event.upsertedIds().length, event.removedIds().length,
+                (System.nanoTime() - t0) / 1_000_000);
+        saveSnapshot(event.fingerprint(), this.snapshot);
+        this.snapshot = mapFloatRows(event.fingerprint(), this.snapshot);
+    }
+
+    public RagIndexSnapshot current() {
+        return snapshot;
+    }
+
+    // 임베딩이 일부 빠진 상태를 fingerprint 에 고정하지 않도록 벡터가 다 있을 때만 파일로 남긴다
+    private void saveSnapshot(String fingerprint, RagIndexSnapshot s) {
+        if (!snapshotStore.isEnabled()) return;
+        boolean vectorsComplete = embeddingClient.getIfAvailable() == null
+                || (s.vector() != null && s.vector().vectorCount() == s.corpus().size());
+        if (!vectorsComplete) {
+            log.info("[snapshot] embeddings incomplete -> skip snapshot write");
+            return;
+        }
+        snapshotStore.save(fingerprint, s);
+    }
+
+    /*
+     * int8 검색은 float 행을 rerank 후보 몇 개만 읽으므로, DB 에서 만든 float 행렬은 방금 쓴 스냅샷 파일의 mmap 행으로 바꿔
+     * direct 메모리를 놓아 준다 (필요한 행만 페이지 캐시에 올라온다).
+     * HNSW 그래프가 붙어 있거나(그래프가 원래 float 행을 읽는다) 스냅샷 파일이 없으면 그대로 둔다.
+     */
+    private RagIndexSnapshot mapFloatRows(String fingerprint, RagIndexSnapshot s) {
+        VectorIndex vector = s.vector();
+        if (vector == null || vector.quantized() == null || vector.ann() != null) return s;
+
+        RagIndexSnapshot mapped = snapshotStore.load(fingerprint);
+        try {
+            if (mapped != null && mapped.vector() != null) {
+                return new RagIndexSnapshot(s.corpus(), s.trigram(), vector.withRowsOf(mapped.vector()), s.bm25());
+            }
+        } catch (IllegalArgumentException e) {
+            log.warn("[rag] snapshot vectors differ: {}", e.getMessage());
+        }
+        log.info("[rag] no matching snapshot -> int8 index keeps float rows in memory");
+        return s;
+    }
+
+    // 스냅샷 파일에는 넣지 않고 (mmap 한) 코퍼스에서 매번 만든다
+    private Bm25Index buildBm25(RagCorpus corpus) {
+        if (!"bm25".equalsIgnoreCase(engine)) return null;
+
+        long t0 = System.nanoTime();
+        Bm25Index index = Bm25Index.build(corpus, analyzer, new Bm25Index.Params(bm25K1, bm25B, bm25LabelBoost));
+        log.info("[rag] bm25 index built | docs={} | terms={} | {} ms",
+                corpus.size(), index.termCount(), (System.nanoTime() - t0) / 1_000_000);
+        return index;
+    }
+
+    /*
+     * 벡터가 충분히 많으면 HNSW 그래프를 붙인다 (작은 코퍼스는 전수 탐색이 더 빠르고 정확).
+     * 같은 fingerprint 의 그래프 파일이 있으면 읽고, 없으면 이전 그래프를 갱신하거나 새로 만든 뒤 파일로 남긴다.
+     */
+    private VectorIndex withAnn(String fingerprint, VectorIndex vector, HnswIndex previous, boolean[] reused) {
+        if (!annEnabled || vector == null || vector.vectorCount() < annMinVectors) return vector;
+
+        long t0 = System.nanoTime();
+        HnswIndex.Params params = new HnswIndex.Params(annM, annEfConstruction, annEfSearch);
+        try {
+            HnswIndex ann = snapshotStore.loadAnn(fingerprint, vector, params);
+            String source = "loaded";
+            if (ann == null) {
+                if (previous != null && reused != null) {
+                    ann = HnswIndex.refresh(previous, vector, reused, params);
+                    source = "refreshed";
+                } else {
+                    ann = HnswIndex.build(vector, params);
+                    source = "built";
+                }
+                // 스냅샷과 같은 이유로 벡터가 다 있을 때만 파일로 남긴다
+                if (vector.vectorCount() == vector.size()) snapshotStore.saveAnn(fingerprint, ann);
+            }
+            log.info("[rag] hnsw index {} | nodes={} | levels={} | M={} | efSearch={} | {} ms",
+                    source, ann.nodeCount(), ann.levelCount(), annM, annEfSearch, (System.nanoTime() - t0) / 1_000_000);
+            return vector.withAnn(ann);
+        } catch (Exception e) {
+            log.warn("[rag] hnsw index build failed -> exact vector search: {}", e.toString());
+            return vector;
+        }
+    }
+
+    // int8 사본은 파일에 넣지 않고 float 행에서 매번 만든다 (한 번 훑는 비용)
+    private VectorIndex quantize(VectorIndex vector) {
+        if (vector == null || !"int8".equalsIgnoreCase(quantization)) return vector;
+
+        long t0 = System.nanoTime();
+        Int8Vectors int8 = Int8Vectors.quantize(vector);
+        log.info("[rag] int8 vectors built | vectors={} | bytes={} | rerank={} | {} ms",
+                vector.vectorCount(), int8.bytes(), rerank, (System.nanoTime() - t0) / 1_000_000);
+        return vector.withQuantized(int8, rerank);
+    }
+
+    /* reused[doc] 에는 이전 인덱스에서 벡터를 그대로 복사한 행을 표시한다 */
+    private VectorIndex refreshVectors(RagIndexSnapshot previous, RagCorpus corpus, boolean[] reused) {
+        VectorIndex old = previous.vector();
+        RagCorpus oldCorpus = previous.corpus();
+        VectorIndex.Builder builder = VectorIndex.builder(corpus, old.dim());
+
+        int reusedCount = 0;
+        int[] reload = new int[corpus.size()];
+        int reloadCount = 0;
+        for (int d = 0; d < corpus.size(); d++) {
+            int oldDoc = oldCorpus.ordinalOf(corpus.id(d));
+            if (oldDoc >= 0 && oldCorpus.text(oldDoc).equals(corpus.text(d)) && builder.copyFrom(old, oldDoc)) {
+                reused[d] = true;
+                reusedCount++;
+            } else {
+                reload[reloadCount++] = corpus.id(d);
+            }
+        }
+
+        try {
+            int loaded = vectorStore.loadInto(builder, Arrays.copyOf(reload, reloadCount));
+            log.info("[rag] vector index refreshed | reused={} | loaded={}", reusedCount, loaded);
+        } catch (Exception e) {
+            log.warn("[rag] vector refresh failed (changed rows have no vector): {}", e.toString());
+        }
+        return builder.build();
+    }
+
+    private VectorIndex loadVectors(RagCorpus corpus) {
+        long t0 = System.nanoTime();
+        try {
+            int dim = vectorStore.dimension();
+            if (dim <= 0) {
+                log.warn("[rag] no stored embeddings -> dense retrieval unavailable");
+                return null;
+            }
+            VectorIndex.Builder builder = VectorIndex.builder(corpus, dim);
+            int loaded = vectorStore.loadInto(builder);
+            log.info("[rag] vector index built | docs={} | vectors={} | dim={} | {} ms",
+                    corpus.size(), loaded, dim, (System.nanoTime() - t0) / 1_000_000);
+            return builder.build();
+        } catch (Exception e) {
+            log.warn("[rag] vector index build failed: {}", e.toString());
+            return null;
+        }
+    }
+}
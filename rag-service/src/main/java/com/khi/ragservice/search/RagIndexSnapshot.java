@@ -0,0 +1,16 @@
+package com.khi.ragservice.search;
+
+/*
+ * 한 시점의 코퍼스와 그로부터 만든 인덱스 묶음.
+ * vector 는 임베딩 비활성화 시, bm25 는 rag.retrieval.engine 이 bm25 가 아닐 때 null
+ */
+public record RagIndexSnapshot(RagCorpus corpus, TrigramIndex trigram, VectorIndex vector, Bm25Index bm25) {
+
+    public RagIndexSnapshot(RagCorpus corpus, TrigramIndex trigram, VectorIndex vector) {
+        this(corpus, trigram, vector, null);
+    }
+
+    public RagIndexSnapshot withBm25(Bm25Index bm25) {
+        return new RagIndexSnapshot(corpus, trigram, vector, bm25);
+    }
+}
@@ -0,0 +1,20 @@
+package com.khi.ragservice.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public interface RagRetriever {
+
+    List<RagHit> retrieve(String queryText, int k);
+
+    /* 여러 질의를 한 번에 검색. 구현체가 왕복을 줄일 수 있으면 재정의한다 */
+    default List<List<RagHit>> retrieveBatch(List<String> queryTexts, int k) {
+        List<List<RagHit>> out = new ArrayList<>(queryTexts.size());
+        for (String q : queryTexts) out.add(retrieve(q, k));
+        return out;
+    }
+
+    default boolean isReady() {
+        return true;
+    }
+}
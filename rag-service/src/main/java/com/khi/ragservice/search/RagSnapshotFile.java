@@ -0,0 +1,325 @@
+package com.khi.ragservice.search;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/*
+ * RagIndexSnapshot 의 바이너리 파일 포맷 (little-endian).
+ *
+ *   header  : magic, version, n, dim, termCount, maxFieldLength, fingerprint(64 byte), section table
+ *   sections: ids, labelIds, text offsets/bytes, label offsets/bytes, doc trigram counts,
+ *             term keys, posting starts/docs, hasVector, embedding matrix
+ *
+ * 각 섹션은 64 byte 경계에 정렬하고 따로 mmap 하므로 섹션 하나가 2GB 를 넘지만 않으면 된다.
+ * 임베딩 행렬만은 VectorIndex 의 세그먼트 경계(행 단위)로 나눠 여러 번 mmap 하므로 2GB 를 넘어도 된다.
+ * 읽을 때 크기가 작은 배열(id, label_id, term 등)은 힙으로 복사하고
+ * 텍스트, posting, 임베딩 행렬은 mmap 버퍼를 그대로 사용한다.
+ */
+public final class RagSnapshotFile {
+
+    private static final int MAGIC = 0x52414753; // "RAGS"
+    private static final int VERSION = 1;
+    private static final int FINGERPRINT_BYTES = 64;
+    private static final int ALIGN = 64;
+
+    private static final int IDS = 0;
+    private static final int LABEL_IDS = 1;
+    private static final int TEXT_OFFSETS = 2;
+    private static final int TEXT_BYTES = 3;
+    private static final int LABEL_OFFSETS = 4;
+    private static final int LABEL_BYTES = 5;
+    private static final int DOC_TRIGRAM_COUNTS = 6;
+    private static final int TERM_KEYS = 7;
+    private static final int POSTING_STARTS = 8;
+    private static final int POSTING_DOCS = 9;
+    private static final int HAS_VECTOR = 10;
+    private static final int MATRIX = 11;
+    private static final int SECTION_COUNT = 12;
+
+    private static final int HEADER_BYTES = align(6 * Integer.BYTES + FINGERPRINT_BYTES + SECTION_COUNT * 2 * Long.BYTES);
+
+    private RagSnapshotFile() {
+    }
+
+    public static void write(Path path, String fingerprint, RagIndexSnapshot snapshot) throws IOException {
+        RagCorpus corpus = snapshot.corpus();
+        TrigramIndex trigram = snapshot.trigram();
+        VectorIndex vector = snapshot.vector();
+        final int n = corpus.size();
+        final int dim = vector == null ? 0 : vector.dim();
+
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            SectionWriter out = new SectionWriter(ch, HEADER_BYTES);
+
+            out.begin(IDS);
+            for (int d = 0; d < n; d++) out.putInt(corpus.id(d));
+
+            out.begin(LABEL_IDS);
+            for (int d = 0; d < n; d++) out.putShort(corpus.labelId(d));
+
+            byte[][] texts = new byte[n][];
+            for (int d = 0; d < n; d++) texts[d] = corpus.text(d).getBytes(StandardCharsets.UTF_8);
+            writeStrings(out, TEXT_OFFSETS, TEXT_BYTES, texts);
+
+            byte[][] labels = new byte[n][];
+            for (int d = 0; d < n; d++) labels[d] = corpus.label(d).getBytes(StandardCharsets.UTF_8);
+            writeStrings(out, LABEL_OFFSETS, LABEL_BYTES, labels);
+
+            out.begin(DOC_TRIGRAM_COUNTS);
+            for (int c : trigram.docTrigramCounts()) out.putInt(c);
+
+            out.begin(TERM_KEYS);
+            for (long key : trigram.termKeys()) out.putLong(key);
+
+            out.begin(POSTING_STARTS);
+            for (int p : trigram.postingStarts()) out.putInt(p);
+
+            out.begin(POSTING_DOCS);
+            IntBuffer docs = trigram.postingDocs();
+            for (int p = 0, end = docs.limit(); p < end; p++) out.putInt(docs.get(p));
+
+            out.begin(HAS_VECTOR);
+            if (vector != null) {
+                for (int d = 0; d < n; d++) out.putByte(vector.hasVector(d) ? (byte) 1 : 0);
+            }
+
+            out.begin(MATRIX);
+            if (vector != null) {
+                for (FloatBuffer segment : vector.segments()) out.putFloats(segment);
+            }
+
+            out.finish();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION)
+                    .putInt(n).putInt(dim).putInt(trigram.termCount()).putInt(trigram.maxFieldLength());
+            header.put(fixedFingerprint(fingerprint));
+            for (int s = 0; s < SECTION_COUNT; s++) header.putLong(out.offsets[s]).putLong(out.lengths[s]);
+            header.clear();
+            while (header.hasRemaining()) ch.write(header, header.position());
+            ch.force(true);
+        }
+    }
+
+    /* fingerprint 가 다르거나 포맷이 맞지 않으면 IOException */
+    public static RagIndexSnapshot map(Path path, String fingerprint) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (ch.read(header, header.position()) < 0) throw new IOException("truncated snapshot header");
+            }
+            header.flip();
+
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("not a rag snapshot (or unsupported version)");
+            }
+            final int n = header.getInt();
+            final int dim = header.getInt();
+            final int termCount = header.getInt();
+            final int maxFieldLength = header.getInt();
+            byte[] fp = new byte[FINGERPRINT_BYTES];
+            header.get(fp);
+            if (!Arrays.equals(fp, fixedFingerprint(fingerprint))) {
+                throw new IOException("snapshot fingerprint mismatch");
+            }
+
+            ByteBuffer[] sections = new ByteBuffer[SECTION_COUNT];
+            long matrixOffset = 0;
+            long matrixLength = 0;
+            for (int s = 0; s < SECTION_COUNT; s++) {
+                long offset = header.getLong();
+                long length = header.getLong();
+                if (offset < HEADER_BYTES || length < 0 || offset + length > ch.size()) {
+                    throw new IOException("corrupt snapshot section " + s);
+                }
+                if (s == MATRIX) {
+                    matrixOffset = offset;
+                    matrixLength = length;
+                    continue;
+                }
+                sections[s] = ch.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+            }
+
+            int[] ids = ints(sections[IDS], n);
+            short[] labelIds = new short[n];
+            sections[LABEL_IDS].asShortBuffer().get(labelIds);
+            IntBuffer textOffsets = offsets(sections[TEXT_OFFSETS], n);
+            IntBuffer labelOffsets = offsets(sections[LABEL_OFFSETS], n);
+            RagCorpus corpus = RagCorpus.mapped(ids, labelIds,
+                    sections[TEXT_BYTES], textOffsets, sections[LABEL_BYTES], labelOffsets);
+
+            long[] termKeys = new long[termCount];
+            sections[TERM_KEYS].asLongBuffer().get(termKeys);
+            int[] postingStarts = ints(sections[POSTING_STARTS], termCount + 1);
+            IntBuffer postingDocs = sections[POSTING_DOCS].asIntBuffer();
+            if (postingDocs.limit() != postingStarts[termCount]) throw new IOException("corrupt posting section");
+            TrigramIndex trigram = TrigramIndex.mapped(corpus, ints(sections[DOC_TRIGRAM_COUNTS], n),
+                    maxFieldLength, termKeys, postingStarts, postingDocs);
+
+            VectorIndex vector = null;
+            if (dim > 0) {
+                boolean[] hasVector = new boolean[n];
+                ByteBuffer flags = sections[HAS_VECTOR];
+                for (int d = 0; d < n; d++) hasVector[d] = flags.get(d) != 0;
+                vector = VectorIndex.mapped(corpus, dim, mapRows(ch, matrixOffset, matrixLength, n, dim), hasVector);
+            }
+            return new RagIndexSnapshot(corpus, trigram, vector);
+        } catch (IndexOutOfBoundsException | BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("corrupt snapshot: " + e, e);
+        }
+    }
+
+    /* 행렬 섹션을 VectorIndex 세그먼트 경계로 나눠 mmap */
+    private static FloatBuffer[] mapRows(FileChannel ch, long offset, long length, int n, int dim) throws IOException {
+        if (length != (long) n * dim * Float.BYTES) throw new IOException("unexpected matrix length");
+        final int rowsPerSegment = VectorIndex.rowsPerSegment(n, dim);
+        FloatBuffer[] segments = new FloatBuffer[(n + rowsPerSegment - 1) / rowsPerSegment];
+        long position = offset;
+        for (int s = 0; s < segments.length; s++) {
+            long bytes = (long) Math.min(rowsPerSegment, n - s * rowsPerSegment) * dim * Float.BYTES;
+            segments[s] = ch.map(FileChannel.MapMode.READ_ONLY, position, bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+            position += bytes;
+        }
+        return segments;
+    }
+
+    private static void writeStrings(SectionWriter out, int offsetSection, int bytesSection, byte[][] values)
+            throws IOException {
+        out.begin(offsetSection);
+        int offset = 0;
+        out.putInt(0);
+        for (byte[] v : values) {
+            offset = Math.addExact(offset, v.length);
+            out.putInt(offset);
+        }
+        out.begin(bytesSection);
+        for (byte[] v : values) out.putBytes(v);
+    }
+
+    private static int[] ints(ByteBuffer section, int expected) throws IOException {
+        IntBuffer buf = section.asIntBuffer();
+        if (buf.limit() != expected) throw new IOException("unexpected section length");
+        int[] out = new int[expected];
+        buf.get(out);
+        return out;
+    }
+
+    private static IntBuffer offsets(ByteBuffer section, int n) throws IOException {
+        IntBuffer buf = section.asIntBuffer();
+        if (buf.limit() != n + 1) throw new IOException("unexpected offsets length");
+        return buf;
+    }
+
+    private static byte[] fixedFingerprint(String fingerprint) {
+        byte[] out = new byte[FINGERPRINT_BYTES];
+        byte[] raw = fingerprint.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(raw, 0, out, 0, Math.min(raw.length, FINGERPRINT_BYTES));
+        return out;
+    }
+
+    private static int align(int v) {
+        return (v + ALIGN - 1) & -ALIGN;
+    }
+
+    /* 섹션을 순서대로 쓰면서 각 섹션의 파일 offset/length 를 기록한다 */
+    private static final class SectionWriter {
+
+        private final FileChannel ch;
+        private final ByteBuffer buf = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        private final long[] offsets = new long[SECTION_COUNT];
+        private final long[] lengths = new long[SECTION_COUNT];
+        private long position;
+        private int current = -1;
+
+        SectionWriter(FileChannel ch, long start) throws IOException {
+            this.ch = ch;
+            this.position = start;
+            ch.position(start);
+        }
+
+        void begin(int section) throws IOException {
+            end();
+            while ((position & (ALIGN - 1)) != 0) putByte((byte) 0);
+            current = section;
+            offsets[section] = position;
+        }
+
+        private void end() {
+            if (current >= 0) lengths[current] = position - offsets[current];
+            current = -1;
+        }
+
+        void finish() throws IOException {
+            end();
+            flush();
+        }
+
+        void putByte(byte v) throws IOException {
+            ensure(1);
+            buf.put(v);
+            position++;
+        }
+
+        void putShort(short v) throws IOException {
+            ensure(Short.BYTES);
+            buf.putShort(v);
+            position += Short.BYTES;
+        }
+
+        void putInt(int v) throws IOException {
+            ensure(Integer.BYTES);
+            buf.putInt(v);
+            position += Integer.BYTES;
+        }
+
+        void putLong(long v) throws IOException {
+            ensure(Long.BYTES);
+            buf.putLong(v);
+            position += Long.BYTES;
+        }
+
+        void putBytes(byte[] v) throws IOException {
+            int off = 0;
+            while (off < v.length) {
+                ensure(1);
+                int len = Math.min(buf.remaining(), v.length - off);
+                buf.put(v, off, len);
+                off += len;
+                position += len;
+            }
+        }
+
+        /* src 의 position..limit 를 통째로 복사 */
+        void putFloats(FloatBuffer src) throws IOException {
+            while (src.hasRemaining()) {
+                ensure(Float.BYTES);
+                FloatBuffer view = buf.asFloatBuffer();
+                int len = Math.min(view.remaining(), src.remaining());
+                view.put(src.slice(src.position(), len));
+                src.position(src.position() + len);
+                buf.position(buf.position() + len * Float.BYTES);
+                position += (long) len * Float.BYTES;
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buf.remaining() < bytes) flush();
+        }
+
+        private void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) ch.write(buf);
+            buf.clear();
+        }
+    }
+}
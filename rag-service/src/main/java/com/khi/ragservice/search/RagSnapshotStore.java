@@ -0,0 +1,177 @@
+package com.khi.ragservice.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+/*
+ * 데이터셋 fingerprint 별 인덱스 스냅샷 파일 관리.
+ * 한 번 만든 스냅샷은 rag.snapshot.dir 에 rag-<fingerprint>.snap 으로 남기고,
+ * 같은 fingerprint 로 뜨는 레플리카는 (seed_history 확인 한 번 외에는) rag_items 를 읽지 않고 파일을 mmap 해 바로 서비스한다.
+ * HNSW 그래프는 같은 fingerprint 의 rag-<fingerprint>.hnsw 로 따로 남긴다 (벡터는 스냅샷 쪽에 있음).
+ * 파일 이름과 헤더의 fingerprint 는 데이터셋 fingerprint 에 임베딩 상태(on/off, 모델)를 섞은 키라서,
+ * 임베딩을 끈 채 또는 다른 모델로 만든 스냅샷을 집어 가지 않는다.
+ * rag.snapshot.dir 이 비어 있으면 비활성화.
+ */
+@Slf4j
+@Component
+public class RagSnapshotStore {
+
+    private static final String PREFIX = "rag-";
+    private static final String SUFFIX = ".snap";
+    private static final String ANN_SUFFIX = ".hnsw";
+
+    private final Path dir;
+    private final int keep;
+    private final String embeddingState;
+
+    public RagSnapshotStore(@Value("${rag.snapshot.dir:}") String dir,
+                            @Value("${rag.snapshot.keep:2}") int keep,
+                            @Value("${rag.embedding.enabled:false}") boolean embeddingEnabled,
+                            @Value("${rag.embedding.model:intfloat/multilingual-e5-small}") String embeddingModel) {
+        this.dir = dir.isBlank() ? null : Path.of(dir);
+        this.keep = Math.max(1, keep);
+        this.embeddingState = embeddingEnabled ? "embedding=on|model=" + embeddingModel : "embedding=off";
+    }
+
+    public boolean isEnabled() {
+        return dir != null;
+    }
+
+    public boolean exists(String fingerprint) {
+        return isEnabled() && fingerprint != null && Files.isRegularFile(pathOf(fingerprint, SUFFIX));
+    }
+
+    /* 없거나 읽을 수 없으면 null */
+    public RagIndexSnapshot load(String fingerprint) {
+        if (!exists(fingerprint)) return null;
+
+        long t0 = System.nanoTime();
+        try {
+            RagIndexSnapshot snapshot = RagSnapshotFile.map(pathOf(fingerprint, SUFFIX), key(fingerprint));
+            log.info("[snapshot] mapped {} | docs={} | terms={} | vectors={} | {} ms",
+                    pathOf(fingerprint, SUFFIX).getFileName(), snapshot.corpus().size(), snapshot.trigram().termCount(),
+                    snapshot.vector() == null ? 0 : snapshot.vector().vectorCount(),
+                    (System.nanoTime() - t0) / 1_000_000);
+            return snapshot;
+        } catch (Exception e) {
+            log.warn("[snapshot] map {} failed -> rebuild from DB: {}", pathOf(fingerprint, SUFFIX), e.toString());
+            return null;
+        }
+    }
+
+    /* 임시 파일에 쓴 뒤 rename 하므로 다른 레플리카가 쓰다 만 파일을 읽는 일은 없다 */
+    public void save(String fingerprint, RagIndexSnapshot snapshot) {
+        if (!isEnabled() || fingerprint == null || exists(fingerprint)) return;
+
+        long t0 = System.nanoTime();
+        Path target = pathOf(fingerprint, SUFFIX);
+        Path tmp = null;
+        try {
+            Files.createDirectories(dir);
+            tmp = Files.createTempFile(dir, PREFIX, ".tmp");
+            RagSnapshotFile.write(tmp, key(fingerprint), snapshot);
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            log.info("[snapshot] written {} | {} bytes | {} ms",
+                    target.getFileName(), Files.size(target), (System.nanoTime() - t0) / 1_000_000);
+            prune(target, SUFFIX);
+        } catch (Exception e) {
+            log.warn("[snapshot] write {} failed: {}", target, e.toString());
+            deleteQuietly(tmp);
+        }
+    }
+
+    /* 없거나 파라미터가 바뀌었거나 읽을 수 없으면 null */
+    public HnswIndex loadAnn(String fingerprint, VectorIndex vectors, HnswIndex.Params params) {
+        if (!isEnabled() || fingerprint == null) return null;
+        Path path = pathOf(fingerprint, ANN_SUFFIX);
+        if (!Files.isRegularFile(path)) return null;
+
+        try {
+            return HnswFile.read(path, key(fingerprint), vectors, params);
+        } catch (Exception e) {
+            log.warn("[snapshot] read {} failed -> rebuild graph: {}", path.getFileName(), e.toString());
+            return null;
+        }
+    }
+
+    public void saveAnn(String fingerprint, HnswIndex index) {
+        if (!isEnabled() || fingerprint == null) return;
+
+        long t0 = System.nanoTime();
+        Path target = pathOf(fingerprint, ANN_SUFFIX);
+        Path tmp = null;
+        try {
+            Files.createDirectories(dir);
+            tmp = Files.createTempFile(dir, PREFIX, ".tmp");
+            HnswFile.write(tmp, key(fingerprint), index);
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            log.info("[snapshot] written {} | {} bytes | {} ms",
+                    target.getFileName(), Files.size(target), (System.nanoTime() - t0) / 1_000_000);
+            prune(target, ANN_SUFFIX);
+        } catch (Exception e) {
+            log.warn("[snapshot] write {} failed: {}", target, e.toString());
+            deleteQuietly(tmp);
+        }
+    }
+
+    // 최근 keep 개만 남긴다. 이미 mmap 중인 파일은 삭제해도 매핑이 유지된다
+    private void prune(Path current, String suffix) throws IOException {
+        List<Path> snapshots;
+        try (Stream<Path> files = Files.list(dir)) {
+            snapshots = files
+                    .filter(p -> p.getFileName().toString().startsWith(PREFIX) && p.getFileName().toString().endsWith(suffix))
+                    .filter(p -> !p.equals(current))
+                    .sorted(Comparator.comparing(this::lastModified).reversed())
+                    .toList();
+        }
+        for (int i = keep - 1; i < snapshots.size(); i++) {
+            Files.deleteIfExists(snapshots.get(i));
+            log.info("[snapshot] pruned {}", snapshots.get(i).getFileName());
+        }
+    }
+
+    private static void deleteQuietly(Path tmp) {
+        if (tmp == null) return;
+        try {
+            Files.deleteIfExists(tmp);
+        } catch (IOException ignore) {
+            // best effort
+        }
+    }
+
+    private long lastModified(Path p) {
+        try {
+            return Files.getLastModifiedTime(p).toMillis();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private Path pathOf(String fingerprint, String suffix) {
+        return dir.resolve(PREFIX + key(fingerprint) + suffix);
+    }
+
+    // 헤더의 64 byte fingerprint 칸에 그대로 들어가도록 sha-256 hex 로 줄인다
+    private String key(String fingerprint) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest((fingerprint + '\n' + embeddingState).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.khi.ragservice.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Reciprocal Rank Fusion: score(d) = Σ 1 / (rrfK + rank_i(d)), rank 는 1부터.
+ * 입력은 이미 잘린 후보 목록(각 측 top-N)이라 전체 코퍼스를 다시 채점하지 않는다.
+ */
+public final class RankFusion {
+
+    public static final int DEFAULT_RRF_K = 60;
+
+    private RankFusion() {
+    }
+
+    /*
+     * sparse 검색은 매칭이 없을 때 0점 문서를 id 순으로 채워 돌려준다 (SQL fallback 과 동일).
+     * 그런 문서는 근거가 아니므로 순위 점수를 받지 않도록 융합 후보에서 뺀다.
+     */
+    public static List<RagHit> matchedOnly(List<RagHit> sparse) {
+        int matched = 0;
+        while (matched < sparse.size() && sparse.get(matched).score() > 0) matched++;
+        if (matched == sparse.size()) return sparse;
+
+        List<RagHit> out = new ArrayList<>(matched);
+        for (RagHit h : sparse) if (h.score() > 0) out.add(h);
+        return out;
+    }
+
+    public static List<RagHit> reciprocalRank(List<List<RagHit>> rankings, int k, int rrfK) {
+        int total = 0;
+        for (List<RagHit> r : rankings) total += r.size();
+
+        Map<Integer, Integer> slotById = new HashMap<>(total * 2);
+        List<RagHit> hits = new ArrayList<>(total);
+        double[] scores = new double[total];
+
+        for (List<RagHit> ranking : rankings) {
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                RagHit hit = ranking.get(rank);
+                Integer slot = slotById.get(hit.id());
+                if (slot == null) {
+                    slot = hits.size();
+                    slotById.put(hit.id(), slot);
+                    hits.add(hit);
+                }
+                scores[slot] += 1.0 / (rrfK + rank + 1);
+            }
+        }
+
+        TopK top = new TopK(k);
+        for (int slot = 0; slot < hits.size(); slot++) top.offer(slot, scores[slot]);
+
+        List<RagHit> out = new ArrayList<>(top.size());
+        for (int r = 0; r < top.size(); r++) {
+            RagHit h = hits.get(top.doc(r));
+            out.add(new RagHit(h.id(), h.text(), h.label(), h.labelId(), top.score(r)));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,142 @@
+package com.khi.ragservice.search;
+
+import com.khi.ragservice.common.exception.type.IndexNotReadyException;
+import com.khi.ragservice.schema.TrgmSchemaInitializer;
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.R2dbcException;
+import io.r2dbc.spi.Readable;
+import io.r2dbc.spi.Wrapped;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/*
+ * PgTrgmRetriever 의 R2DBC 버전 (같은 SQL).
+ * 응답 구독이 취소되면(클라이언트 연결 끊김) Postgres 에 CancelRequest 를 보내
+ * 서버에서 돌고 있는 similarity 정렬을 끝까지 실행하지 않게 한다.
+ */
+@Slf4j
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactivePgTrgmRetriever {
+
+    private static final String SQL_FILTERED = PgTrgmRetriever.indexedBindMarkers(PgTrgmRetriever.SQL_FILTERED);
+    private static final String SQL_FALLBACK = PgTrgmRetriever.indexedBindMarkers(PgTrgmRetriever.SQL_FALLBACK);
+    private static final String SQL_FILTERED_BATCH = PgTrgmRetriever.indexedBindMarkers(PgTrgmRetriever.SQL_FILTERED_BATCH);
+    private static final String SQL_FALLBACK_BATCH = PgTrgmRetriever.indexedBindMarkers(PgTrgmRetriever.SQL_FALLBACK_BATCH);
+
+    private final ConnectionFactory connectionFactory;
+    private final TrgmSchemaInitializer trgmSchema;
+
+    public boolean isReady() {
+        return trgmSchema.isReady();
+    }
+
+    public Mono<List<RagHit>> retrieve(String queryText, int k) {
+        if (!trgmSchema.isReady()) return Mono.error(new IndexNotReadyException("pg_trgm index is not ready"));
+
+        return withConnection(con -> runQuery(con, SQL_FILTERED, queryText, k)
+                .flatMap(items -> {
+                    if (!items.isEmpty()) return Mono.just(items);
+                    log.info("[RAG] no hits → fallback to full-table similarity sort");
+                    return runQuery(con, SQL_FALLBACK, queryText, k);
+                }));
+    }
+
+    // 필터 쿼리 1회 + (매칭이 없던 질의만 모아) fallback 쿼리 최대 1회
+    public Mono<List<List<RagHit>>> retrieveBatch(List<String> queryTexts, int k) {
+        if (!trgmSchema.isReady()) return Mono.error(new IndexNotReadyException("pg_trgm index is not ready"));
+        if (queryTexts.isEmpty()) return Mono.just(List.of());
+
+        return withConnection(con -> runBatchQuery(con, SQL_FILTERED_BATCH, queryTexts, k)
+                .flatMap(out -> {
+                    List<Integer> missed = new ArrayList<>();
+                    for (int i = 0; i < out.size(); i++) {
+                        if (out.get(i).isEmpty()) missed.add(i);
+                    }
+                    if (missed.isEmpty()) return Mono.just(out);
+
+                    log.info("[RAG] batch no hits for {} queries → fallback to full-table similarity sort", missed.size());
+                    List<String> missedTexts = new ArrayList<>(missed.size());
+                    for (int i : missed) missedTexts.add(queryTexts.get(i));
+
+                    return runBatchQuery(con, SQL_FALLBACK_BATCH, missedTexts, k).map(fallback -> {
+                        for (int j = 0; j < missed.size(); j++) out.set(missed.get(j), fallback.get(j));
+                        return out;
+                    });
+                }));
+    }
+
+    /*
+     * 풀에서 커넥션을 빌려 work 를 실행하고 반납한다.
+     * 취소 시에는 반납 전에 CancelRequest 를 먼저 보낸다 (보내지 않으면 서버 쿼리는 끝날 때까지 계속 돈다).
+     */
+    private <T> Mono<T> withConnection(Function<Connection, Mono<T>> work) {
+        return Mono.usingWhen(
+                        connectionFactory.create(),
+                        work,
+                        Connection::close,
+                        (con, e) -> con.close(),
+                        con -> cancelRequest(con).then(Mono.from(con.close())))
+                .onErrorMap(e -> e instanceof R2dbcException || e instanceof TimeoutException,
+                        e -> new IllegalStateException(e.getMessage(), e));
+    }
+
+    private static Mono<Void> cancelRequest(Connection con) {
+        Object target = con instanceof Wrapped<?> wrapped ? wrapped.unwrap() : con;
+        if (!(target instanceof PostgresqlConnection pg)) return Mono.empty();
+
+        log.info("[RAG] request cancelled → sending pg cancel request");
+        return pg.cancelRequest()
+                .onErrorResume(e -> {
+                    log.warn("[RAG] pg cancel request failed: {}", e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private static Mono<List<RagHit>> runQuery(Connection con, String sql, String queryText, int k) {
+        return Flux.from(con.createStatement(sql)
+                        .bind(0, queryText)
+                        .bind(1, k)
+                        .execute())
+                .flatMap(result -> result.map(ReactivePgTrgmRetriever::toHit))
+                .collectList();
+    }
+
+    private static Mono<List<List<RagHit>>> runBatchQuery(Connection con, String sql, List<String> queryTexts, int k) {
+        return Flux.from(con.createStatement(sql)
+                        .bind(0, queryTexts.toArray(new String[0]))
+                        .bind(1, k)
+                        .execute())
+                .flatMap(result -> result.map(row -> new OrdinalHit(row.get("ord", Long.class).intValue(), toHit(row))))
+                .collect(() -> {
+                    List<List<RagHit>> out = new ArrayList<>(queryTexts.size());
+                    for (int i = 0; i < queryTexts.size(); i++) out.add(new ArrayList<>(k));
+                    return out;
+                }, (out, hit) -> out.get(hit.ord() - 1).add(hit.hit()));
+    }
+
+    private static RagHit toHit(Readable row) {
+        Double score = row.get("score", Double.class);
+        return new RagHit(
+                row.get("id", Integer.class),
+                row.get("text", String.class),
+                row.get("label", String.class),
+                row.get("label_id", Integer.class),
+                score == null ? 0.0 : score);
+    }
+
+    private record OrdinalHit(int ord, RagHit hit) {
+    }
+}
@@ -0,0 +1,20 @@
+package com.khi.ragservice.search;
+
+import com.khi.ragservice.common.exception.type.InvalidQueryException;
+import java.util.Locale;
+
+public enum RetrievalMode {
+
+    SPARSE,
+    DENSE,
+    HYBRID;
+
+    public static RetrievalMode from(String value) {
+        if (value == null || value.isBlank()) return SPARSE;
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidQueryException("unknown retrieval mode: " + value);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.khi.ragservice.search;
+
+import java.util.List;
+
+/*
+ * 색인/질의 공용 텍스트 분석기. 같은 입력에는 항상 같은 term 열을 돌려줘야 한다.
+ * 반환 목록의 중복은 term frequency 로 센다.
+ */
+public interface TextAnalyzer {
+
+    List<String> analyze(String text);
+}
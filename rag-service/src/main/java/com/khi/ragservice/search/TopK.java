@@ -0,0 +1,52 @@
+package com.khi.ragservice.search;
+
+/*
+ * 작은 K 에 대한 상위 K개 선택기. (score 내림차순, 동점이면 먼저 들어온 doc 우선)
+ * 박싱/힙 객체 없이 primitive 배열만 사용한다.
+ */
+public final class TopK {
+
+    private final int[] docs;
+    private final double[] scores;
+    private int size;
+
+    public TopK(int k) {
+        this.docs = new int[Math.max(k, 0)];
+        this.scores = new double[Math.max(k, 0)];
+    }
+
+    public void offer(int doc, double score) {
+        final int k = docs.length;
+        if (k == 0) return;
+        if (size == k && score <= scores[size - 1]) return;
+
+        int pos = size < k ? size++ : k - 1;
+        while (pos > 0 && scores[pos - 1] < score) {
+            docs[pos] = docs[pos - 1];
+            scores[pos] = scores[pos - 1];
+            pos--;
+        }
+        docs[pos] = doc;
+        scores[pos] = score;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int doc(int rank) {
+        return docs[rank];
+    }
+
+    public double score(int rank) {
+        return scores[rank];
+    }
+
+    public double minScore() {
+        return size == 0 ? Double.NEGATIVE_INFINITY : scores[size - 1];
+    }
+
+    public boolean isFull() {
+        return size == docs.length;
+    }
+}
@@ -0,0 +1,378 @@
+package com.khi.ragservice.search;
+
+import com.khi.ragservice.entity.RagItem;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/*
+ * rag_items 전체를 메모리에 올린 trigram posting 인덱스.
+ * 점수는 pg_trgm similarity() 와 같고, 검색 조건도 기존 SQL 과 동일하다.
+ *   WHERE (text||' '||label) % q OR text ILIKE '%q%' OR label ILIKE '%q%'
+ *   (q 의 % / _ 는 와일드카드가 아니라 글자 그대로 찾는다. PgTrgmRetriever 도 패턴을 이스케이프해 같게 맞춘다)
+ *   매칭이 하나도 없으면 전체를 similarity 순으로 정렬 (fallback)
+ * posting 은 term 별 시작 위치(postingStarts) + 한 덩어리 doc 배열(postingDocs) 로 두어
+ * 스냅샷 파일에서 mmap 한 버퍼를 그대로 쓸 수 있다.
+ * 생성 후에는 불변이므로 여러 요청 스레드에서 동시에 읽어도 안전하다.
+ */
+public final class TrigramIndex {
+
+    private final RagCorpus corpus;
+    private final int[] docTrigramCounts;
+    private final int maxFieldLength;
+
+    private final TermTable terms;
+    private final int[] postingStarts;
+    private final IntBuffer postingDocs;
+
+    private TrigramIndex(RagCorpus corpus, int[] docTrigramCounts, int maxFieldLength,
+                         TermTable terms, int[] postingStarts, IntBuffer postingDocs) {
+        this.corpus = corpus;
+        this.docTrigramCounts = docTrigramCounts;
+        this.maxFieldLength = maxFieldLength;
+        this.terms = terms;
+        this.postingStarts = postingStarts;
+        this.postingDocs = postingDocs;
+    }
+
+    /* termKeys[t] 는 term id t 의 trigram. postingStarts 는 termKeys.length + 1 개 */
+    static TrigramIndex mapped(RagCorpus corpus, int[] docTrigramCounts, int maxFieldLength,
+                               long[] termKeys, int[] postingStarts, IntBuffer postingDocs) {
+        return new TrigramIndex(corpus, docTrigramCounts, maxFieldLength,
+                TermTable.of(termKeys), postingStarts, postingDocs);
+    }
+
+    public static TrigramIndex build(Collection<RagItem> items) {
+        return build(RagCorpus.of(items));
+    }
+
+    public static TrigramIndex build(RagCorpus corpus) {
+        final int n = corpus.size();
+        int[] counts = new int[n];
+        long[][] docTrigrams = new long[n][];
+        int maxFieldLength = 0;
+
+        TermTable terms = new TermTable(Math.min(Math.max(16, n * 8), 1 << 20));
+        int[] df = new int[16];
+
+        for (int d = 0; d < n; d++) {
+            String text = corpus.text(d);
+            String label = corpus.label(d);
+            maxFieldLength = Math.max(maxFieldLength, Math.max(text.length(), label.length()));
+
+            long[] tg = Trigrams.extract(text + " " + label);
+            docTrigrams[d] = tg;
+            counts[d] = tg.length;
+            for (long t : tg) {
+                int term = terms.getOrAdd(t);
+                if (term >= df.length) df = Arrays.copyOf(df, df.length * 2);
+                df[term]++;
+            }
+        }
+
+        final int termCount = terms.size();
+        int[] starts = new int[termCount + 1];
+        for (int t = 0; t < termCount; t++) starts[t + 1] = Math.addExact(starts[t], df[t]);
+        int[] docs = new int[starts[termCount]];
+        int[] fill = Arrays.copyOf(starts, termCount);
+        for (int d = 0; d < n; d++) {
+            for (long t : docTrigrams[d]) {
+                docs[fill[terms.get(t)]++] = d;
+            }
+        }
+
+        return new TrigramIndex(corpus, counts, maxFieldLength, terms, starts, IntBuffer.wrap(docs));
+    }
+
+    public RagCorpus corpus() {
+        return corpus;
+    }
+
+    public int size() {
+        return corpus.size();
+    }
+
+    public int termCount() {
+        return terms.size();
+    }
+
+    int maxFieldLength() {
+        return maxFieldLength;
+    }
+
+    int[] docTrigramCounts() {
+        return docTrigramCounts;
+    }
+
+    long[] termKeys() {
+        return terms.keysInOrder();
+    }
+
+    int[] postingStarts() {
+        return postingStarts;
+    }
+
+    IntBuffer postingDocs() {
+        return postingDocs.duplicate();
+    }
+
+    public List<RagHit> search(String queryText, int k) {
+        final int n = corpus.size();
+        if (n == 0 || k <= 0) return List.of();
+
+        final String q = queryText == null ? "" : queryText;
+        final long[] qTrigrams = Trigrams.extract(q);
+        final Shared shared = shared(qTrigrams);
+
+        // 조건을 만족하는 문서를 doc 순서로 모은 뒤 넣는다 (동점이면 doc 순서, 기존 SQL 결과와 같게)
+        TopK matched = new TopK(k);
+        // ILIKE '%q%' 는 q 가 필드보다 길면 절대 매칭되지 않는다
+        if (q.length() <= maxFieldLength) {
+            long[] needle = Trigrams.interior(q);
+            if (needle.length == 0) {
+                // trigram 하나도 안 되는 짧은 질의만 전체 스캔
+                for (int d = 0; d < n; d++) {
+                    double score = score(d, shared.get(d), qTrigrams.length);
+                    if (score >= Trigrams.SIMILARITY_THRESHOLD || containsQuery(d, q)) matched.offer(d, score);
+                }
+            } else {
+                offerMerged(matched, shared, qTrigrams.length, substringCandidates(needle), q);
+            }
+        } else {
+            offerMerged(matched, shared, qTrigrams.length, null, q);
+        }
+        if (matched.size() > 0) return toHits(matched);
+
+        // fallback: 전체 similarity 정렬. 공유 trigram 이 없는 문서는 0점이므로 id 순으로 채운다
+        TopK fallback = new TopK(k);
+        for (int i = 0; i < shared.size; i++) {
+            fallback.offer(shared.docs[i], score(shared.docs[i], shared.counts[i], qTrigrams.length));
+        }
+        for (int d = 0; d < n && !fallback.isFull(); d++) {
+            if (shared.get(d) == 0) fallback.offer(d, 0.0);
+        }
+        return toHits(fallback);
+    }
+
+    /*
+     * similarity 조건을 만족하는 문서(shared) 와 부분 문자열 후보(candidates, 포함 여부는 여기서 확인) 를
+     * doc 오름차순으로 합쳐 넣는다. candidates 가 null 이면 similarity 조건만 본다.
+     */
+    private void offerMerged(TopK top, Shared shared, int queryCount, int[] candidates, String q) {
+        int i = 0, j = 0;
+        final int candidateCount = candidates == null ? 0 : candidates.length;
+        while (i < shared.size || j < candidateCount) {
+            int a = i < shared.size ? shared.docs[i] : Integer.MAX_VALUE;
+            int b = j < candidateCount ? candidates[j] : Integer.MAX_VALUE;
+            int d = Math.min(a, b);
+            int count = 0;
+            if (a == d) count = shared.counts[i++];
+            if (b == d) j++;
+
+            double score = score(d, count, queryCount);
+            if (score >= Trigrams.SIMILARITY_THRESHOLD || (b == d && containsQuery(d, q))) top.offer(d, score);
+        }
+    }
+
+    private boolean containsQuery(int doc, String q) {
+        return Trigrams.containsIgnoreCase(corpus.text(doc), q) || Trigrams.containsIgnoreCase(corpus.label(doc), q);
+    }
+
+    // needle 의 trigram 을 모두 가진 문서 (doc 오름차순). 가장 짧은 posting 을 돌며 나머지는 이진 탐색
+    private int[] substringCandidates(long[] needle) {
+        int[] needleTerms = new int[needle.length];
+        int rarest = 0;
+        for (int i = 0; i < needle.length; i++) {
+            int term = terms.get(needle[i]);
+            if (term < 0) return new int[0];
+            needleTerms[i] = term;
+            if (postingLength(term) < postingLength(needleTerms[rarest])) rarest = i;
+        }
+
+        final int base = needleTerms[rarest];
+        int[] out = new int[postingLength(base)];
+        int count = 0;
+        for (int p = postingStarts[base], end = postingStarts[base + 1]; p < end; p++) {
+            int d = postingDocs.get(p);
+            boolean all = true;
+            for (int term : needleTerms) {
+                if (term != base && !postingContains(term, d)) {
+                    all = false;
+                    break;
+                }
+            }
+            if (all) out[count++] = d;
+        }
+        return Arrays.copyOf(out, count);
+    }
+
+    private int postingLength(int term) {
+        return postingStarts[term + 1] - postingStarts[term];
+    }
+
+    private boolean postingContains(int term, int doc) {
+        int lo = postingStarts[term], hi = postingStarts[term + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int d = postingDocs.get(mid);
+            if (d < doc) lo = mid + 1;
+            else if (d > doc) hi = mid - 1;
+            else return true;
+        }
+        return false;
+    }
+
+    /*
+     * 질의 trigram 을 공유하는 문서별 공유 개수. 문서 수 크기 배열 대신 posting 을 모아 정렬해서 센다
+     * (질의가 건드린 posting 양에 비례하는 메모리/시간).
+     */
+    private Shared shared(long[] qTrigrams) {
+        int[] docs = new int[postingVolume(qTrigrams)];
+        int volume = 0;
+        for (long t : qTrigrams) {
+            int term = terms.get(t);
+            if (term < 0) continue;
+            for (int p = postingStarts[term], end = postingStarts[term + 1]; p < end; p++) docs[volume++] = postingDocs.get(p);
+        }
+        Arrays.sort(docs, 0, volume);
+
+        int[] counts = new int[volume];
+        int size = 0;
+        for (int i = 0; i < volume; i++) {
+            if (size > 0 && docs[size - 1] == docs[i]) {
+                counts[size - 1]++;
+            } else {
+                docs[size] = docs[i];
+                counts[size++] = 1;
+            }
+        }
+        return new Shared(docs, counts, size);
+    }
+
+    private record Shared(int[] docs, int[] counts, int size) {
+
+        int get(int doc) {
+            int i = Arrays.binarySearch(docs, 0, size, doc);
+            return i >= 0 ? counts[i] : 0;
+        }
+    }
+
+    /* 모든 문서의 similarity 를 매기는 scorer (label 별 검색용, 매칭 조건 없이 순위만) */
+    public DocScorer scorer(String queryText) {
+        long[] qTrigrams = Trigrams.extract(queryText == null ? "" : queryText);
+        int[] shared = new int[corpus.size()];
+        for (long t : qTrigrams) {
+            int term = terms.get(t);
+            if (term < 0) continue;
+            for (int p = postingStarts[term], end = postingStarts[term + 1]; p < end; p++) shared[postingDocs.get(p)]++;
+        }
+        final int queryCount = qTrigrams.length;
+        return doc -> score(doc, shared[doc], queryCount);
+    }
+
+    private double score(int doc, int sharedCount, int queryCount) {
+        return Trigrams.similarity(sharedCount, queryCount, docTrigramCounts[doc]);
+    }
+
+    private int postingVolume(long[] qTrigrams) {
+        long volume = 0;
+        for (long t : qTrigrams) {
+            int term = terms.get(t);
+            if (term >= 0) volume += postingStarts[term + 1] - postingStarts[term];
+        }
+        return (int) Math.min(volume, Integer.MAX_VALUE);
+    }
+
+    private List<RagHit> toHits(TopK top) {
+        List<RagHit> out = new ArrayList<>(top.size());
+        for (int r = 0; r < top.size(); r++) out.add(corpus.hit(top.doc(r), top.score(r)));
+        return out;
+    }
+
+    /* long(trigram) -> int(term id) open addressing 테이블 */
+    private static final class TermTable {
+
+        private static final long EMPTY = -1L;
+
+        private long[] keys;
+        private int[] values;
+        private int size;
+
+        TermTable(int expected) {
+            int cap = Integer.highestOneBit(Math.max(4, expected * 2) - 1) << 1;
+            keys = new long[cap];
+            values = new int[cap];
+            Arrays.fill(keys, EMPTY);
+        }
+
+        /* keys 의 순서대로 term id 0, 1, 2... 를 부여 (keys 는 중복 없음) */
+        static TermTable of(long[] keys) {
+            TermTable table = new TermTable(keys.length);
+            for (long key : keys) table.getOrAdd(key);
+            return table;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long[] keysInOrder() {
+            long[] out = new long[size];
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != EMPTY) out[values[i]] = keys[i];
+            }
+            return out;
+        }
+
+        int get(long key) {
+            final int mask = keys.length - 1;
+            int i = mix(key) & mask;
+            while (true) {
+                long k = keys[i];
+                if (k == key) return values[i];
+                if (k == EMPTY) return -1;
+                i = (i + 1) & mask;
+            }
+        }
+
+        int getOrAdd(long key) {
+            if ((size + 1) * 2 > keys.length) grow();
+            final int mask = keys.length - 1;
+            int i = mix(key) & mask;
+            while (true) {
+                long k = keys[i];
+                if (k == key) return values[i];
+                if (k == EMPTY) {
+                    keys[i] = key;
+                    values[i] = size;
+                    return size++;
+                }
+                i = (i + 1) & mask;
+            }
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldValues.length * 2];
+            Arrays.fill(keys, EMPTY);
+            final int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] == EMPTY) continue;
+                int i = mix(oldKeys[j]) & mask;
+                while (keys[i] != EMPTY) i = (i + 1) & mask;
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+
+        private static int mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
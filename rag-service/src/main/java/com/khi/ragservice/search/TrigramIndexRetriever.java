@@ -0,0 +1,38 @@
+package com.khi.ragservice.search;
+
+import com.khi.ragservice.common.exception.type.IndexNotReadyException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+public class TrigramIndexRetriever implements RagRetriever {
+
+    private final RagIndexManager indexManager;
+
+    @Override
+    public boolean isReady() {
+        return indexManager.current() != null;
+    }
+
+    @Override
+    public List<RagHit> retrieve(String queryText, int k) {
+        RagIndexSnapshot current = indexManager.current();
+        if (current == null) throw new IndexNotReadyException("trigram index is not ready");
+        return current.trigram().search(queryText, k);
+    }
+
+    // 배치 전체가 같은 스냅샷을 보도록 한 번만 읽는다
+    @Override
+    public List<List<RagHit>> retrieveBatch(List<String> queryTexts, int k) {
+        RagIndexSnapshot current = indexManager.current();
+        if (current == null) throw new IndexNotReadyException("trigram index is not ready");
+
+        List<List<RagHit>> out = new ArrayList<>(queryTexts.size());
+        for (String q : queryTexts) out.add(current.trigram().search(q, k));
+        return out;
+    }
+}
@@ -0,0 +1,102 @@
+package com.khi.ragservice.search;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/*
+ * pg_trgm 과 동일한 규칙으로 trigram 을 추출한다.
+ * - 소문자화 후 문자/숫자가 아닌 글자를 기준으로 단어 분리
+ * - 각 단어 앞에 공백 2개, 뒤에 공백 1개 패딩
+ * - 중복 제거된 trigram 집합 (3개의 UTF-16 char 를 long 하나로 패킹)
+ */
+public final class Trigrams {
+
+    public static final double SIMILARITY_THRESHOLD = 0.3;
+
+    private static final long[] EMPTY = new long[0];
+
+    private Trigrams() {
+    }
+
+    public static long[] extract(String s) {
+        if (s == null || s.isEmpty()) return EMPTY;
+
+        String lower = s.toLowerCase(Locale.ROOT);
+        long[] buf = new long[lower.length() * 3 + 3];
+        int n = 0;
+
+        int i = 0;
+        final int len = lower.length();
+        while (i < len) {
+            while (i < len && !Character.isLetterOrDigit(lower.charAt(i))) i++;
+            int start = i;
+            while (i < len && Character.isLetterOrDigit(lower.charAt(i))) i++;
+            if (i == start) continue;
+
+            // "  word " 패딩을 실제 문자열로 만들지 않고 위치로 계산
+            int padded = (i - start) + 3;
+            for (int p = 0; p + 2 < padded; p++) {
+                buf[n++] = pack(charAt(lower, start, i, p), charAt(lower, start, i, p + 1), charAt(lower, start, i, p + 2));
+            }
+        }
+
+        if (n == 0) return EMPTY;
+        Arrays.sort(buf, 0, n);
+        int u = 1;
+        for (int j = 1; j < n; j++) {
+            if (buf[j] != buf[u - 1]) buf[u++] = buf[j];
+        }
+        return Arrays.copyOf(buf, u);
+    }
+
+    /*
+     * ILIKE '%q%' 후보를 좁히기 위한 q 내부 trigram (pg_trgm 이 LIKE 패턴에 GIN 을 쓸 때와 같은 방식).
+     * 패턴 양끝은 단어 중간일 수 있으므로 패딩 trigram 은 빼고, 글자/숫자가 3개 연속인 부분만 쓴다.
+     * 필드가 q 를 포함하면 이 trigram 들은 모두 그 문서의 trigram 집합에 있다. 없으면 빈 배열 (후보를 좁힐 수 없음)
+     */
+    public static long[] interior(String s) {
+        if (s == null || s.length() < 3) return EMPTY;
+
+        String lower = s.toLowerCase(Locale.ROOT);
+        long[] buf = new long[lower.length()];
+        int n = 0;
+        for (int i = 0; i + 2 < lower.length(); i++) {
+            char a = lower.charAt(i), b = lower.charAt(i + 1), c = lower.charAt(i + 2);
+            if (Character.isLetterOrDigit(a) && Character.isLetterOrDigit(b) && Character.isLetterOrDigit(c)) {
+                buf[n++] = pack(a, b, c);
+            }
+        }
+
+        if (n == 0) return EMPTY;
+        Arrays.sort(buf, 0, n);
+        int u = 1;
+        for (int j = 1; j < n; j++) {
+            if (buf[j] != buf[u - 1]) buf[u++] = buf[j];
+        }
+        return Arrays.copyOf(buf, u);
+    }
+
+    public static double similarity(int shared, int queryCount, int docCount) {
+        int union = queryCount + docCount - shared;
+        return union <= 0 ? 0.0 : (double) shared / union;
+    }
+
+    /* ILIKE '%q%' 와 동일한 대소문자 무시 부분 문자열 검사 (할당 없음) */
+    public static boolean containsIgnoreCase(String haystack, String needle) {
+        if (needle.isEmpty()) return true;
+        final int max = haystack.length() - needle.length();
+        for (int i = 0; i <= max; i++) {
+            if (haystack.regionMatches(true, i, needle, 0, needle.length())) return true;
+        }
+        return false;
+    }
+
+    private static char charAt(String s, int start, int end, int paddedPos) {
+        int p = paddedPos - 2;
+        return (p < 0 || start + p >= end) ? ' ' : s.charAt(start + p);
+    }
+
+    private static long pack(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+}
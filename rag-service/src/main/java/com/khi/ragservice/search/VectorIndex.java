@@ -0,0 +1,279 @@
+package com.khi.ragservice.search;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * 정규화된 임베딩을 row-major 로 off-heap 버퍼에 저장하고 내적(= cosine) 기준 전수 탐색으로 top-K 를 구한다.
+ * 행렬은 Int8Vectors 처럼 행 경계로 나눈 세그먼트(세그먼트당 최대 1GB) 들이라 행 수 × dim 이 2GB 를 넘어도 된다.
+ * row 는 RagCorpus 의 ordinal 과 같다. 임베딩이 없는 문서는 hasVector=false.
+ * 스냅샷 파일에서 읽은 경우 세그먼트는 mmap 한 읽기 전용 버퍼다.
+ * withAnn 으로 HNSW 그래프를 붙이면 search 는 근사 탐색으로, searchExact 는 계속 전수 탐색으로 동작한다.
+ * withQuantized 로 int8 사본을 붙이면 (그래프가 없을 때) search 는 int8 코드만 훑어 후보를 고르고
+ * 상위 후보만 float 행으로 다시 점수를 매긴다. 스냅샷에서 mmap 한 경우 float 행은 후보 몇 개만 페이지 인된다.
+ * (withRowsOf 로 메모리에 만든 행을 스냅샷 파일의 mmap 행으로 바꿀 수 있다)
+ */
+public final class VectorIndex {
+
+    private static final long SEGMENT_BYTES = 1L << 30;
+
+    private final RagCorpus corpus;
+    private final int dim;
+    private final int rowsPerSegment;
+    private final FloatBuffer[] segments;
+    private final boolean[] hasVector;
+    private final HnswIndex ann;
+    private final Int8Vectors quantized;
+    private final int rerank;
+
+    private VectorIndex(RagCorpus corpus, int dim, FloatBuffer[] segments, boolean[] hasVector,
+                        HnswIndex ann, Int8Vectors quantized, int rerank) {
+        this.corpus = corpus;
+        this.dim = dim;
+        this.rowsPerSegment = rowsPerSegment(corpus.size(), dim);
+        this.segments = segments;
+        this.hasVector = hasVector;
+        this.ann = ann;
+        this.quantized = quantized;
+        this.rerank = rerank;
+    }
+
+    /* 세그먼트 하나에 들어가는 행 수. 스냅샷 파일도 같은 경계로 나눠 mmap 한다 */
+    static int rowsPerSegment(int n, int dim) {
+        return (int) Math.max(1, Math.min(n, SEGMENT_BYTES / ((long) Math.max(1, dim) * Float.BYTES)));
+    }
+
+    /* segments 는 rowsPerSegment 행씩 나눈 corpus.size() * dim 개의 float */
+    static VectorIndex mapped(RagCorpus corpus, int dim, FloatBuffer[] segments, boolean[] hasVector) {
+        final int n = corpus.size();
+        final int rows = rowsPerSegment(n, dim);
+        if (segments.length != (n + rows - 1) / rows || hasVector.length != n) {
+            throw new IllegalArgumentException("vector matrix size mismatch");
+        }
+        for (int s = 0; s < segments.length; s++) {
+            if (segments[s].capacity() != (long) Math.min(rows, n - s * rows) * dim) {
+                throw new IllegalArgumentException("vector matrix size mismatch");
+            }
+        }
+        return new VectorIndex(corpus, dim, segments, hasVector, null, null, 0);
+    }
+
+    public static Builder builder(RagCorpus corpus, int dim) {
+        return new Builder(corpus, dim);
+    }
+
+    public RagCorpus corpus() {
+        return corpus;
+    }
+
+    public int dim() {
+        return dim;
+    }
+
+    public int size() {
+        return corpus.size();
+    }
+
+    public int vectorCount() {
+        int c = 0;
+        for (boolean b : hasVector) if (b) c++;
+        return c;
+    }
+
+    boolean hasVector(int doc) {
+        return hasVector[doc];
+    }
+
+    /* 행 순서대로 이어 붙이면 row-major 행렬이 되는 세그먼트들 */
+    FloatBuffer[] segments() {
+        FloatBuffer[] out = new FloatBuffer[segments.length];
+        for (int s = 0; s < segments.length; s++) out[s] = segments[s].duplicate();
+        return out;
+    }
+
+    /* 같은 행렬을 공유하고 search 만 ann 그래프로 하는 인덱스 (ann 은 이 인덱스의 벡터로 만든 것이어야 한다) */
+    public VectorIndex withAnn(HnswIndex ann) {
+        if (ann != null && ann.vectors().segments != segments) {
+            throw new IllegalArgumentException("hnsw graph was built over a different vector matrix");
+        }
+        return new VectorIndex(corpus, dim, segments, hasVector, ann, quantized, rerank);
+    }
+
+    /*
+     * 같은 행을 가진 다른 인덱스(보통 스냅샷에서 mmap 한 것)의 float 행렬을 쓰는 인덱스.
+     * ann/int8 사본은 그대로 두므로 ann 이 붙어 있으면 쓰지 않는다 (그래프는 원래 행렬을 읽는다).
+     */
+    public VectorIndex withRowsOf(VectorIndex other) {
+        if (ann != null) throw new IllegalStateException("hnsw graph reads the original vector matrix");
+        if (other.dim != dim || other.size() != size() || !Arrays.equals(other.hasVector, hasVector)) {
+            throw new IllegalArgumentException("vector rows do not match");
+        }
+        return new VectorIndex(corpus, dim, other.segments, hasVector, null, quantized, rerank);
+    }
+
+    /*
+     * int8 사본으로 후보를 고르는 인덱스. rerank > 0 이면 k * rerank 개 후보를 float 내적으로 다시 정렬하고,
+     * 0 이면 int8 근사 점수를 그대로 반환한다.
+     */
+    public VectorIndex withQuantized(Int8Vectors quantized, int rerank) {
+        if (quantized != null && quantized.dim() != dim) {
+            throw new IllegalArgumentException("quantized dim " + quantized.dim() + " != index dim " + dim);
+        }
+        return new VectorIndex(corpus, dim, segments, hasVector, ann, quantized, Math.max(0, rerank));
+    }
+
+    /* 붙어 있는 HNSW 그래프 (없으면 null) */
+    public HnswIndex ann() {
+        return ann;
+    }
+
+    /* 붙어 있는 int8 사본 (없으면 null) */
+    public Int8Vectors quantized() {
+        return quantized;
+    }
+
+    public List<RagHit> search(float[] query, int k) {
+        if (ann == null && quantized == null) return searchExact(query, k);
+        if (query.length != dim) {
+            throw new IllegalArgumentException("query dim " + query.length + " != index dim " + dim);
+        }
+        if (ann != null) return ann.search(query, k);
+
+        TopK candidates = quantized.top(query, rerank == 0 ? k : Math.multiplyExact(k, rerank));
+        TopK top = candidates;
+        if (rerank > 0) {
+            top = new TopK(k);
+            for (int r = 0; r < candidates.size(); r++) top.offer(candidates.doc(r), dot(query, candidates.doc(r)));
+        }
+
+        List<RagHit> out = new ArrayList<>(top.size());
+        for (int r = 0; r < top.size(); r++) out.add(corpus.hit(top.doc(r), top.score(r)));
+        return out;
+    }
+
+    public List<RagHit> searchExact(float[] query, int k) {
+        if (query.length != dim) {
+            throw new IllegalArgumentException("query dim " + query.length + " != index dim " + dim);
+        }
+
+        TopK top = new TopK(k);
+        final int n = corpus.size();
+        for (int d = 0; d < n; d++) {
+            if (!hasVector[d]) continue;
+            top.offer(d, dot(query, d));
+        }
+
+        List<RagHit> out = new ArrayList<>(top.size());
+        for (int r = 0; r < top.size(); r++) out.add(corpus.hit(top.doc(r), top.score(r)));
+        return out;
+    }
+
+    /* 벡터가 없는 문서는 NaN. 절대 위치 get 만 쓰므로 여러 스레드에서 같이 호출해도 된다 */
+    public DocScorer scorer(float[] query) {
+        if (query.length != dim) {
+            throw new IllegalArgumentException("query dim " + query.length + " != index dim " + dim);
+        }
+        return doc -> hasVector[doc] ? dot(query, doc) : Double.NaN;
+    }
+
+    float similarity(float[] q, int doc) {
+        return dot(q, doc);
+    }
+
+    float similarity(int a, int b) {
+        final FloatBuffer ma = segments[a / rowsPerSegment];
+        final FloatBuffer mb = segments[b / rowsPerSegment];
+        final int oa = (a % rowsPerSegment) * dim;
+        final int ob = (b % rowsPerSegment) * dim;
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        final int upper = dim & ~3;
+        for (; i < upper; i += 4) {
+            s0 += ma.get(oa + i) * mb.get(ob + i);
+            s1 += ma.get(oa + i + 1) * mb.get(ob + i + 1);
+            s2 += ma.get(oa + i + 2) * mb.get(ob + i + 2);
+            s3 += ma.get(oa + i + 3) * mb.get(ob + i + 3);
+        }
+        for (; i < dim; i++) s0 += ma.get(oa + i) * mb.get(ob + i);
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    void copyRow(int doc, float[] out) {
+        segments[doc / rowsPerSegment].get((doc % rowsPerSegment) * dim, out, 0, dim);
+    }
+
+    /*
+     * 4개의 누산기로 풀어 쓴 내적. 분기 없는 단순 루프라 C2 가 벡터 명령으로 컴파일하기 좋다.
+     * (jdk.incubator.vector 는 Java 21 에서 인큐베이터라 별도 모듈 플래그가 필요해 사용하지 않음)
+     */
+    private float dot(float[] q, int doc) {
+        final FloatBuffer m = segments[doc / rowsPerSegment];
+        final int offset = (doc % rowsPerSegment) * dim;
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        final int upper = dim & ~3;
+        for (; i < upper; i += 4) {
+            s0 += q[i] * m.get(offset + i);
+            s1 += q[i + 1] * m.get(offset + i + 1);
+            s2 += q[i + 2] * m.get(offset + i + 2);
+            s3 += q[i + 3] * m.get(offset + i + 3);
+        }
+        for (; i < dim; i++) s0 += q[i] * m.get(offset + i);
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    public static final class Builder {
+
+        private final RagCorpus corpus;
+        private final int dim;
+        private final int rowsPerSegment;
+        private final FloatBuffer[] segments;
+        private final boolean[] hasVector;
+
+        private Builder(RagCorpus corpus, int dim) {
+            final int n = corpus.size();
+            this.corpus = corpus;
+            this.dim = dim;
+            this.rowsPerSegment = rowsPerSegment(n, dim);
+            this.segments = new FloatBuffer[(n + rowsPerSegment - 1) / rowsPerSegment];
+            for (int s = 0; s < segments.length; s++) {
+                int rows = Math.min(rowsPerSegment, n - s * rowsPerSegment);
+                segments[s] = ByteBuffer.allocateDirect(rows * dim * Float.BYTES)
+                        .order(ByteOrder.nativeOrder())
+                        .asFloatBuffer();
+            }
+            this.hasVector = new boolean[n];
+        }
+
+        /* id 기준으로 벡터를 넣는다. 코퍼스에 없는 id 는 무시하고 false 를 반환 */
+        public boolean put(int id, float[] vector) {
+            int doc = corpus.ordinalOf(id);
+            if (doc < 0) return false;
+            if (vector.length != dim) {
+                throw new IllegalArgumentException("vector dim " + vector.length + " != index dim " + dim);
+            }
+            segments[doc / rowsPerSegment].put((doc % rowsPerSegment) * dim, vector);
+            hasVector[doc] = true;
+            return true;
+        }
+
+        /* 이전 인덱스의 doc 행을 그대로 복사 (재임베딩/재조회 없이 재사용) */
+        public boolean copyFrom(VectorIndex previous, int previousDoc) {
+            if (previous.dim != dim || !previous.hasVector[previousDoc]) return false;
+            int doc = corpus.ordinalOf(previous.corpus.id(previousDoc));
+            if (doc < 0) return false;
+            segments[doc / rowsPerSegment].put((doc % rowsPerSegment) * dim,
+                    previous.segments[previousDoc / previous.rowsPerSegment], (previousDoc % previous.rowsPerSegment) * dim, dim);
+            hasVector[doc] = true;
+            return true;
+        }
+
+        public VectorIndex build() {
+            return new VectorIndex(corpus, dim, segments, hasVector, null, null, 0);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.khi.ragservice.service;
+
+import com.khi.ragservice.common.exception.type.IndexNotReadyException;
+import com.khi.ragservice.common.exception.type.InvalidQueryException;
+import com.khi.ragservice.dto.RagLabelResponse;
+import com.khi.ragservice.embedding.EmbeddingClient;
+import com.khi.ragservice.search.DocScorer;
+import com.khi.ragservice.search.LabelPartitions;
+import com.khi.ragservice.search.RagHit;
+import com.khi.ragservice.search.RagIndexManager;
+import com.khi.ragservice.search.RagIndexSnapshot;
+import com.khi.ragservice.search.RankFusion;
+import com.khi.ragservice.search.RetrievalMode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/*
+ * label_id 별 top-K 근거와 label 단위 점수 분포를 한 번에 구한다 (분류용).
+ * 질의당 점수 계산(posting 순회 / 질의 임베딩)은 한 번만 하고, label 파티션별 top-K 선택만 나눠서 돌린다.
+ * 인메모리 인덱스만 사용한다 (engine=postgres 여도 sparse 는 trigram 인덱스).
+ */
+@Slf4j
+@Service
+public class LabelRagService {
+
+    public static final int MAX_PER_LABEL = 20;
+
+    private final RagIndexManager indexManager;
+    private final ObjectProvider<EmbeddingClient> embeddingClient;
+    private final Executor searchExecutor;
+    private final int hybridCandidates;
+    private final int rrfK;
+    private final int parallelThreshold;
+
+    public LabelRagService(@Value("${rag.hybrid.candidates:50}") int hybridCandidates,
+                           @Value("${rag.hybrid.rrf-k:" + RankFusion.DEFAULT_RRF_K + "}") int rrfK,
+                           @Value("${rag.labels.parallel-threshold:50000}") int parallelThreshold,
+                           RagIndexManager indexManager,
+                           ObjectProvider<EmbeddingClient> embeddingClient,
+                           @Qualifier("ragSearchExecutor") Executor searchExecutor) {
+
+        this.indexManager = indexManager;
+        this.embeddingClient = embeddingClient;
+        this.searchExecutor = searchExecutor;
+        this.hybridCandidates = hybridCandidates;
+        this.rrfK = rrfK;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public List<RagLabelResponse.LabelResult> search(String queryText, int perLabel, RetrievalMode mode) {
+        if (perLabel < 1 || perLabel > MAX_PER_LABEL) {
+            throw new InvalidQueryException("per-label k must be between 1 and " + MAX_PER_LABEL);
+        }
+        final String q = QueryNormalizer.normalize(queryText);
+        final RagIndexSnapshot current = indexManager.current();
+        if (current == null) throw new IndexNotReadyException("trigram index is not ready");
+
+        LabelPartitions partitions = current.corpus().labelPartitions();
+        List<List<RagHit>> perPartition = switch (mode) {
+            case SPARSE -> topPerPartition(partitions, sparseScorer(current, q), perLabel);
+            case DENSE -> topPerPartition(partitions, denseScorer(current, q), perLabel);
+            case HYBRID -> hybrid(current, partitions, q, perLabel);
+        };
+        return aggregate(partitions, perPartition);
+    }
+
+    private List<List<RagHit>> hybrid(RagIndexSnapshot current, LabelPartitions partitions, String q, int perLabel) {
+        if (current.vector() == null || embeddingClient.getIfAvailable() == null) {
+            log.warn("[rag] dense retrieval not ready -> hybrid falls back to sparse");
+            return topPerPartition(partitions, sparseScorer(current, q), perLabel);
+        }
+        final int candidates = Math.max(perLabel, Math.min(hybridCandidates, largestPartition(partitions)));
+
+        // 질의 임베딩(HTTP)을 기다리는 동안 sparse 점수를 계산
+        CompletableFuture<DocScorer> dense = CompletableFuture.supplyAsync(() -> denseScorer(current, q), searchExecutor);
+        List<List<RagHit>> sparse = topPerPartition(partitions, sparseScorer(current, q), candidates);
+        List<List<RagHit>> denseHits = topPerPartition(partitions, join(dense), candidates);
+
+        List<List<RagHit>> out = new ArrayList<>(partitions.count());
+        for (int p = 0; p < partitions.count(); p++) {
+            out.add(RankFusion.reciprocalRank(List.of(RankFusion.matchedOnly(sparse.get(p)), denseHits.get(p)), perLabel, rrfK));
+        }
+        return out;
+    }
+
+    private static DocScorer sparseScorer(RagIndexSnapshot current, String q) {
+        return current.bm25() != null ? current.bm25().scorer(q) : current.trigram().scorer(q);
+    }
+
+    private DocScorer denseScorer(RagIndexSnapshot current, String q) {
+        EmbeddingClient client = embeddingClient.getIfAvailable();
+        if (client == null) throw new IndexNotReadyException("dense retrieval is disabled (rag.embedding.enabled=false)");
+        if (current.vector() == null) throw new IndexNotReadyException("vector index is not ready");
+        return current.vector().scorer(client.embedQuery(q));
+    }
+
+    /* 코퍼스가 작으면 요청 스레드에서, 크면 파티션을 나눠 searchExecutor 에서 병렬로 고른다 */
+    private List<List<RagHit>> topPerPartition(LabelPartitions partitions, DocScorer scorer, int k) {
+        final int count = partitions.count();
+        if (count <= 1 || partitions.docCount() < parallelThreshold) {
+            List<List<RagHit>> out = new ArrayList<>(count);
+            for (int p = 0; p < count; p++) out.add(partitions.top(p, scorer, k));
+            return out;
+        }
+
+        List<CompletableFuture<List<RagHit>>> futures = new ArrayList<>(count);
+        for (int p = 0; p < count; p++) {
+            final int partition = p;
+            futures.add(CompletableFuture.supplyAsync(() -> partitions.top(partition, scorer, k), searchExecutor));
+        }
+        List<List<RagHit>> out = new ArrayList<>(count);
+        for (CompletableFuture<List<RagHit>> f : futures) out.add(join(f));
+        return out;
+    }
+
+    // label score = 근거 점수(음수는 0) 합, share = 전체 합 대비 비율
+    private static List<RagLabelResponse.LabelResult> aggregate(LabelPartitions partitions, List<List<RagHit>> perPartition) {
+        final int count = partitions.count();
+        double[] scores = new double[count];
+        double total = 0;
+        for (int p = 0; p < count; p++) {
+            for (RagHit hit : perPartition.get(p)) scores[p] += Math.max(0.0, hit.score());
+            total += scores[p];
+        }
+
+        List<RagLabelResponse.LabelResult> out = new ArrayList<>(count);
+        for (int p = 0; p < count; p++) {
+            double share = total > 0 ? scores[p] / total : 1.0 / count;
+            out.add(new RagLabelResponse.LabelResult(partitions.labelId(p), partitions.label(p), scores[p], share,
+                    perPartition.get(p)));
+        }
+        out.sort(Comparator.comparingDouble(RagLabelResponse.LabelResult::score).reversed());
+        return out;
+    }
+
+    private static int largestPartition(LabelPartitions partitions) {
+        int max = 0;
+        for (int p = 0; p < partitions.count(); p++) max = Math.max(max, partitions.size(p));
+        return max;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.khi.ragservice.service;
+
+import java.text.Normalizer;
+
+public final class QueryNormalizer {
+
+    private QueryNormalizer() {
+    }
+
+    /* NFC 정규화 + 연속 공백을 공백 하나로 + trim */
+    public static String normalize(String text) {
+        if (text == null || text.isEmpty()) return "";
+
+        String nfc = Normalizer.isNormalized(text, Normalizer.Form.NFC)
+                ? text
+                : Normalizer.normalize(text, Normalizer.Form.NFC);
+
+        StringBuilder sb = new StringBuilder(nfc.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < nfc.length(); i++) {
+            char c = nfc.charAt(i);
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                pendingSpace = sb.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                sb.append(' ');
+                pendingSpace = false;
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,142 @@
+package com.khi.ragservice.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.khi.ragservice.loader.DatasetAppliedEvent;
+import com.khi.ragservice.search.RagHit;
+import com.khi.ragservice.search.RetrievalMode;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/*
+ * 정규화된 질의 텍스트 기준 검색 결과 캐시.
+ * hit/miss/eviction 은 cache.gets / cache.evictions (cache=rag.query) 메트릭으로 노출된다.
+ *
+ * 로더(JDBC / 임베더 HTTP)를 ConcurrentHashMap.compute 안에서 돌리면 virtual thread 가
+ * carrier 스레드에 고정(pinning)되므로, 맵에는 빈 future 자리만 잡고 로딩은 잠금 밖의 요청 스레드에서 한다.
+ * 같은 질의가 동시에 들어오면 먼저 온 요청의 future 를 함께 기다린다.
+ */
+@Slf4j
+@Component
+public class RagQueryCache {
+
+    private final boolean enabled;
+    private final AsyncCache<Key, List<RagHit>> cache;
+
+    public RagQueryCache(@Value("${rag.cache.enabled:true}") boolean enabled,
+                         @Value("${rag.cache.max-size:10000}") long maxSize,
+                         @Value("${rag.cache.ttl:10m}") Duration ttl,
+                         MeterRegistry meterRegistry) {
+
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "rag.query");
+        log.info("[rag] query cache enabled={} | maxSize={} | ttl={}", enabled, maxSize, ttl);
+    }
+
+    public List<RagHit> get(String normalizedQuery, int k, RetrievalMode mode, Supplier<List<RagHit>> loader) {
+        if (!enabled) return loader.get();
+
+        CompletableFuture<List<RagHit>> placeholder = new CompletableFuture<>();
+        CompletableFuture<List<RagHit>> future = cache.get(new Key(normalizedQuery, k, mode), (key, executor) -> placeholder);
+        if (future == placeholder) {
+            try {
+                placeholder.complete(List.copyOf(loader.get()));
+            } catch (Throwable e) {
+                // Error 나 sneaky throw 된 checked 예외도 완료시켜야 한다. 미완료 future 는 만료되지 않아 같은 키의 요청이 영원히 기다린다
+                // (실패한 future 는 캐시에서 자동으로 빠진다)
+                placeholder.completeExceptionally(e);
+                throw e;
+            }
+        }
+        return join(future);
+    }
+
+    /* 배치 조회: 캐시에 없는 질의만 모아 loader 를 한 번 호출한다. 반환 순서는 입력 순서 */
+    public List<List<RagHit>> getAll(List<String> normalizedQueries, int k, RetrievalMode mode,
+                                     Function<List<String>, List<List<RagHit>>> loader) {
+        if (!enabled) return loader.apply(normalizedQueries);
+
+        List<Key> keys = new ArrayList<>(normalizedQueries.size());
+        for (String q : normalizedQueries) keys.add(new Key(q, k, mode));
+
+        // bulk 로더는 잠금 밖에서 호출된다 (없는 키에 대한 future 자리를 먼저 잡은 뒤 채움)
+        Map<Key, List<RagHit>> found = join(cache.getAll(keys, (missing, executor) -> {
+            List<Key> missingKeys = new ArrayList<>(missing);
+            List<String> missingQueries = new ArrayList<>(missingKeys.size());
+            for (Key key : missingKeys) missingQueries.add(key.query());
+
+            try {
+                List<List<RagHit>> loaded = loader.apply(missingQueries);
+                Map<Key, List<RagHit>> result = new HashMap<>(missingKeys.size() * 2);
+                for (int i = 0; i < missingKeys.size(); i++) result.put(missingKeys.get(i), List.copyOf(loaded.get(i)));
+                return CompletableFuture.completedFuture(result);
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }));
+
+        List<List<RagHit>> out = new ArrayList<>(keys.size());
+        for (Key key : keys) out.add(found.get(key));
+        return out;
+    }
+
+    /* 리액티브 경로용: 이미 완료된 결과만 돌려준다 (진행 중인 로딩을 기다리며 블로킹하지 않는다) */
+    public List<RagHit> getIfPresent(String normalizedQuery, int k, RetrievalMode mode) {
+        if (!enabled) return null;
+
+        CompletableFuture<List<RagHit>> future = cache.getIfPresent(new Key(normalizedQuery, k, mode));
+        if (future == null || !future.isDone() || future.isCompletedExceptionally()) return null;
+        return future.join();
+    }
+
+    public void put(String normalizedQuery, int k, RetrievalMode mode, List<RagHit> items) {
+        if (!enabled) return;
+        cache.put(new Key(normalizedQuery, k, mode), CompletableFuture.completedFuture(List.copyOf(items)));
+    }
+
+    // 인덱스 갱신(RagIndexManager) 이후에 비워야 옛 결과가 다시 캐시되지 않는다
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @EventListener
+    public void onDatasetApplied(DatasetAppliedEvent event) {
+        invalidateAll();
+        log.info("[rag] query cache invalidated (dataset fingerprint={})", event.fingerprint());
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+
+    private record Key(String query, int k, RetrievalMode mode) {
+    }
+}
@@ -0,0 +1,144 @@
+package com.khi.ragservice.service;
+
+import com.khi.ragservice.search.Bm25Retriever;
+import com.khi.ragservice.search.DenseRetriever;
+import com.khi.ragservice.search.PgTrgmRetriever;
+import com.khi.ragservice.search.RagHit;
+import com.khi.ragservice.search.RagRetriever;
+import com.khi.ragservice.search.RankFusion;
+import com.khi.ragservice.search.RetrievalMode;
+import com.khi.ragservice.search.TrigramIndexRetriever;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+@Slf4j
+@Service
+public class RagService {
+
+    private final RagRetriever sparseRetriever;
+    private final RagRetriever denseRetriever;
+    private final Executor searchExecutor;
+    private final int hybridCandidates;
+    private final int rrfK;
+    private final RagQueryCache queryCache;
+
+    public RagService(@Value("${rag.retrieval.engine:memory}") String engine,
+                      @Value("${rag.hybrid.candidates:50}") int hybridCandidates,
+                      @Value("${rag.hybrid.rrf-k:" + RankFusion.DEFAULT_RRF_K + "}") int rrfK,
+                      TrigramIndexRetriever trigramIndexRetriever,
+                      Bm25Retriever bm25Retriever,
+                      PgTrgmRetriever pgTrgmRetriever,
+                      DenseRetriever denseRetriever,
+                      @Qualifier("ragSearchExecutor") Executor searchExecutor,
+                      RagQueryCache queryCache) {
+
+        this.sparseRetriever = switch (engine.toLowerCase(Locale.ROOT)) {
+            case "postgres" -> pgTrgmRetriever;
+            case "bm25" -> bm25Retriever;
+            default -> trigramIndexRetriever;
+        };
+        this.denseRetriever = denseRetriever;
+        this.searchExecutor = searchExecutor;
+        this.hybridCandidates = hybridCandidates;
+        this.rrfK = rrfK;
+        this.queryCache = queryCache;
+        log.info("[rag] sparse retrieval engine={}", engineName());
+    }
+
+    public boolean isReady() {
+        return sparseRetriever.isReady();
+    }
+
+    public boolean isDenseReady() {
+        return denseRetriever.isReady();
+    }
+
+    public String engineName() {
+        return sparseRetriever.getClass().getSimpleName();
+    }
+
+    public List<RagHit> search(String queryText, int k) {
+        return search(queryText, k, RetrievalMode.SPARSE);
+    }
+
+    public List<RagHit> search(String queryText, int k, RetrievalMode mode) {
+        final String normalized = QueryNormalizer.normalize(queryText);
+        return queryCache.get(normalized, k, mode, () -> retrieve(normalized, k, mode));
+    }
+
+    public List<List<RagHit>> searchBatch(List<String> queryTexts, int k, RetrievalMode mode) {
+        List<String> normalized = new ArrayList<>(queryTexts.size());
+        for (String q : queryTexts) normalized.add(QueryNormalizer.normalize(q));
+        return queryCache.getAll(normalized, k, mode, missing -> retrieveBatch(missing, k, mode));
+    }
+
+    private List<List<RagHit>> retrieveBatch(List<String> queryTexts, int k, RetrievalMode mode) {
+        return switch (mode) {
+            case SPARSE -> sparseRetriever.retrieveBatch(queryTexts, k);
+            case DENSE -> denseRetriever.retrieveBatch(queryTexts, k);
+            case HYBRID -> hybridBatch(queryTexts, k);
+        };
+    }
+
+    private List<RagHit> retrieve(String queryText, int k, RetrievalMode mode) {
+        return switch (mode) {
+            case SPARSE -> sparseRetriever.retrieve(queryText, k);
+            case DENSE -> denseRetriever.retrieve(queryText, k);
+            case HYBRID -> hybrid(queryText, k);
+        };
+    }
+
+    private List<RagHit> hybrid(String queryText, int k) {
+        final int candidates = Math.max(k, hybridCandidates);
+
+        if (!denseRetriever.isReady()) {
+            log.warn("[rag] dense retrieval not ready -> hybrid falls back to sparse");
+            return sparseRetriever.retrieve(queryText, k);
+        }
+
+        // dense 쪽(임베더 HTTP 호출)은 별도 스레드, sparse 는 요청 스레드에서 동시에 실행
+        CompletableFuture<List<RagHit>> dense =
+                CompletableFuture.supplyAsync(() -> denseRetriever.retrieve(queryText, candidates), searchExecutor);
+        List<RagHit> sparse = sparseRetriever.retrieve(queryText, candidates);
+
+        return RankFusion.reciprocalRank(List.of(RankFusion.matchedOnly(sparse), join(dense)), k, rrfK);
+    }
+
+    private List<List<RagHit>> hybridBatch(List<String> queryTexts, int k) {
+        final int candidates = Math.max(k, hybridCandidates);
+
+        if (!denseRetriever.isReady()) {
+            log.warn("[rag] dense retrieval not ready -> hybrid falls back to sparse");
+            return sparseRetriever.retrieveBatch(queryTexts, k);
+        }
+
+        CompletableFuture<List<List<RagHit>>> dense =
+                CompletableFuture.supplyAsync(() -> denseRetriever.retrieveBatch(queryTexts, candidates), searchExecutor);
+        List<List<RagHit>> sparse = sparseRetriever.retrieveBatch(queryTexts, candidates);
+        List<List<RagHit>> denseResults = join(dense);
+
+        List<List<RagHit>> out = new ArrayList<>(queryTexts.size());
+        for (int i = 0; i < queryTexts.size(); i++) {
+            out.add(RankFusion.reciprocalRank(List.of(RankFusion.matchedOnly(sparse.get(i)), denseResults.get(i)), k, rrfK));
+        }
+        return out;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+}
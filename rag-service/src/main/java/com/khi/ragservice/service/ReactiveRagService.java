@@ -0,0 +1,196 @@
+package com.khi.ragservice.service;
+
+import com.khi.ragservice.common.exception.type.IndexNotReadyException;
+import com.khi.ragservice.embedding.ReactiveEmbeddingClient;
+import com.khi.ragservice.search.Bm25Retriever;
+import com.khi.ragservice.search.RagHit;
+import com.khi.ragservice.search.RagIndexManager;
+import com.khi.ragservice.search.RagIndexSnapshot;
+import com.khi.ragservice.search.RagRetriever;
+import com.khi.ragservice.search.RankFusion;
+import com.khi.ragservice.search.ReactivePgTrgmRetriever;
+import com.khi.ragservice.search.RetrievalMode;
+import com.khi.ragservice.search.TrigramIndexRetriever;
+import com.khi.ragservice.search.VectorIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * RagService 의 리액티브 버전.
+ * postgres 엔진은 R2DBC, dense 는 WebClient 로 요청 스레드를 막지 않고,
+ * 인메모리 trigram / vector 검색(CPU 연산)은 parallel 스케줄러에서 돌린다.
+ * 구독이 취소되면 진행 중인 DB 쿼리 / 임베더 호출도 함께 취소된다.
+ */
+@Slf4j
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveRagService {
+
+    private final boolean postgres;
+    private final RagRetriever memoryRetriever;
+    private final ReactivePgTrgmRetriever pgTrgmRetriever;
+    private final RagIndexManager indexManager;
+    private final ObjectProvider<ReactiveEmbeddingClient> embeddingClient;
+    private final RagQueryCache queryCache;
+    private final int hybridCandidates;
+    private final int rrfK;
+
+    public ReactiveRagService(@Value("${rag.retrieval.engine:memory}") String engine,
+                              @Value("${rag.hybrid.candidates:50}") int hybridCandidates,
+                              @Value("${rag.hybrid.rrf-k:" + RankFusion.DEFAULT_RRF_K + "}") int rrfK,
+                              TrigramIndexRetriever trigramIndexRetriever,
+                              Bm25Retriever bm25Retriever,
+                              ReactivePgTrgmRetriever pgTrgmRetriever,
+                              RagIndexManager indexManager,
+                              ObjectProvider<ReactiveEmbeddingClient> embeddingClient,
+                              RagQueryCache queryCache) {
+
+        this.postgres = "postgres".equalsIgnoreCase(engine);
+        this.memoryRetriever = "bm25".equalsIgnoreCase(engine) ? bm25Retriever : trigramIndexRetriever;
+        this.pgTrgmRetriever = pgTrgmRetriever;
+        this.indexManager = indexManager;
+        this.embeddingClient = embeddingClient;
+        this.queryCache = queryCache;
+        this.hybridCandidates = hybridCandidates;
+        this.rrfK = rrfK;
+        log.info("[rag] reactive sparse retrieval engine={}",
+                postgres ? "r2dbc" : memoryRetriever.getClass().getSimpleName());
+    }
+
+    public boolean isDenseReady() {
+        RagIndexSnapshot current = indexManager.current();
+        return current != null && current.vector() != null && embeddingClient.getIfAvailable() != null;
+    }
+
+    // 캐시는 완료된 결과만 조회한다. 같은 질의의 동시 miss 는 각자 조회 (한쪽 취소가 다른 요청에 번지지 않도록)
+    public Mono<List<RagHit>> search(String queryText, int k, RetrievalMode mode) {
+        final String normalized = QueryNormalizer.normalize(queryText);
+        return Mono.defer(() -> {
+            List<RagHit> cached = queryCache.getIfPresent(normalized, k, mode);
+            if (cached != null) return Mono.just(cached);
+            return retrieve(normalized, k, mode).doOnNext(items -> queryCache.put(normalized, k, mode, items));
+        });
+    }
+
+    /* 캐시에 없는 질의만 모아 한 번에 조회. 반환 순서는 입력 순서 */
+    public Mono<List<List<RagHit>>> searchBatch(List<String> queryTexts, int k, RetrievalMode mode) {
+        return Mono.defer(() -> {
+            List<String> normalized = new ArrayList<>(queryTexts.size());
+            List<List<RagHit>> out = new ArrayList<>(queryTexts.size());
+            List<Integer> missing = new ArrayList<>();
+            for (int i = 0; i < queryTexts.size(); i++) {
+                String q = QueryNormalizer.normalize(queryTexts.get(i));
+                List<RagHit> cached = queryCache.getIfPresent(q, k, mode);
+                normalized.add(q);
+                out.add(cached);
+                if (cached == null) missing.add(i);
+            }
+            if (missing.isEmpty()) return Mono.just(out);
+
+            List<String> missingQueries = new ArrayList<>(missing.size());
+            for (int i : missing) missingQueries.add(normalized.get(i));
+
+            return retrieveBatch(missingQueries, k, mode).map(loaded -> {
+                for (int j = 0; j < missing.size(); j++) {
+                    int i = missing.get(j);
+                    out.set(i, loaded.get(j));
+                    queryCache.put(normalized.get(i), k, mode, loaded.get(j));
+                }
+                return out;
+            });
+        });
+    }
+
+    private Mono<List<RagHit>> retrieve(String queryText, int k, RetrievalMode mode) {
+        return switch (mode) {
+            case SPARSE -> sparse(queryText, k);
+            case DENSE -> dense(queryText, k);
+            case HYBRID -> hybrid(queryText, k);
+        };
+    }
+
+    private Mono<List<List<RagHit>>> retrieveBatch(List<String> queryTexts, int k, RetrievalMode mode) {
+        return switch (mode) {
+            case SPARSE -> sparseBatch(queryTexts, k);
+            case DENSE -> denseBatch(queryTexts, k);
+            case HYBRID -> hybridBatch(queryTexts, k);
+        };
+    }
+
+    private Mono<List<RagHit>> sparse(String queryText, int k) {
+        if (postgres) return pgTrgmRetriever.retrieve(queryText, k);
+        return Mono.fromCallable(() -> memoryRetriever.retrieve(queryText, k)).subscribeOn(Schedulers.parallel());
+    }
+
+    private Mono<List<List<RagHit>>> sparseBatch(List<String> queryTexts, int k) {
+        if (postgres) return pgTrgmRetriever.retrieveBatch(queryTexts, k);
+        return Mono.fromCallable(() -> memoryRetriever.retrieveBatch(queryTexts, k)).subscribeOn(Schedulers.parallel());
+    }
+
+    // 인덱스가 없으면 임베더를 호출하기 전에 실패시킨다
+    private Mono<List<RagHit>> dense(String queryText, int k) {
+        return Mono.fromCallable(this::vectorIndex).flatMap(index -> client().embedQuery(queryText)
+                .publishOn(Schedulers.parallel())
+                .map(v -> index.search(v, k)));
+    }
+
+    private Mono<List<List<RagHit>>> denseBatch(List<String> queryTexts, int k) {
+        if (queryTexts.isEmpty()) return Mono.just(List.of());
+
+        return Mono.fromCallable(this::vectorIndex).flatMap(index -> client().embedQueries(queryTexts)
+                .publishOn(Schedulers.parallel())
+                .map(vectors -> {
+                    List<List<RagHit>> out = new ArrayList<>(vectors.size());
+                    for (float[] v : vectors) out.add(index.search(v, k));
+                    return out;
+                }));
+    }
+
+    // 두 쪽을 동시에 구독, 한쪽이 실패하거나 취소되면 다른 쪽도 취소된다
+    private Mono<List<RagHit>> hybrid(String queryText, int k) {
+        final int candidates = Math.max(k, hybridCandidates);
+
+        if (!isDenseReady()) {
+            log.warn("[rag] dense retrieval not ready -> hybrid falls back to sparse");
+            return sparse(queryText, k);
+        }
+        return Mono.zip(sparse(queryText, candidates), dense(queryText, candidates),
+                (sparse, dense) -> RankFusion.reciprocalRank(List.of(RankFusion.matchedOnly(sparse), dense), k, rrfK));
+    }
+
+    private Mono<List<List<RagHit>>> hybridBatch(List<String> queryTexts, int k) {
+        final int candidates = Math.max(k, hybridCandidates);
+
+        if (!isDenseReady()) {
+            log.warn("[rag] dense retrieval not ready -> hybrid falls back to sparse");
+            return sparseBatch(queryTexts, k);
+        }
+        return Mono.zip(sparseBatch(queryTexts, candidates), denseBatch(queryTexts, candidates), (sparse, dense) -> {
+            List<List<RagHit>> out = new ArrayList<>(queryTexts.size());
+            for (int i = 0; i < queryTexts.size(); i++) {
+                out.add(RankFusion.reciprocalRank(List.of(RankFusion.matchedOnly(sparse.get(i)), dense.get(i)), k, rrfK));
+            }
+            return out;
+        });
+    }
+
+    private ReactiveEmbeddingClient client() {
+        ReactiveEmbeddingClient client = embeddingClient.getIfAvailable();
+        if (client == null) throw new IndexNotReadyException("dense retrieval is disabled (rag.embedding.enabled=false)");
+        return client;
+    }
+
+    private VectorIndex vectorIndex() {
+        RagIndexSnapshot current = indexManager.current();
+        if (current == null || current.vector() == null) throw new IndexNotReadyException("vector index is not ready");
+        return current.vector();
+    }
+}
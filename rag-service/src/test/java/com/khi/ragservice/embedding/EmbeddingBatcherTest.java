@@ -0,0 +1,149 @@
+package com.khi.ragservice.embedding;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmbeddingBatcherTest {
+
+    private static final int DIM = 16;
+
+    private final ObjectMapper om = new ObjectMapper();
+    private final HttpClient http = HttpClient.newHttpClient();
+    private final FakeEmbeddingClient expected = new FakeEmbeddingClient(DIM);
+
+    // HttpEmbeddingClient 와 같은 /embed-batch 요청 + 응답 해석
+    private Function<List<String>, List<float[]>> backend(StubEmbedderServer stub) {
+        return texts -> {
+            try {
+                HttpRequest request = HttpRequest.newBuilder(URI.create(stub.baseUrl() + "/embed-batch"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(om.writeValueAsBytes(Map.of("texts", texts))))
+                        .build();
+                JsonNode body = om.readTree(http.send(request, HttpResponse.BodyHandlers.ofByteArray()).body());
+                return HttpEmbeddingClient.toVectors(body, texts.size());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    // release 전까지 embedder 호출을 막는다. 먼저 나간 배치가 끝나 inFlight 에서 빠지는 타이밍에 결과가 좌우되지 않도록
+    private static Function<List<String>, List<float[]>> gated(CountDownLatch release,
+                                                               Function<List<String>, List<float[]>> backend) {
+        return texts -> {
+            try {
+                if (!release.await(10, TimeUnit.SECONDS)) throw new IllegalStateException("gate not released");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            return backend.apply(texts);
+        };
+    }
+
+    @Test
+    void concurrentSingleRequestsAreBatchedAndIdenticalTextsAreCoalesced() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (StubEmbedderServer stub = new StubEmbedderServer(DIM, 0);
+             EmbeddingBatcher batcher = new EmbeddingBatcher(gated(release, backend(stub)), 64, Duration.ofMillis(200), null)) {
+
+            List<CompletableFuture<float[]>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) futures.add(batcher.submit("query: 문장 " + (i % 10)));
+            release.countDown();
+
+            for (int i = 0; i < 20; i++) {
+                assertArrayEquals(expected.embed("query: 문장 " + (i % 10)), futures.get(i).get());
+            }
+            // 수집 창이 몇 번으로 나뉘든 서로 다른 텍스트 10개만 embedder 로 나간다
+            assertEquals(10, stub.batchSizes().stream().mapToInt(Integer::intValue).sum());
+            assertEquals(10, batcher.coalescedCount());
+            assertSame(futures.get(0).get(), futures.get(10).get());
+        }
+    }
+
+    @Test
+    void closeFailsRequestsOfTheBatchBeingCollected() {
+        EmbeddingBatcher batcher = new EmbeddingBatcher(texts -> List.of(), 64, Duration.ofSeconds(30), null);
+        CompletableFuture<float[]> future = batcher.submit("query: 모으는 중");
+
+        batcher.close();
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertTrue(batcher.submit("query: 닫은 뒤").isCompletedExceptionally());
+    }
+
+    @Test
+    void batchesAreSplitAtMaxSize() throws Exception {
+        try (StubEmbedderServer stub = new StubEmbedderServer(DIM, 0);
+             EmbeddingBatcher batcher = new EmbeddingBatcher(backend(stub), 4, Duration.ofMillis(200), null)) {
+
+            List<String> texts = new ArrayList<>();
+            for (int i = 0; i < 10; i++) texts.add("query: 질의 " + i);
+            List<float[]> vectors = batcher.embedAll(texts);
+
+            for (int i = 0; i < texts.size(); i++) assertArrayEquals(expected.embed(texts.get(i)), vectors.get(i));
+            // 배치는 virtual thread 에서 동시에 나가므로 도착 순서와 수집 창 분할은 보지 않는다
+            List<Integer> sizes = stub.batchSizes();
+            assertEquals(10, sizes.stream().mapToInt(Integer::intValue).sum());
+            assertTrue(sizes.stream().allMatch(size -> size <= 4), sizes::toString);
+            assertTrue(sizes.size() >= 3, sizes::toString);
+        }
+    }
+
+    @Test
+    void cachedVectorsSkipTheEmbedderAndSurviveRestartOnDisk() throws Exception {
+        Path dir = Files.createTempDirectory("embed-cache");
+        try (StubEmbedderServer stub = new StubEmbedderServer(DIM, 0)) {
+            EmbeddingCache cache = new EmbeddingCache(10, dir, "e5-small");
+            try (EmbeddingBatcher batcher = new EmbeddingBatcher(backend(stub), 8, Duration.ZERO, cache)) {
+                batcher.embed("query: 하나");
+                batcher.embed("query: 둘");
+                batcher.embed("query: 하나");
+            }
+            cache.flush();
+            int calls = stub.batchSizes().size();
+
+            // 재기동: 빈 메모리 캐시 + 같은 디렉터리
+            EmbeddingCache reopened = new EmbeddingCache(10, dir, "e5-small");
+            try (EmbeddingBatcher batcher = new EmbeddingBatcher(backend(stub), 8, Duration.ZERO, reopened)) {
+                assertArrayEquals(expected.embed("query: 하나"), batcher.embed("query: 하나"));
+                assertArrayEquals(expected.embed("query: 둘"), batcher.embed("query: 둘"));
+            }
+            assertEquals(calls, stub.batchSizes().size());
+
+            // 다른 모델은 같은 디렉터리에서도 옛 벡터를 읽지 않는다
+            assertNull(new EmbeddingCache(10, dir, "e5-large").get(EmbeddingCache.key("query: 하나")));
+        } finally {
+            try (var files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+}
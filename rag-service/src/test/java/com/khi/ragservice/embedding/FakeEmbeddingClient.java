@@ -0,0 +1,46 @@
+package com.khi.ragservice.embedding;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/* 오프라인 테스트용 임베더: 문자 bigram 을 해시해 dim 차원에 누적한 뒤 L2 정규화 */
+public class FakeEmbeddingClient implements EmbeddingClient {
+
+    private final int dim;
+
+    public FakeEmbeddingClient(int dim) {
+        this.dim = dim;
+    }
+
+    @Override
+    public float[] embedQuery(String text) {
+        return embed(text);
+    }
+
+    @Override
+    public List<float[]> embedQueries(List<String> texts) {
+        return embedPassages(texts);
+    }
+
+    @Override
+    public List<float[]> embedPassages(List<String> texts) {
+        List<float[]> out = new ArrayList<>(texts.size());
+        for (String t : texts) out.add(embed(t));
+        return out;
+    }
+
+    public float[] embed(String text) {
+        float[] v = new float[dim];
+        for (int i = 0; i + 1 < text.length(); i++) {
+            int h = (text.charAt(i) * 31 + text.charAt(i + 1)) & 0x7fffffff;
+            v[h % dim] += 1f;
+        }
+        double norm = 0;
+        for (float f : v) norm += f * f;
+        if (norm > 0) {
+            float inv = (float) (1.0 / Math.sqrt(norm));
+            for (int i = 0; i < dim; i++) v[i] *= inv;
+        }
+        return v;
+    }
+}
@@ -0,0 +1,74 @@
+package com.khi.ragservice.embedding;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+
+/*
+ * 테스트용 로컬 embedder (embedder/app.py 의 /embed-batch 와 같은 요청/응답 형식).
+ * 벡터는 FakeEmbeddingClient 로 만들고, 받은 배치 크기를 기록한다. delayMillis 로 모델 호출 지연을 흉내 낸다.
+ */
+public class StubEmbedderServer implements AutoCloseable {
+
+    private final ObjectMapper om = new ObjectMapper();
+    private final FakeEmbeddingClient embedder;
+    private final long delayMillis;
+    private final HttpServer server;
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+    public StubEmbedderServer(int dim, long delayMillis) throws IOException {
+        this.embedder = new FakeEmbeddingClient(dim);
+        this.delayMillis = delayMillis;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/embed-batch", this::embedBatch);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /* 받은 /embed-batch 호출별 텍스트 수 */
+    public List<Integer> batchSizes() {
+        return batchSizes;
+    }
+
+    private void embedBatch(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            JsonNode texts = om.readTree(exchange.getRequestBody()).path("texts");
+            batchSizes.add(texts.size());
+            if (delayMillis > 0) Thread.sleep(delayMillis);
+
+            ObjectNode body = om.createObjectNode();
+            ArrayNode embeddings = body.putArray("embeddings");
+            for (JsonNode t : texts) {
+                ArrayNode row = embeddings.addArray();
+                for (float f : embedder.embed(t.asText())) row.add(f);
+            }
+            byte[] bytes = om.writeValueAsBytes(body);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,55 @@
+package com.khi.ragservice.loader;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JsonArrayElementsTest {
+
+    private static List<String> split(String json) throws IOException {
+        var it = new JsonArrayElements(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+        List<String> out = new ArrayList<>();
+        while (it.hasNext()) out.add(new String(it.next(), StandardCharsets.UTF_8).trim());
+        return out;
+    }
+
+    @Test
+    void splitsTopLevelElementsOnly() throws IOException {
+        List<String> elements = split("""
+            [
+              {"id": 1, "text": "a, b", "tags": [1, 2]},
+              {"id": 2, "text": "}] 닫는 괄호", "nested": {"x": [3]}}
+            ]
+        """);
+
+        assertEquals(List.of(
+                "{\"id\": 1, \"text\": \"a, b\", \"tags\": [1, 2]}",
+                "{\"id\": 2, \"text\": \"}] 닫는 괄호\", \"nested\": {\"x\": [3]}}"), elements);
+    }
+
+    @Test
+    void keepsEscapedQuotesInsideStrings() throws IOException {
+        List<String> elements = split("[{\"text\": \"say \\\"hi\\\", ok\\\\\"}, 3]");
+
+        assertEquals(List.of("{\"text\": \"say \\\"hi\\\", ok\\\\\"}", "3"), elements);
+    }
+
+    @Test
+    void emptyArrayHasNoElements() throws IOException {
+        assertEquals(List.of(), split("  [ ] "));
+    }
+
+    @Test
+    void rejectsTruncatedArray() {
+        assertThrows(UncheckedIOException.class, () -> split("[{\"id\": 1}, {\"id\": 2"));
+        assertThrows(IOException.class, () -> split("{\"id\": 1}"));
+    }
+}
@@ -0,0 +1,56 @@
+package com.khi.ragservice.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Bm25IndexTest {
+
+    private final KoreanAnalyzer analyzer = new KoreanAnalyzer();
+
+    private final RagCorpus corpus = new RagCorpus(
+            new int[]{1, 2, 3, 4},
+            new String[]{
+                    "그 사람 말은 못 믿어, 과학자도 아닌데 뭘 알아.",
+                    "야근을 줄이자는 건 결국 일은 하지 말자는 소리잖아.",
+                    "모두가 산다니까 이 제품이 최고야.",
+                    "유명 과학자가 추천했으니 이 제품은 믿어도 돼."},
+            new String[]{"인신공격(Ad Hominem)", "허수아비 논법", "대중에 호소", "권위에 호소"},
+            new short[]{1, 2, 3, 4});
+
+    private final Bm25Index index = Bm25Index.build(corpus, analyzer, Bm25Index.Params.DEFAULT);
+
+    @Test
+    void analyzerStripsParticlesAndEmitsSyllableBigrams() {
+        // 과학자도 -> 과학자 -> 과학, 학자, 과학자
+        assertEquals(List.of("과학", "학자", "과학자"), analyzer.analyze("과학자도"));
+        assertEquals(analyzer.analyze("과학자가"), analyzer.analyze("과학자는"));
+        // 어간이 1음절만 남으면 떼지 않는다
+        assertEquals(List.of("하나"), analyzer.analyze("하나"));
+        assertEquals(List.of("ad", "hominem"), analyzer.analyze("Ad Hominem"));
+    }
+
+    @Test
+    void matchesAcrossDifferentParticles() {
+        List<RagHit> hits = index.search("과학자는 믿을 수 없어", 4);
+
+        assertEquals(2, hits.size());
+        assertTrue(List.of(1, 4).contains(hits.get(0).id()));
+    }
+
+    @Test
+    void labelTermsAreBoosted() {
+        List<RagHit> hits = index.search("호소", 4);
+
+        assertEquals(2, hits.size());
+        assertTrue(hits.stream().allMatch(h -> h.label().endsWith("호소")));
+    }
+
+    @Test
+    void noIndexedTermsGivesNoHits() {
+        assertTrue(index.search("완전히 무관한 질문", 4).isEmpty());
+    }
+}
@@ -0,0 +1,129 @@
+package com.khi.ragservice.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HnswIndexTest {
+
+    private static final int DIM = 32;
+    private static final int K = 10;
+    private static final HnswIndex.Params PARAMS = new HnswIndex.Params(8, 100, 64);
+
+    // 군집 중심 주변에 흩어진 정규화 벡터 (실제 임베딩처럼 국소 구조가 있는 분포)
+    private static float[][] clustered(int n, long seed) {
+        SplittableRandom rnd = new SplittableRandom(seed);
+        float[][] centers = new float[20][];
+        for (int c = 0; c < centers.length; c++) centers[c] = unit(rnd, null, 0f);
+        float[][] out = new float[n][];
+        for (int i = 0; i < n; i++) out[i] = unit(rnd, centers[rnd.nextInt(centers.length)], 0.5f);
+        return out;
+    }
+
+    private static float[] unit(SplittableRandom rnd, float[] center, float noise) {
+        float[] v = new float[DIM];
+        double norm = 0;
+        for (int i = 0; i < DIM; i++) {
+            v[i] = (float) ((center == null ? 0 : center[i]) + (rnd.nextDouble() * 2 - 1) * (center == null ? 1 : noise));
+            norm += v[i] * v[i];
+        }
+        float inv = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < DIM; i++) v[i] *= inv;
+        return v;
+    }
+
+    private static VectorIndex vectors(int[] ids, float[][] rows) {
+        String[] texts = new String[ids.length];
+        String[] labels = new String[ids.length];
+        short[] labelIds = new short[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            texts[i] = "문장 " + ids[i];
+            labels[i] = "label";
+        }
+        VectorIndex.Builder builder = VectorIndex.builder(new RagCorpus(ids, texts, labels, labelIds), DIM);
+        for (int i = 0; i < ids.length; i++) builder.put(ids[i], rows[i]);
+        return builder.build();
+    }
+
+    private static int[] range(int from, int to) {
+        int[] ids = new int[to - from];
+        for (int i = 0; i < ids.length; i++) ids[i] = from + i;
+        return ids;
+    }
+
+    private static double recall(VectorIndex exact, HnswIndex ann, float[][] queries) {
+        int found = 0;
+        for (float[] q : queries) {
+            Set<Integer> truth = new HashSet<>();
+            for (RagHit h : exact.searchExact(q, K)) truth.add(h.id());
+            for (RagHit h : ann.search(q, K)) if (truth.contains(h.id())) found++;
+        }
+        return (double) found / (queries.length * K);
+    }
+
+    @Test
+    void approximatesExactSearch() {
+        VectorIndex vectors = vectors(range(1, 3001), clustered(3000, 1L));
+        HnswIndex ann = HnswIndex.build(vectors, PARAMS);
+
+        assertEquals(3000, ann.nodeCount());
+        assertTrue(recall(vectors, ann, clustered(50, 2L)) >= 0.9);
+
+        VectorIndex withAnn = vectors.withAnn(ann);
+        float[] q = clustered(1, 3L)[0];
+        assertEquals(ann.search(q, K), withAnn.search(q, K));
+    }
+
+    @Test
+    void refreshDropsRemovedRowsAndInsertsNewOnes() {
+        float[][] rows = clustered(3000, 1L);
+        VectorIndex before = vectors(range(1, 3001), rows);
+        HnswIndex previous = HnswIndex.build(before, PARAMS);
+
+        // id 1..500 삭제, 501..2900 유지, 2901..3000 은 벡터 변경, 3001..3300 추가
+        float[][] fresh = clustered(400, 9L);
+        int[] ids = range(501, 3301);
+        float[][] afterRows = new float[ids.length][];
+        boolean[] reused = new boolean[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            int id = ids[i];
+            afterRows[i] = id <= 2900 ? rows[id - 1] : fresh[id - 2901];
+            reused[i] = id <= 2900;
+        }
+        VectorIndex after = vectors(ids, afterRows);
+        HnswIndex ann = HnswIndex.refresh(previous, after, reused, PARAMS);
+
+        assertEquals(ids.length, ann.nodeCount());
+        assertTrue(recall(after, ann, clustered(50, 2L)) >= 0.9);
+        assertTrue(recall(after, ann, clustered(50, 9L)) >= 0.9);
+    }
+
+    @Test
+    void graphFileRoundTrip() throws Exception {
+        VectorIndex vectors = vectors(range(1, 1001), clustered(1000, 1L));
+        HnswIndex ann = HnswIndex.build(vectors, PARAMS);
+        Path file = Files.createTempFile("rag-", ".hnsw");
+        try {
+            HnswFile.write(file, "f".repeat(64), ann);
+            HnswIndex read = HnswFile.read(file, "f".repeat(64), vectors, PARAMS);
+
+            assertEquals(ann.nodeCount(), read.nodeCount());
+            assertEquals(ann.levelCount(), read.levelCount());
+            for (float[] q : clustered(20, 2L)) assertEquals(ann.search(q, K), read.search(q, K));
+
+            List<RagHit> hits = read.search(clustered(1, 3L)[0], K);
+            assertFalse(hits.isEmpty());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
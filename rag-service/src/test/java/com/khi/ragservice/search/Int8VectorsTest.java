@@ -0,0 +1,54 @@
+package com.khi.ragservice.search;
+
+import com.khi.ragservice.embedding.FakeEmbeddingClient;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class Int8VectorsTest {
+
+    private final FakeEmbeddingClient embedder = new FakeEmbeddingClient(67);
+
+    private final RagCorpus corpus = new RagCorpus(
+            new int[]{1, 2, 3, 4},
+            new String[]{"너는 숫자도 제대로 못 읽잖아", "야근을 줄이자는 건 일은 하지 말자는 소리", "모두가 산다니까 최고야", "벡터 없는 문장"},
+            new String[]{"인신공격", "허수아비", "대중 호소", "기타"},
+            new short[]{1, 2, 3, 4});
+
+    private VectorIndex build() {
+        VectorIndex.Builder builder = VectorIndex.builder(corpus, 67);
+        for (int d = 0; d < 3; d++) builder.put(corpus.id(d), embedder.embed(corpus.text(d)));
+        return builder.build();
+    }
+
+    @Test
+    void rerankedSearchMatchesExactSearch() {
+        VectorIndex exact = build();
+        VectorIndex quantized = exact.withQuantized(Int8Vectors.quantize(exact), 2);
+        float[] q = embedder.embedQuery("야근 줄이자는 건 일 하지 말자는 거지");
+
+        assertEquals(exact.searchExact(q, 2), quantized.search(q, 2));
+    }
+
+    @Test
+    void approximateScoresStayCloseAndSkipRowsWithoutVectors() {
+        VectorIndex exact = build();
+        VectorIndex quantized = exact.withQuantized(Int8Vectors.quantize(exact), 0);
+        float[] q = embedder.embedQuery("모두가 산다니까");
+
+        List<RagHit> approx = quantized.search(q, 5);
+        List<RagHit> truth = exact.searchExact(q, 5);
+
+        assertEquals(3, approx.size());
+        List<Integer> approxIds = new ArrayList<>();
+        for (int r = 0; r < approx.size(); r++) {
+            approxIds.add(approx.get(r).id());
+            assertEquals(truth.get(r).score(), approx.get(r).score(), 0.02);
+        }
+        assertFalse(approxIds.contains(4));
+    }
+}
@@ -0,0 +1,49 @@
+package com.khi.ragservice.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LabelPartitionsTest {
+
+    private final RagCorpus corpus = new RagCorpus(
+            new int[]{1, 2, 3, 4, 5},
+            new String[]{
+                    "그 사람 말은 못 믿어, 과학자도 아닌데 뭘 알아.",
+                    "모두가 산다니까 이 제품이 최고야.",
+                    "전공도 아닌 분야에 끼어드는 걸 보니 수준이 보인다.",
+                    "다들 그렇게 생각하니까 맞는 말이야.",
+                    "야근을 줄이자는 건 결국 일은 하지 말자는 소리잖아."},
+            new String[]{"인신공격(Ad Hominem)", "대중에 호소", "인신공격(Ad Hominem)", "대중에 호소", "허수아비 논법"},
+            new short[]{1, 3, 1, 3, 2});
+
+    @Test
+    void groupsDocsByLabelIdInOrder() {
+        LabelPartitions partitions = corpus.labelPartitions();
+
+        assertEquals(3, partitions.count());
+        assertEquals(1, partitions.labelId(0));
+        assertEquals(2, partitions.labelId(1));
+        assertEquals(3, partitions.labelId(2));
+        assertEquals(2, partitions.size(0));
+        assertEquals("대중에 호소", partitions.label(2));
+    }
+
+    @Test
+    void returnsTopKWithinEachLabel() {
+        LabelPartitions partitions = corpus.labelPartitions();
+        DocScorer scorer = TrigramIndex.build(corpus).scorer("과학자도 아닌데");
+
+        List<RagHit> adHominem = partitions.top(0, scorer, 1);
+        assertEquals(1, adHominem.size());
+        assertEquals(1, adHominem.get(0).id());
+
+        // 다른 label 파티션은 점수가 낮아도 자기 근거를 돌려준다
+        List<RagHit> popularity = partitions.top(2, scorer, 5);
+        assertEquals(2, popularity.size());
+        assertTrue(popularity.stream().allMatch(h -> h.labelId() == 3));
+    }
+}
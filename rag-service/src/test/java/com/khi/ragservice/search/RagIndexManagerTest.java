@@ -0,0 +1,75 @@
+package com.khi.ragservice.search;
+
+import com.khi.ragservice.embedding.EmbeddingClient;
+import com.khi.ragservice.embedding.FakeEmbeddingClient;
+import com.khi.ragservice.embedding.RagVectorStore;
+import com.khi.ragservice.entity.RagItem;
+import com.khi.ragservice.loader.DatasetAppliedEvent;
+import com.khi.ragservice.loader.DatasetLoader;
+import com.khi.ragservice.repository.RagItemRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RagIndexManagerTest {
+
+    private static final int DIM = 67;
+
+    private final FakeEmbeddingClient embedder = new FakeEmbeddingClient(DIM);
+
+    private static RagItem item(int id, String text, String label, int labelId) {
+        RagItem item = new RagItem();
+        item.setId(id);
+        item.setText(text);
+        item.setLabel(label);
+        item.setLabelId((short) labelId);
+        return item;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reloadLoadsVectorsWhenTheRunningSnapshotHasNone() throws Exception {
+        List<RagItem> items = List.of(
+                item(1, "너는 숫자도 제대로 못 읽잖아", "인신공격", 1),
+                item(2, "야근을 줄이자는 건 일은 하지 말자는 소리", "허수아비", 2));
+
+        RagItemRepository repo = mock(RagItemRepository.class);
+        when(repo.findAll()).thenReturn(items);
+
+        // 기동 시에는 저장된 벡터가 없고(embedder 다운), 재적재의 embedMissing 이 채운 뒤에는 있다
+        RagVectorStore vectorStore = mock(RagVectorStore.class);
+        when(vectorStore.dimension()).thenReturn(0, DIM);
+        when(vectorStore.loadInto(any(VectorIndex.Builder.class))).thenAnswer(inv -> {
+            VectorIndex.Builder builder = inv.getArgument(0);
+            for (RagItem it : items) builder.put(it.getId(), embedder.embed(it.getText()));
+            return items.size();
+        });
+
+        ObjectProvider<EmbeddingClient> clientProvider = mock(ObjectProvider.class);
+        when(clientProvider.getIfAvailable()).thenReturn(embedder);
+
+        DatasetLoader datasetLoader = mock(DatasetLoader.class);
+        when(datasetLoader.getFingerprint()).thenReturn("f".repeat(64));
+
+        RagIndexManager manager = new RagIndexManager(repo, vectorStore, clientProvider, datasetLoader,
+                new RagSnapshotStore("", 2, true, "fake"), text -> List.of());
+
+        manager.rebuild();
+        assertNull(manager.current().vector());
+
+        manager.onDatasetApplied(new DatasetAppliedEvent("e".repeat(64), items.size(), new int[0], new int[0]));
+
+        VectorIndex vector = manager.current().vector();
+        assertNotNull(vector);
+        assertEquals(items.size(), vector.vectorCount());
+        assertEquals(2, vector.search(embedder.embedQuery("야근 줄이자는 건 일 하지 말자는 거지"), 1).get(0).id());
+    }
+}
@@ -0,0 +1,89 @@
+package com.khi.ragservice.search;
+
+import com.khi.ragservice.embedding.FakeEmbeddingClient;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RagSnapshotFileTest {
+
+    private static final String FINGERPRINT = "a".repeat(64);
+
+    private final FakeEmbeddingClient embedder = new FakeEmbeddingClient(67);
+
+    private final RagCorpus corpus = new RagCorpus(
+            new int[]{1, 2, 5},
+            new String[]{"그 사람 말은 못 믿어, 과학자도 아닌데 뭘 알아.", "야근을 줄이자는 건 결국 일은 하지 말자는 소리잖아.", "모두가 산다니까 이 제품이 최고야."},
+            new String[]{"인신공격(Ad Hominem)", "허수아비 논법", "대중에 호소"},
+            new short[]{1, 2, 3});
+
+    private RagIndexSnapshot build() {
+        VectorIndex.Builder builder = VectorIndex.builder(corpus, 67);
+        builder.put(1, embedder.embed(corpus.text(0)));
+        builder.put(5, embedder.embed(corpus.text(2)));
+        return new RagIndexSnapshot(corpus, TrigramIndex.build(corpus), builder.build());
+    }
+
+    @Test
+    void mappedSnapshotAnswersLikeTheOriginal() throws Exception {
+        RagIndexSnapshot original = build();
+        Path file = Files.createTempFile("rag-", ".snap");
+        try {
+            RagSnapshotFile.write(file, FINGERPRINT, original);
+            RagIndexSnapshot mapped = RagSnapshotFile.map(file, FINGERPRINT);
+
+            assertEquals(3, mapped.corpus().size());
+            assertEquals("허수아비 논법", mapped.corpus().label(1));
+            assertEquals(original.trigram().termCount(), mapped.trigram().termCount());
+
+            for (String q : List.of("야근 줄이자", "과학자", "Hominem", "전혀 상관없는 문장")) {
+                assertEquals(original.trigram().search(q, 3), mapped.trigram().search(q, 3));
+            }
+
+            float[] q = embedder.embedQuery("모두가 사니까 최고");
+            assertEquals(original.vector().search(q, 3), mapped.vector().search(q, 3));
+            assertEquals(2, mapped.vector().vectorCount());
+            assertFalse(mapped.vector().hasVector(1));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void int8IndexCanRerankWithMappedRows() throws Exception {
+        RagIndexSnapshot original = build();
+        VectorIndex quantized = original.vector().withQuantized(Int8Vectors.quantize(original.vector()), 2);
+        Path file = Files.createTempFile("rag-", ".snap");
+        try {
+            RagSnapshotFile.write(file, FINGERPRINT, original);
+            VectorIndex remapped = quantized.withRowsOf(RagSnapshotFile.map(file, FINGERPRINT).vector());
+
+            float[] q = embedder.embedQuery("과학자 말은 못 믿어");
+            assertEquals(quantized.search(q, 2), remapped.search(q, 2));
+            assertEquals(original.vector().searchExact(q, 3), remapped.searchExact(q, 3));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void rejectsOtherFingerprint() throws Exception {
+        Path file = Files.createTempFile("rag-", ".snap");
+        try {
+            RagSnapshotFile.write(file, FINGERPRINT, new RagIndexSnapshot(corpus, TrigramIndex.build(corpus), null));
+
+            assertThrows(IOException.class, () -> RagSnapshotFile.map(file, "b".repeat(64)));
+            assertNull(RagSnapshotFile.map(file, FINGERPRINT).vector());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
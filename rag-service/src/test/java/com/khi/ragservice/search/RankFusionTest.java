@@ -0,0 +1,47 @@
+package com.khi.ragservice.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class RankFusionTest {
+
+    private static RagHit hit(int id, double score) {
+        return new RagHit(id, "문장 " + id, "label", 0, score);
+    }
+
+    @Test
+    void fusesByReciprocalRank() {
+        List<RagHit> sparse = List.of(hit(1, 0.9), hit(2, 0.5), hit(3, 0.4));
+        List<RagHit> dense = List.of(hit(2, 0.8), hit(4, 0.7), hit(1, 0.6));
+
+        List<RagHit> fused = RankFusion.reciprocalRank(List.of(sparse, dense), 3, 60);
+
+        // 2: 1/62 + 1/61, 1: 1/61 + 1/63, 4: 1/62, 3: 1/63
+        assertEquals(List.of(2, 1, 4), fused.stream().map(RagHit::id).toList());
+        assertEquals(1.0 / 62 + 1.0 / 61, fused.get(0).score(), 1e-12);
+    }
+
+    @Test
+    void zeroScoreSparseFallbackGetsNoRankCredit() {
+        // 매칭이 없어 0점 문서를 id 순으로 채운 sparse 결과
+        List<RagHit> sparse = List.of(hit(10, 0.0), hit(11, 0.0), hit(12, 0.0));
+        List<RagHit> dense = List.of(hit(20, 0.8), hit(21, 0.7));
+
+        List<RagHit> fused = RankFusion.reciprocalRank(List.of(RankFusion.matchedOnly(sparse), dense), 3, 60);
+
+        assertEquals(List.of(20, 21), fused.stream().map(RagHit::id).toList());
+    }
+
+    @Test
+    void matchedOnlyKeepsPositiveHits() {
+        List<RagHit> allMatched = List.of(hit(1, 0.9), hit(2, 0.3));
+        assertSame(allMatched, RankFusion.matchedOnly(allMatched));
+
+        List<RagHit> partial = List.of(hit(1, 0.9), hit(2, 0.0), hit(3, 0.0));
+        assertEquals(List.of(1), RankFusion.matchedOnly(partial).stream().map(RagHit::id).toList());
+    }
+}
@@ -0,0 +1,86 @@
+package com.khi.ragservice.search;
+
+import com.khi.ragservice.entity.RagItem;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrigramIndexTest {
+
+    private static RagItem item(int id, String text, String label, int labelId) {
+        RagItem item = new RagItem();
+        item.setId(id);
+        item.setText(text);
+        item.setLabel(label);
+        item.setLabelId((short) labelId);
+        return item;
+    }
+
+    private final TrigramIndex index = TrigramIndex.build(List.of(
+            item(1, "그 사람 말은 못 믿어, 과학자도 아닌데 뭘 알아.", "인신공격(Ad Hominem)", 1),
+            item(2, "야근을 줄이자는 건 결국 일은 하지 말자는 소리잖아.", "허수아비 논법", 2),
+            item(3, "모두가 산다니까 이 제품이 최고야.", "대중에 호소", 3)
+    ));
+
+    @Test
+    void trigramsFollowPgTrgmPadding() {
+        // SELECT show_trgm('cat') => {"  c"," ca","at ",cat}
+        assertEquals(4, Trigrams.extract("cat").length);
+        assertEquals(4, Trigrams.extract("CAT!!").length);
+        assertEquals(0, Trigrams.extract("  ...  ").length);
+    }
+
+    @Test
+    void similarityMatchesPgTrgm() {
+        // SELECT similarity('word', 'two words') => 0.363636
+        long[] a = Trigrams.extract("word");
+        long[] b = Trigrams.extract("two words");
+        int shared = 0;
+        for (long t : a) if (java.util.Arrays.binarySearch(b, t) >= 0) shared++;
+        assertEquals(0.363636, Trigrams.similarity(shared, a.length, b.length), 1e-6);
+    }
+
+    @Test
+    void returnsBestTrigramMatchFirst() {
+        List<RagHit> hits = index.search("야근을 줄이자는 건 일은 하지 말자는 소리", 5);
+
+        assertEquals(2, hits.get(0).id());
+        assertTrue(hits.get(0).score() >= Trigrams.SIMILARITY_THRESHOLD);
+    }
+
+    @Test
+    void substringMatchesLikeIlike() {
+        List<RagHit> hits = index.search("hominem", 5);
+
+        assertEquals(1, hits.size());
+        assertEquals(1, hits.get(0).id());
+    }
+
+    @Test
+    void substringInsideWordUsesInteriorTrigrams() {
+        // "ominem" 은 단어 중간부터라 패딩 trigram("  o") 은 문서에 없다
+        List<RagHit> hits = index.search("OMINE", 5);
+
+        assertEquals(1, hits.size());
+        assertEquals(1, hits.get(0).id());
+        assertEquals(0, index.search("ominex", 5).stream().filter(h -> h.score() >= Trigrams.SIMILARITY_THRESHOLD).count());
+    }
+
+    @Test
+    void likeWildcardsInQueryAreLiteral() {
+        // '_' 가 와일드카드였다면 "hominem" 이 부분 문자열로 매칭되어 1건만 나온다. 매칭이 없으니 fallback 으로 전체
+        List<RagHit> hits = index.search("hom_nem", 5);
+
+        assertEquals(3, hits.size());
+    }
+
+    @Test
+    void fallsBackToFullSimilaritySortWhenNothingMatches() {
+        List<RagHit> hits = index.search("전혀 관계없는 문장 xyz", 2);
+
+        assertEquals(2, hits.size());
+    }
+}
@@ -0,0 +1,47 @@
+package com.khi.ragservice.search;
+
+import com.khi.ragservice.embedding.FakeEmbeddingClient;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VectorIndexTest {
+
+    private final FakeEmbeddingClient embedder = new FakeEmbeddingClient(67);
+
+    private final RagCorpus corpus = new RagCorpus(
+            new int[]{1, 2, 3},
+            new String[]{"너는 숫자도 제대로 못 읽잖아", "야근을 줄이자는 건 일은 하지 말자는 소리", "모두가 산다니까 최고야"},
+            new String[]{"인신공격", "허수아비", "대중 호소"},
+            new short[]{1, 2, 3});
+
+    private VectorIndex build() {
+        VectorIndex.Builder builder = VectorIndex.builder(corpus, 67);
+        List<float[]> vectors = embedder.embedPassages(List.of(corpus.text(0), corpus.text(1), corpus.text(2)));
+        for (int d = 0; d < corpus.size(); d++) builder.put(corpus.id(d), vectors.get(d));
+        return builder.build();
+    }
+
+    @Test
+    void ranksClosestVectorFirst() {
+        List<RagHit> hits = build().search(embedder.embedQuery("야근 줄이자는 건 일 하지 말자는 거지"), 2);
+
+        assertEquals(2, hits.size());
+        assertEquals(2, hits.get(0).id());
+        assertTrue(hits.get(0).score() > hits.get(1).score());
+    }
+
+    @Test
+    void skipsRowsWithoutVectors() {
+        VectorIndex.Builder builder = VectorIndex.builder(corpus, 67);
+        builder.put(3, embedder.embed(corpus.text(2)));
+
+        List<RagHit> hits = builder.build().search(embedder.embedQuery("아무 문장"), 5);
+
+        assertEquals(1, hits.size());
+        assertEquals(3, hits.get(0).id());
+    }
+}
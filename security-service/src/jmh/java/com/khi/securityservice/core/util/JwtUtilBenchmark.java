@@ -0,0 +1,65 @@
+package com.khi.securityservice.core.util;
+
+import com.khi.securityservice.core.enumeration.JwtTokenType;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * 재발급/로그아웃 필터가 요청마다 하는 refresh 토큰 검증 비용.
+ *   legacy    : 이전 JwtUtil 처럼 claim 하나마다 파서를 새로 만들어 서명 검증 (isExpired, getTokenType, getUid, getRole)
+ *   parseOnce : 미리 만든 파서로 한 번 검증한 JwtClaims 에서 꺼냄
+ *   reissue   : parseOnce + 새 access/refresh 토큰 서명 (재발급 요청 한 건의 JWT 연산 전체)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtUtilBenchmark {
+
+    private static final String SECRET = "jmh-benchmark-secret-key-0123456789abcdef";
+
+    private JwtUtil jwtUtil;
+    private SecretKey secretKey;
+    private String refreshToken;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jwtUtil = new JwtUtil(SECRET);
+        secretKey = new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), Jwts.SIG.HS256.key().build().getAlgorithm());
+        refreshToken = jwtUtil.createJwt(JwtTokenType.REFRESH, "google 1234567890", "ROLE_USER", "session-1", 86_400_000L);
+    }
+
+    @Benchmark
+    public void legacy(Blackhole bh) {
+        bh.consume(legacyClaims(refreshToken).getExpiration().before(new Date()));
+        bh.consume(JwtTokenType.valueOf(legacyClaims(refreshToken).get("tokenType", String.class)));
+        bh.consume(legacyClaims(refreshToken).get("uid", String.class));
+        bh.consume(legacyClaims(refreshToken).get("role", String.class));
+    }
+
+    @Benchmark
+    public void parseOnce(Blackhole bh) {
+        JwtClaims claims = jwtUtil.parse(refreshToken);
+        bh.consume(claims.tokenType());
+        bh.consume(claims.uid());
+        bh.consume(claims.role());
+    }
+
+    @Benchmark
+    public void reissue(Blackhole bh) {
+        JwtClaims claims = jwtUtil.parse(refreshToken);
+        bh.consume(jwtUtil.createJwt(JwtTokenType.ACCESS, claims.uid(), claims.role(), 600_000L));
+        bh.consume(jwtUtil.createJwt(JwtTokenType.REFRESH, claims.uid(), claims.role(), claims.sessionId(), 86_400_000L));
+    }
+
+    private Claims legacyClaims(String token) {
+        return Jwts.parser().verifyWith(secretKey).build().parseSignedClaims(token).getPayload();
+    }
+}
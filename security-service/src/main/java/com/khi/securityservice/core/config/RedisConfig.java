@@ -1,14 +1,19 @@
 package com.khi.securityservice.core.config;
 
+import com.khi.securityservice.common.concurrent.Bulkhead;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.time.Duration;
+
 @Configuration
 public class RedisConfig {
 
@@ -18,6 +23,13 @@ public class RedisConfig {
     @Value("${spring.data.redis.port}")
     private int port;
 
+    /* virtual thread 모드에서 Redis 로 동시에 나가는 명령 수 상한 */
+    @Value("${security.concurrency.redis:64}")
+    private int redisConcurrency;
+
+    @Value("${security.concurrency.acquire-timeout:2s}")
+    private Duration acquireTimeout;
+
     @Bean
     public RedisConnectionFactory redisConnectionFactory() {
 
@@ -33,7 +45,15 @@ public class RedisConfig {
     @Bean
     public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory redisConnectionFactory) {
 
-        RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>();
+        Bulkhead bulkhead = new Bulkhead("redis", redisConcurrency, acquireTimeout);
+
+        // 모든 RedisTemplate 연산은 execute(RedisCallback, ...) 를 거치므로 여기서 한 번에 동시성을 제한한다
+        RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>() {
+            @Override
+            public <T> T execute(RedisCallback<T> action, boolean exposeConnection, boolean pipeline) {
+                return bulkhead.call(() -> super.execute(action, exposeConnection, pipeline));
+            }
+        };
 
         redisTemplate.setKeySerializer(new StringRedisSerializer());
         redisTemplate.setValueSerializer(new StringRedisSerializer());
@@ -41,4 +61,14 @@ public class RedisConfig {
 
         return redisTemplate;
     }
+
+    /* keyspace notification 구독 (refresh 토큰 near-cache 무효화). 구독 연결은 bulkhead 를 거치지 않는 전용 연결이다 */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory) {
+
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+
+        return container;
+    }
 }
@@ -6,13 +6,13 @@ import com.khi.securityservice.core.exception.RestAuthenticationEntryPoint;
 import com.khi.securityservice.core.filter.JwtLogoutFilter;
 import com.khi.securityservice.core.filter.JwtReissueFilter;
 import com.khi.securityservice.core.handler.LoginSuccessHandler;
+import com.khi.securityservice.core.repository.RefreshTokenRepository;
 import com.khi.securityservice.core.repository.UserRepository;
 import com.khi.securityservice.core.service.LoginService;
 import com.khi.securityservice.core.util.JwtUtil;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -35,7 +35,7 @@ public class SecurityConfig {
     private final LoginService loginService;
     private final LoginSuccessHandler loginSuccessHandler;
 
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final RefreshTokenRepository refreshTokenRepository;
     private final UserRepository userRepository;
     private final ObjectMapper objectMapper;
     private final JwtUtil jwtUtil;
@@ -101,12 +101,12 @@ public class SecurityConfig {
     @Bean
     public JwtReissueFilter jwtReissueFilter() {
 
-        return new JwtReissueFilter(jwtUtil, redisTemplate, objectMapper);
+        return new JwtReissueFilter(jwtUtil, refreshTokenRepository, objectMapper);
     }
 
     @Bean
     public JwtLogoutFilter jwtLogoutFilter() {
 
-        return new JwtLogoutFilter(jwtUtil, redisTemplate, objectMapper);
+        return new JwtLogoutFilter(jwtUtil, refreshTokenRepository, objectMapper);
     }
 }
\ No newline at end of file
@@ -4,8 +4,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.khi.securityservice.common.api.ApiResponse;
 import com.khi.securityservice.core.enumeration.JwtTokenType;
 import com.khi.securityservice.core.exception.type.SecurityAuthenticationException;
+import com.khi.securityservice.core.repository.RefreshTokenRepository;
+import com.khi.securityservice.core.util.JwtClaims;
 import com.khi.securityservice.core.util.JwtUtil;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.Cookie;
@@ -13,7 +16,6 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -26,14 +28,16 @@ public class JwtLogoutFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
 
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final RefreshTokenRepository refreshTokenRepository;
 
     private final ObjectMapper objectMapper;
 
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) throws ServletException {
 
-        return !(request.getRequestURI().equals("/security/logout") && "POST".equalsIgnoreCase(request.getMethod()));
+        String uri = request.getRequestURI();
+
+        return !((uri.equals("/security/logout") || uri.equals("/security/logout/all")) && "POST".equalsIgnoreCase(request.getMethod()));
     }
 
     @Override
@@ -58,36 +62,36 @@ public class JwtLogoutFilter extends OncePerRequestFilter {
             throw new SecurityAuthenticationException("리프레시 토큰이 존재하지 않습니다.");
         }
 
+        JwtClaims claims;
+
         try {
 
-            jwtUtil.isExpired(refreshToken);
+            claims = jwtUtil.parse(refreshToken);
 
         } catch (ExpiredJwtException e) {
 
             throw new SecurityAuthenticationException("리프레시 토큰이 만료되었습니다.");
-        }
 
-        JwtTokenType tokenType = jwtUtil.getTokenType(refreshToken);
+        } catch (JwtException | IllegalArgumentException e) {
+
+            throw new SecurityAuthenticationException("유효하지 않은 리프레시 토큰입니다.");
+        }
 
-        if (tokenType != JwtTokenType.REFRESH) {
+        if (claims.tokenType() != JwtTokenType.REFRESH) {
 
             throw new SecurityAuthenticationException("토큰 타입이 리프레시 타입과 일치하지 않습니다.");
         }
 
-        String uid = jwtUtil.getUid(refreshToken);
-
-        Object redisRefreshToken = redisTemplate.opsForValue().get(uid);
+        // /logout/all 이면 이 사용자의 모든 기기 세션을 함께 삭제
+        boolean all = request.getRequestURI().equals("/security/logout/all");
 
-        if (redisRefreshToken == null || !redisRefreshToken.toString().equals(refreshToken)) {
+        // Redis의 세션 토큰이 요청 토큰과 같을 때만 삭제 (비교+삭제를 한 번의 왕복으로)
+        if (!refreshTokenRepository.deleteIfMatches(claims.uid(), claims.sessionId(), refreshToken, all)) {
 
             throw new SecurityAuthenticationException("서버에 일치하는 리프레시 토큰이 존재하지 않습니다.");
         }
 
-        log.info("Refresh 토큰 검증 완료");
-
-        redisTemplate.delete(uid);
-
-        log.info("Redis에서 Refresh 토큰 삭제 완료");
+        log.info("Refresh 토큰 검증 및 Redis에서 삭제 완료");
 
         Cookie cookie = new Cookie("Refresh-Token", null);
         cookie.setMaxAge(0);
@@ -4,8 +4,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.khi.securityservice.common.api.ApiResponse;
 import com.khi.securityservice.core.enumeration.JwtTokenType;
 import com.khi.securityservice.core.exception.type.SecurityAuthenticationException;
+import com.khi.securityservice.core.repository.RefreshTokenRepository;
+import com.khi.securityservice.core.util.JwtClaims;
 import com.khi.securityservice.core.util.JwtUtil;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.Cookie;
@@ -13,13 +16,12 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.concurrent.TimeUnit;
+import java.util.UUID;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -27,7 +29,7 @@ public class JwtReissueFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
 
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final RefreshTokenRepository refreshTokenRepository;
 
     private final ObjectMapper objectMapper;
 
@@ -60,54 +62,49 @@ public class JwtReissueFilter extends OncePerRequestFilter {
             throw new SecurityAuthenticationException("리프레시 토큰이 존재하지 않습니다.");
         }
 
-        // Refresh 토큰 만료 여부 검증
+        // Refresh 토큰 서명/만료 검증 (한 번만 파싱하고 이후 claim 은 여기서 꺼낸다)
+        JwtClaims claims;
+
         try {
 
-            jwtUtil.isExpired(refreshToken);
+            claims = jwtUtil.parse(refreshToken);
 
         } catch (ExpiredJwtException e) {
 
             throw new SecurityAuthenticationException("리프레시 토큰이 만료되었습니다.");
-        }
-
-        // Refresh 토큰 타입 검증
-        JwtTokenType tokenType = jwtUtil.getTokenType(refreshToken);
 
-        if (tokenType != JwtTokenType.REFRESH) {
+        } catch (JwtException | IllegalArgumentException e) {
 
-            throw new SecurityAuthenticationException("토큰 타입이 리프레시 타입과 일치하지 않습니다.");
+            throw new SecurityAuthenticationException("유효하지 않은 리프레시 토큰입니다.");
         }
 
-        // DB에 Refresh 토큰이 존재하는지 검증
-        String uid = jwtUtil.getUid(refreshToken);
-
-        Object redisRefreshToken = redisTemplate.opsForValue().get(uid);
-
-        if (redisRefreshToken == null || !redisRefreshToken.toString().equals(refreshToken)) {
+        // Refresh 토큰 타입 검증
+        if (claims.tokenType() != JwtTokenType.REFRESH) {
 
-            throw new SecurityAuthenticationException("서버에 일치하는 리프레시 토큰이 존재하지 않습니다.");
+            throw new SecurityAuthenticationException("토큰 타입이 리프레시 타입과 일치하지 않습니다.");
         }
 
-        log.info("Refresh 토큰 검증 완료");
+        String uid = claims.uid();
+        String role = claims.role();
 
-        String role = jwtUtil.getRole(refreshToken);
+        // 세션 도입 전에 발급된 토큰(sid 없음)은 이번 재발급에서 새 세션을 만든다
+        boolean legacy = claims.sessionId() == null;
+        String sessionId = legacy ? UUID.randomUUID().toString() : claims.sessionId();
 
         String newAccessToken = jwtUtil.createJwt(JwtTokenType.ACCESS, uid, role, 600_000L);
-        String newRefreshToken = jwtUtil.createJwt(JwtTokenType.REFRESH, uid, role, 86_400_000L);
-
-        log.info("새로운 Access, Refresh 토큰 발급 완료");
+        String newRefreshToken = jwtUtil.createJwt(JwtTokenType.REFRESH, uid, role, sessionId, 86_400_000L);
 
-        // Redis에 기존에 존재하는 Refresh 토큰 삭제
-        redisTemplate.delete(String.valueOf(uid));
+        // Redis의 세션 토큰이 요청 토큰과 같을 때만 새 토큰으로 교체 (비교+교체를 한 번의 왕복으로, 동시 재발급은 하나만 성공)
+        boolean rotated = legacy
+                ? refreshTokenRepository.migrateLegacy(uid, refreshToken, sessionId, newRefreshToken, 86_400_000L)
+                : refreshTokenRepository.rotate(uid, sessionId, refreshToken, newRefreshToken, 86_400_000L);
 
-        log.info("Redis에서 기존 Refresh 토큰 삭제 완료");
+        if (!rotated) {
 
-        // Redis에 Refresh 토큰 저장
-        String redisKey = String.valueOf(uid);
-
-        log.info("Redis에 새로운 Refresh 토큰 저장 완료");
+            throw new SecurityAuthenticationException("서버에 일치하는 리프레시 토큰이 존재하지 않습니다.");
+        }
 
-        redisTemplate.opsForValue().set(redisKey, newRefreshToken, 86_400_000L, TimeUnit.MILLISECONDS);
+        log.info("Refresh 토큰 검증 및 새로운 Access, Refresh 토큰 발급 완료");
 
         ApiResponse<?> apiResponse = ApiResponse.success();
 
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.khi.securityservice.common.api.ApiResponse;
 import com.khi.securityservice.core.enumeration.JwtTokenType;
 import com.khi.securityservice.core.principal.SecurityUserPrincipal;
+import com.khi.securityservice.core.repository.RefreshTokenRepository;
 import com.khi.securityservice.core.util.JwtUtil;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.Cookie;
@@ -11,7 +12,6 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.core.Authentication;
@@ -23,7 +23,7 @@ import org.springframework.web.util.UriComponentsBuilder;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.concurrent.TimeUnit;
+import java.util.UUID;
 
 @Slf4j
 @Component
@@ -32,7 +32,7 @@ public class LoginSuccessHandler extends SimpleUrlAuthenticationSuccessHandler {
 
     private final JwtUtil jwtUtil;
 
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final RefreshTokenRepository refreshTokenRepository;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
@@ -52,9 +52,12 @@ public class LoginSuccessHandler extends SimpleUrlAuthenticationSuccessHandler {
         String role = auth.getAuthority();
 
         String accessToken = jwtUtil.createJwt(JwtTokenType.ACCESS, uid, role, 600_000L);
-        String refreshToken = jwtUtil.createJwt(JwtTokenType.REFRESH, uid, role, 86_400_000L);
+        // 로그인마다 새 세션 (기기별로 따로 재발급/로그아웃)
+        String sessionId = UUID.randomUUID().toString();
 
-        redisTemplate.opsForValue().set(uid, refreshToken, 86_400_000L, TimeUnit.MILLISECONDS);
+        String refreshToken = jwtUtil.createJwt(JwtTokenType.REFRESH, uid, role, sessionId, 86_400_000L);
+
+        refreshTokenRepository.save(uid, sessionId, refreshToken, 86_400_000L);
 
         log.info("Redis에 Refresh 토큰 저장 완료");
 
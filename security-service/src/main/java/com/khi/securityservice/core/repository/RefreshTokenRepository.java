@@ -0,0 +1,415 @@
+package com.khi.securityservice.core.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.SubscriptionListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * 사용자별 refresh 토큰 세션 저장소 (Redis) + 로컬 near-cache.
+ * 사용자 하나가 key 두 개를 쓴다 (같은 hash tag 라 cluster 에서도 같은 slot):
+ *   refresh-token:{uid}         HASH  sessionId → 토큰 SHA-256 (원문 토큰은 저장하지 않는다)
+ *   refresh-token:{uid}:expiry  ZSET  sessionId → 만료 시각(ms). 만료 세션 정리와 세션 수 제한에 쓴다
+ * 두 key 의 TTL 은 가장 늦은 세션 만료 시각에 맞춰 두므로 모든 세션이 만료되면 key 도 사라진다 (SCAN 정리 불필요).
+ * 세션 수가 maxSessions 를 넘으면 만료가 가장 이른 (= 가장 오래 재발급되지 않은) 세션부터 밀어낸다.
+ * 이전 형식 (uid → 토큰 원문 String, sid claim 없는 토큰) 은 재발급 때 새 형식으로 옮기고 로그아웃 때 지운다.
+ * 재발급/로그아웃은 비교와 변경을 Lua 스크립트 하나로 처리해 같은 토큰으로 동시에 와도 한 요청만 성공한다.
+ * near-cache 는 "이 토큰은 이미 현재 토큰이 아니다" 를 Redis 없이 판단하는 데만 쓴다 (통과는 항상 Redis 의 비교로만 결정).
+ * 캐시 일관성은 keyspace notification 으로 맞춘다:
+ *  - 어느 replica 든 사용자의 key 를 바꾸거나 만료되면 Redis 가 __keyspace@0__:<key> 로 알리고, 구독 중인 모든 replica 가 그 사용자의 로컬 항목을 지운다
+ *  - 알림은 다른 replica 에 비동기로 도착하므로 명령 응답보다 먼저 처리된다는 보장은 없다. 알림이 늦게 처리되는 짧은 동안에는
+ *    방금 회전된 새 토큰이 다른 replica 의 옛 캐시 값 때문에 거절될 수 있다 (통과는 Redis 에서만 결정되므로 옛 토큰이 통과하는 일은 없다)
+ *  - 구독이 끊기면 로컬 캐시를 비우고 다시 구독될 때까지 모든 조회를 Redis 로 보낸다
+ *  - heartbeat key 를 주기적으로 SET 해서 그 keyspace 알림이 돌아오는지 본다. 최근 heartbeat 가 안 보이면
+ *    (연결이 조용히 죽었거나 서버에 notify-keyspace-events 가 꺼져 있으면) 캐시를 쓰지 않는다
+ *  - 스크립트 실행 중에 무효화가 끼어들면 그 결과는 캐시에 넣지 않는다 (늦게 도착한 결과가 새 값을 덮지 않게)
+ * 로컬 항목은 ttl 이 지나면 스스로도 버린다 (알림 유실 대비 안전망).
+ */
+@Slf4j
+@Component
+public class RefreshTokenRepository {
+
+    private static final String KEYSPACE_PREFIX = "__keyspace@0__:";
+    // 세션 key 와 heartbeat key 만 구독한다 (db0 의 다른 key 변경으로 무효화 카운터가 오르지 않게)
+    private static final String KEYSPACE_PATTERN = KEYSPACE_PREFIX + "refresh-token:*";
+    // K: keyspace 채널, g: DEL/EXPIRE 등 공통 명령, $: 문자열(SET), h: hash, z: sorted set, x: 만료, e: 메모리 축출
+    private static final String REQUIRED_EVENTS = "Kg$hzxe";
+    private static final String KEY_PREFIX = "refresh-token:{";
+    private static final String INDEX_SUFFIX = "}:expiry";
+    // uid 로는 나올 수 없는 이름. 이 key 의 알림은 무효화가 아니라 구독/알림 설정 확인용
+    private static final String HEARTBEAT_KEY = "refresh-token:near-cache:heartbeat";
+
+    // 모든 스크립트 공통: KEYS[1] = 세션 hash, KEYS[2] = 만료 index
+    private static final String SESSION_FUNCTIONS = """
+            local function prune(now)
+                local expired = redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', now)
+                if #expired > 0 then
+                    redis.call('HDEL', KEYS[1], unpack(expired))
+                    redis.call('ZREM', KEYS[2], unpack(expired))
+                end
+            end
+            local function touch()
+                local last = redis.call('ZRANGE', KEYS[2], -1, -1, 'WITHSCORES')
+                if #last > 0 then
+                    redis.call('PEXPIREAT', KEYS[1], last[2])
+                    redis.call('PEXPIREAT', KEYS[2], last[2])
+                end
+            end
+            local function add(sid, tokenHash, expiresAt, maxSessions)
+                redis.call('HSET', KEYS[1], sid, tokenHash)
+                redis.call('ZADD', KEYS[2], expiresAt, sid)
+                local overflow = redis.call('ZCARD', KEYS[2]) - tonumber(maxSessions)
+                if overflow > 0 then
+                    local oldest = redis.call('ZRANGE', KEYS[2], 0, overflow - 1)
+                    redis.call('HDEL', KEYS[1], unpack(oldest))
+                    redis.call('ZREM', KEYS[2], unpack(oldest))
+                end
+                touch()
+                return math.max(overflow, 0)
+            end
+            """;
+
+    /* ARGV: sid, tokenHash, expiresAt, now, maxSessions → 밀려난 세션 수 */
+    private static final RedisScript<Long> SAVE = RedisScript.of(SESSION_FUNCTIONS + """
+            prune(ARGV[4])
+            return add(ARGV[1], ARGV[2], ARGV[3], ARGV[5])
+            """, Long.class);
+
+    /*
+     * 비교와 변경을 Redis 안에서 한 번에 (EVALSHA 한 번 = 왕복 한 번).
+     * 모두 실행 전 값을 돌려주므로 호출 쪽은 expected 와 같은지로 성공 여부를 알고, 다르면 그 값을 near-cache 에 둔다.
+     */
+
+    /* ARGV: sid, expectedHash, nextHash, expiresAt, now */
+    private static final RedisScript<String> ROTATE = RedisScript.of(SESSION_FUNCTIONS + """
+            prune(ARGV[5])
+            local current = redis.call('HGET', KEYS[1], ARGV[1])
+            if current == ARGV[2] then
+                redis.call('HSET', KEYS[1], ARGV[1], ARGV[3])
+                redis.call('ZADD', KEYS[2], ARGV[4], ARGV[1])
+                touch()
+            end
+            return current
+            """, String.class);
+
+    /* ARGV: sid, expectedHash, now, all ('1' 이면 그 사용자의 모든 세션 삭제) */
+    private static final RedisScript<String> DELETE_IF_MATCHES = RedisScript.of(SESSION_FUNCTIONS + """
+            prune(ARGV[3])
+            local current = redis.call('HGET', KEYS[1], ARGV[1])
+            if current == ARGV[2] then
+                if ARGV[4] == '1' then
+                    redis.call('DEL', KEYS[1], KEYS[2])
+                else
+                    redis.call('HDEL', KEYS[1], ARGV[1])
+                    redis.call('ZREM', KEYS[2], ARGV[1])
+                    touch()
+                end
+            end
+            return current
+            """, String.class);
+
+    /* 이전 형식 key (KEYS[3] = uid) 의 토큰 원문과 비교해 같으면 지우고 새 세션으로 옮긴다. ARGV: expected, sid, nextHash, expiresAt, now, maxSessions */
+    private static final RedisScript<String> MIGRATE_LEGACY = RedisScript.of(SESSION_FUNCTIONS + """
+            local current = redis.call('GET', KEYS[3])
+            if current == ARGV[1] then
+                redis.call('DEL', KEYS[3])
+                prune(ARGV[5])
+                add(ARGV[2], ARGV[3], ARGV[4], ARGV[6])
+            end
+            return current
+            """, String.class);
+
+    /* 이전 형식 key 삭제. ARGV: expected, all */
+    private static final RedisScript<String> DELETE_LEGACY_IF_MATCHES = RedisScript.of("""
+            local current = redis.call('GET', KEYS[3])
+            if current == ARGV[1] then
+                if ARGV[2] == '1' then
+                    redis.call('DEL', KEYS[1], KEYS[2], KEYS[3])
+                else
+                    redis.call('DEL', KEYS[3])
+                end
+            end
+            return current
+            """, String.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    /* 세션 hash key → (sessionId → 마지막으로 본 토큰 해시) */
+    private final Cache<String, Map<String, String>> nearCache;
+    private final boolean nearCacheEnabled;
+    private final int maxSessions;
+
+    private final long heartbeatNanos;
+    private final ScheduledExecutorService heartbeat;
+
+    /* 구독이 살아 있는지 (psubscribe 확인 ~ 구독 해제) */
+    private volatile boolean subscribed = false;
+    /* 마지막으로 heartbeat 알림을 받은 시각. 첫 알림을 받기 전까지는 오래된 값이라 캐시를 믿지 않는다 */
+    private volatile long lastHeartbeat;
+    /* 무효화가 일어날 때마다 증가. Redis 호출 전후 값이 다르면 결과를 캐시하지 않는다 */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public RefreshTokenRepository(RedisTemplate<String, Object> redisTemplate,
+                                  RedisMessageListenerContainer listenerContainer,
+                                  @Value("${security.refresh-token.max-sessions:5}") int maxSessions,
+                                  @Value("${security.refresh-token.near-cache.enabled:true}") boolean nearCacheEnabled,
+                                  @Value("${security.refresh-token.near-cache.max-size:100000}") long maxSize,
+                                  @Value("${security.refresh-token.near-cache.ttl:60s}") Duration ttl,
+                                  @Value("${security.refresh-token.near-cache.heartbeat:1s}") Duration heartbeatInterval,
+                                  @Value("${security.refresh-token.near-cache.configure-notifications:false}") boolean configureNotifications) {
+
+        this.redisTemplate = redisTemplate;
+        this.nearCacheEnabled = nearCacheEnabled;
+        this.maxSessions = Math.max(1, maxSessions);
+        this.heartbeatNanos = heartbeatInterval.toNanos();
+        this.lastHeartbeat = staleHeartbeat();
+        this.nearCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+
+        if (nearCacheEnabled) {
+            if (configureNotifications) enableKeyspaceNotifications();
+            listenerContainer.addMessageListener(new Invalidator(), new PatternTopic(KEYSPACE_PATTERN));
+            heartbeat = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("refresh-token-heartbeat").daemon().factory());
+            heartbeat.scheduleWithFixedDelay(this::publishHeartbeat, heartbeatNanos, heartbeatNanos, TimeUnit.NANOSECONDS);
+        } else {
+            heartbeat = null;
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+
+        if (heartbeat != null) heartbeat.shutdownNow();
+    }
+
+    /* 로그인: 새 세션 추가 (세션 수 제한을 넘으면 오래된 세션을 밀어낸다) */
+    public void save(String uid, String sessionId, String refreshToken, long ttlMs) {
+
+        long now = System.currentTimeMillis();
+        Long evicted = redisTemplate.execute(SAVE, keys(uid), sessionId, hash(refreshToken),
+                String.valueOf(now + ttlMs), String.valueOf(now), String.valueOf(maxSessions));
+        invalidate(sessionKey(uid));
+
+        if (evicted != null && evicted > 0) {
+            log.info("[redis] 세션 수 제한으로 오래된 세션 {}개 만료 | uid={}", evicted, uid);
+        }
+    }
+
+    /* 재발급: 세션의 토큰이 expected 일 때만 next 로 교체. 교체했으면 true */
+    public boolean rotate(String uid, String sessionId, String expected, String next, long ttlMs) {
+
+        long now = System.currentTimeMillis();
+        return compareAndExecute(ROTATE, uid, sessionId, hash(expected),
+                hash(next), String.valueOf(now + ttlMs), String.valueOf(now));
+    }
+
+    /* 이전 형식 토큰 재발급: 저장된 원문이 expected 일 때만 지우고 sessionId 세션으로 옮긴다. 옮겼으면 true */
+    public boolean migrateLegacy(String uid, String expected, String sessionId, String next, long ttlMs) {
+
+        long now = System.currentTimeMillis();
+        String current = redisTemplate.execute(MIGRATE_LEGACY, legacyKeys(uid), expected, sessionId, hash(next),
+                String.valueOf(now + ttlMs), String.valueOf(now), String.valueOf(maxSessions));
+        invalidate(sessionKey(uid));
+
+        return expected.equals(current);
+    }
+
+    /* 로그아웃: 세션의 토큰이 expected 일 때만 삭제. all 이면 그 사용자의 모든 세션을 함께 삭제. 삭제했으면 true */
+    public boolean deleteIfMatches(String uid, String sessionId, String expected, boolean all) {
+
+        String flag = all ? "1" : "0";
+
+        if (sessionId == null) {
+            String current = redisTemplate.execute(DELETE_LEGACY_IF_MATCHES, legacyKeys(uid), expected, flag);
+            invalidate(sessionKey(uid));
+            return expected.equals(current);
+        }
+
+        return compareAndExecute(DELETE_IF_MATCHES, uid, sessionId, hash(expected),
+                String.valueOf(System.currentTimeMillis()), flag);
+    }
+
+    // 스크립트는 실행 전 값을 돌려준다. 같은 토큰으로 재시도가 몰리면 두 번째부터는 로컬에서 거절된다
+    private boolean compareAndExecute(RedisScript<String> script, String uid, String sessionId, String expectedHash, String... extraArgs) {
+
+        String key = sessionKey(uid);
+
+        boolean trusted = trusted();
+        if (trusted) {
+            Map<String, String> sessions = nearCache.getIfPresent(key);
+            String cached = sessions == null ? null : sessions.get(sessionId);
+            if (cached != null && !cached.equals(expectedHash)) return false;
+        }
+
+        Object[] args = new Object[extraArgs.length + 2];
+        args[0] = sessionId;
+        args[1] = expectedHash;
+        System.arraycopy(extraArgs, 0, args, 2, extraArgs.length);
+
+        long seen = invalidations.get();
+        String current = redisTemplate.execute(script, keys(uid), args);
+
+        if (expectedHash.equals(current)) {
+            invalidate(key);
+            return true;
+        }
+        if (current != null && trusted && invalidations.get() == seen) {
+            nearCache.get(key, k -> new ConcurrentHashMap<>()).put(sessionId, current);
+        }
+        return false;
+    }
+
+    private static String sessionKey(String uid) {
+
+        return KEY_PREFIX + uid + "}";
+    }
+
+    private static List<String> keys(String uid) {
+
+        return List.of(sessionKey(uid), KEY_PREFIX + uid + INDEX_SUFFIX);
+    }
+
+    // 이전 형식 key 는 uid 그대로라 {uid} hash tag 와 같은 slot 이다
+    private static List<String> legacyKeys(String uid) {
+
+        return List.of(sessionKey(uid), KEY_PREFIX + uid + INDEX_SUFFIX, uid);
+    }
+
+    private static String hash(String token) {
+
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // heartbeat 3 번 이상 못 받았으면 구독이 죽은 것으로 본다
+    boolean trusted() {
+
+        return subscribed && System.nanoTime() - lastHeartbeat < 3 * heartbeatNanos;
+    }
+
+    private long staleHeartbeat() {
+
+        return System.nanoTime() - 3 * heartbeatNanos;
+    }
+
+    private void publishHeartbeat() {
+
+        try {
+            redisTemplate.opsForValue().set(HEARTBEAT_KEY, "1", 3 * heartbeatNanos, TimeUnit.NANOSECONDS);
+        } catch (RuntimeException e) {
+            log.debug("[redis] near-cache heartbeat 실패 | {}", e.toString());
+        }
+    }
+
+    private void invalidate(String key) {
+
+        invalidations.incrementAndGet();
+        nearCache.invalidate(key);
+    }
+
+    private void invalidateAll() {
+
+        invalidations.incrementAndGet();
+        nearCache.invalidateAll();
+    }
+
+    // 이미 설정된 이벤트는 유지하고 모자란 플래그만 더한다. CONFIG 가 막힌 환경이면 경고만 남긴다 (알림이 안 오면 heartbeat 도 안 와서 캐시를 안 쓴다)
+    private void enableKeyspaceNotifications() {
+
+        try {
+            redisTemplate.execute((RedisCallback<Void>) connection -> {
+                configureNotifications(connection);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.warn("[redis] notify-keyspace-events 설정 실패, 서버 설정을 확인하세요 (필요: {}) | {}", REQUIRED_EVENTS, e.toString());
+        }
+    }
+
+    private void configureNotifications(RedisConnection connection) {
+
+        Properties current = connection.serverCommands().getConfig("notify-keyspace-events");
+        String flags = current == null ? "" : current.getProperty("notify-keyspace-events", "");
+
+        StringBuilder merged = new StringBuilder(flags);
+        for (char c : REQUIRED_EVENTS.toCharArray()) {
+            // A 는 g$lshzxet 전체를 뜻한다
+            boolean covered = flags.indexOf(c) >= 0 || (c != 'K' && flags.indexOf('A') >= 0);
+            if (!covered) merged.append(c);
+        }
+
+        if (!merged.toString().equals(flags)) {
+            connection.serverCommands().setConfig("notify-keyspace-events", merged.toString());
+            log.info("[redis] notify-keyspace-events '{}' -> '{}'", flags, merged);
+        }
+    }
+
+    private class Invalidator implements MessageListener, SubscriptionListener {
+
+        @Override
+        public void onMessage(Message message, byte[] pattern) {
+
+            String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+            if (!channel.startsWith(KEYSPACE_PREFIX)) return;
+
+            String key = channel.substring(KEYSPACE_PREFIX.length());
+            if (HEARTBEAT_KEY.equals(key)) {
+                // 끊겼다 돌아온 경우: 그 사이 놓친 무효화가 있을 수 있으므로 비우고 다시 믿는다
+                if (!trusted()) invalidateAll();
+                lastHeartbeat = System.nanoTime();
+                return;
+            }
+            // 만료 index 의 변경도 같은 사용자의 세션 hash 항목을 지운다
+            invalidate(key.endsWith(INDEX_SUFFIX) ? key.substring(0, key.length() - INDEX_SUFFIX.length() + 1) : key);
+        }
+
+        @Override
+        public void onPatternSubscribed(byte[] pattern, long count) {
+
+            // 구독 전에 채워진 항목은 그 사이 변경을 놓쳤을 수 있다
+            // 구독만으로는 서버가 알림을 보내는지 알 수 없으므로 첫 heartbeat 알림이 올 때까지는 믿지 않는다
+            invalidateAll();
+            lastHeartbeat = staleHeartbeat();
+            subscribed = true;
+            log.info("[redis] refresh token near-cache tracking on");
+        }
+
+        @Override
+        public void onPatternUnsubscribed(byte[] pattern, long count) {
+
+            subscribed = false;
+            invalidateAll();
+            log.warn("[redis] refresh token near-cache tracking off (keyspace 구독 해제)");
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.khi.securityservice.core.util;
+
+import com.khi.securityservice.core.enumeration.JwtTokenType;
+
+import java.util.Date;
+
+/*
+ * 서명과 만료까지 검증을 마친 JWT claim. tokenType 클레임이 없거나 알 수 없는 값이면 tokenType 은 null.
+ * sessionId 는 refresh 토큰의 로그인 세션(기기) 식별자이고, 세션 도입 전에 발급된 토큰이면 null
+ */
+public record JwtClaims(JwtTokenType tokenType, String uid, String role, String sessionId, Date expiration) {
+}
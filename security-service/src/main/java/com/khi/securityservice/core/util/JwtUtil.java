@@ -1,6 +1,8 @@
 package com.khi.securityservice.core.util;
 
 import com.khi.securityservice.core.enumeration.JwtTokenType;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -10,43 +12,61 @@ import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
 
+/*
+ * JWT 발급/검증.
+ * 파서는 생성자에서 한 번만 만든다 (jjwt 의 JwtParser 는 불변이라 여러 요청 스레드에서 같이 써도 된다).
+ * 한 요청에서 여러 claim 이 필요하면 parse 로 서명 검증을 한 번만 하고 JwtClaims 에서 꺼내 쓴다.
+ */
 @Component
 public class JwtUtil {
-    private SecretKey secretKey;
+    private final SecretKey secretKey;
+    private final JwtParser parser;
 
     public JwtUtil(@Value("${jwt.secret}") String secret) {
 
         secretKey = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), Jwts.SIG.HS256.key().build().getAlgorithm());
+        parser = Jwts.parser().verifyWith(secretKey).build();
     }
 
-    public JwtTokenType getTokenType(String token) {
-        return JwtTokenType.valueOf(Jwts.parser().verifyWith(secretKey).build().parseSignedClaims(token).getPayload().get("tokenType", String.class));
-    }
+    /*
+     * 서명과 만료를 한 번에 검증하고 claim 을 꺼낸다.
+     * 만료면 ExpiredJwtException, 서명 불일치/형식 오류면 그 밖의 JwtException (빈 토큰은 IllegalArgumentException)
+     */
+    public JwtClaims parse(String token) {
 
-    public String getUid(String token) {
+        Claims claims = parser.parseSignedClaims(token).getPayload();
 
-        return Jwts.parser().verifyWith(secretKey).build().parseSignedClaims(token).getPayload().get("uid", String.class);
+        return new JwtClaims(tokenType(claims.get("tokenType", String.class)),
+                claims.get("uid", String.class), claims.get("role", String.class), claims.get("sid", String.class),
+                claims.getExpiration());
     }
 
-    public String getRole(String token) {
+    public String createJwt(JwtTokenType tokenType, String uid, String role, Long expiredMs) {
 
-        return Jwts.parser().verifyWith(secretKey).build().parseSignedClaims(token).getPayload().get("role", String.class);
+        return createJwt(tokenType, uid, role, null, expiredMs);
     }
 
-    public Boolean isExpired(String token) {
-
-        return Jwts.parser().verifyWith(secretKey).build().parseSignedClaims(token).getPayload().getExpiration().before(new Date());
-    }
-
-    public String createJwt(JwtTokenType tokenType, String uid, String role, Long expiredMs) {
+    /* sessionId 가 있으면 sid 클레임으로 넣는다 (refresh 토큰의 로그인 세션 식별자) */
+    public String createJwt(JwtTokenType tokenType, String uid, String role, String sessionId, Long expiredMs) {
 
         return Jwts.builder()
                 .claim("tokenType", tokenType.toString())
                 .claim("uid", uid)
                 .claim("role", role)
+                .claim("sid", sessionId)
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis() + expiredMs))
                 .signWith(secretKey)
                 .compact();
     }
+
+    private static JwtTokenType tokenType(String value) {
+
+        if (value == null) return null;
+        try {
+            return JwtTokenType.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
 }
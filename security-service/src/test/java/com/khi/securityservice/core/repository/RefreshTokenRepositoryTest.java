@@ -0,0 +1,362 @@
+package com.khi.securityservice.core.repository;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * 비교-교체, 만료 세션 정리, 세션 수 제한, 이전 형식 이전 Lua 스크립트를 실제 Redis 에서 확인한다.
+ * 스크립트 테스트는 near-cache 를 끈다 (통과/거절은 항상 스크립트가 정하므로 캐시 없이도 같은 결과여야 한다).
+ * near-cache 테스트는 keyspace 알림을 켠 서버에서 두 인스턴스(replica)를 띄워 무효화와 heartbeat 신뢰 여부를 본다.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class RefreshTokenRepositoryTest {
+
+    private static final long TTL_MS = 60_000L;
+    private static final String SESSIONS = "refresh-token:{user}";
+    private static final String EXPIRY = "refresh-token:{user}:expiry";
+
+    @Container
+    private static final GenericContainer<?> REDIS = new GenericContainer<>(DockerImageName.parse("redis:7-alpine"))
+            .withCommand("redis-server", "--notify-keyspace-events", "Kg$hzxe")
+            .withExposedPorts(6379);
+
+    private static final Duration HEARTBEAT = Duration.ofMillis(100);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, Object> redisTemplate;
+
+    private RefreshTokenRepository repository;
+
+    private final List<RedisMessageListenerContainer> containers = new ArrayList<>();
+    private final List<RefreshTokenRepository> cached = new ArrayList<>();
+
+    @BeforeAll
+    static void connect() {
+
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+
+        redisTemplate = new RedisTemplate<>();
+        redisTemplate.setKeySerializer(new StringRedisSerializer());
+        redisTemplate.setValueSerializer(new StringRedisSerializer());
+        redisTemplate.setConnectionFactory(connectionFactory);
+        redisTemplate.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void disconnect() {
+
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+
+        redisTemplate.execute((RedisCallback<Void>) connection -> {
+            connection.serverCommands().flushDb();
+            return null;
+        });
+        repository = repository(5);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+
+        for (RefreshTokenRepository r : cached) r.close();
+        for (RedisMessageListenerContainer c : containers) c.destroy();
+        cached.clear();
+        containers.clear();
+    }
+
+    @Test
+    void rotateSucceedsOnlyWithTheCurrentToken() {
+
+        repository.save("user", "s1", "token-1", TTL_MS);
+
+        assertFalse(repository.rotate("user", "s1", "other", "token-x", TTL_MS));
+        assertTrue(repository.rotate("user", "s1", "token-1", "token-2", TTL_MS));
+
+        // 이미 회전된 토큰은 다시 쓸 수 없다
+        assertFalse(repository.rotate("user", "s1", "token-1", "token-3", TTL_MS));
+        assertTrue(repository.rotate("user", "s1", "token-2", "token-3", TTL_MS));
+    }
+
+    @Test
+    void rotateFailsForUnknownSession() {
+
+        repository.save("user", "s1", "token-1", TTL_MS);
+
+        assertFalse(repository.rotate("user", "s2", "token-1", "token-2", TTL_MS));
+        assertFalse(repository.rotate("nobody", "s1", "token-1", "token-2", TTL_MS));
+    }
+
+    @Test
+    void concurrentReissuesWithTheSameTokenHaveExactlyOneWinner() throws Exception {
+
+        repository.save("user", "s1", "token-0", TTL_MS);
+
+        int threads = 16;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                String next = "token-" + (i + 1);
+                Callable<Boolean> reissue = () -> {
+                    start.await();
+                    return repository.rotate("user", "s1", "token-0", next, TTL_MS);
+                };
+                results.add(pool.submit(reissue));
+            }
+            start.countDown();
+
+            int winner = -1;
+            for (int i = 0; i < threads; i++) {
+                if (results.get(i).get()) {
+                    assertEquals(-1, winner);
+                    winner = i;
+                }
+            }
+            assertTrue(winner >= 0);
+
+            // 이긴 요청이 받은 토큰만 다음 재발급에 쓸 수 있다
+            for (int i = 0; i < threads; i++) {
+                if (i == winner) continue;
+                assertFalse(repository.rotate("user", "s1", "token-" + (i + 1), "token-x", TTL_MS));
+            }
+            assertTrue(repository.rotate("user", "s1", "token-" + (winner + 1), "token-x", TTL_MS));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void logoutDeletesOnlyWithTheCurrentToken() {
+
+        repository.save("user", "s1", "token-1", TTL_MS);
+        repository.save("user", "s2", "token-2", TTL_MS);
+
+        assertFalse(repository.deleteIfMatches("user", "s1", "token-2", false));
+        assertTrue(repository.deleteIfMatches("user", "s1", "token-1", false));
+        assertFalse(repository.deleteIfMatches("user", "s1", "token-1", false));
+
+        // 다른 세션은 그대로
+        assertTrue(repository.rotate("user", "s2", "token-2", "token-3", TTL_MS));
+    }
+
+    @Test
+    void sessionsBeyondTheLimitEvictTheEarliestExpiring() {
+
+        RefreshTokenRepository limited = repository(2);
+        limited.save("user", "s1", "token-1", TTL_MS);
+        limited.save("user", "s2", "token-2", TTL_MS + 1_000);
+        limited.save("user", "s3", "token-3", TTL_MS + 2_000);
+
+        assertEquals(2L, redisTemplate.opsForHash().size(SESSIONS));
+        assertFalse(limited.rotate("user", "s1", "token-1", "token-x", TTL_MS));
+        assertTrue(limited.rotate("user", "s2", "token-2", "token-x", TTL_MS));
+        assertTrue(limited.rotate("user", "s3", "token-3", "token-y", TTL_MS));
+    }
+
+    @Test
+    void expiredSessionsArePrunedAndKeysFollowTheLatestExpiry() throws Exception {
+
+        repository.save("user", "s1", "token-1", 1);
+        Thread.sleep(10);
+        repository.save("user", "s2", "token-2", TTL_MS);
+
+        assertEquals(1L, redisTemplate.opsForHash().size(SESSIONS));
+        assertFalse(repository.rotate("user", "s1", "token-1", "token-x", TTL_MS));
+
+        // 두 key 모두 남은 세션의 만료 시각에 맞춰 PEXPIREAT 된다
+        long sessionsTtl = redisTemplate.getExpire(SESSIONS, TimeUnit.MILLISECONDS);
+        long expiryTtl = redisTemplate.getExpire(EXPIRY, TimeUnit.MILLISECONDS);
+        assertTrue(sessionsTtl > TTL_MS - 5_000 && sessionsTtl <= TTL_MS);
+        assertTrue(Math.abs(sessionsTtl - expiryTtl) < 1_000);
+    }
+
+    @Test
+    void logoutAllDeletesEverySessionOnlyWithTheCurrentToken() {
+
+        repository.save("user", "s1", "token-1", TTL_MS);
+        repository.save("user", "s2", "token-2", TTL_MS);
+
+        assertFalse(repository.deleteIfMatches("user", "s1", "stale", true));
+        assertEquals(2L, redisTemplate.opsForHash().size(SESSIONS));
+
+        assertTrue(repository.deleteIfMatches("user", "s1", "token-1", true));
+        assertFalse(redisTemplate.hasKey(SESSIONS));
+        assertFalse(redisTemplate.hasKey(EXPIRY));
+        assertFalse(repository.rotate("user", "s2", "token-2", "token-3", TTL_MS));
+    }
+
+    @Test
+    void legacyTokenMigratesToASessionOnce() {
+
+        redisTemplate.opsForValue().set("user", "legacy-token");
+
+        assertFalse(repository.migrateLegacy("user", "other", "s1", "token-1", TTL_MS));
+        assertTrue(redisTemplate.hasKey("user"));
+
+        assertTrue(repository.migrateLegacy("user", "legacy-token", "s1", "token-1", TTL_MS));
+        assertFalse(redisTemplate.hasKey("user"));
+        assertFalse(repository.migrateLegacy("user", "legacy-token", "s2", "token-2", TTL_MS));
+
+        assertTrue(repository.rotate("user", "s1", "token-1", "token-2", TTL_MS));
+    }
+
+    @Test
+    void legacyLogoutDeletesTheFlatKey() {
+
+        redisTemplate.opsForValue().set("user", "legacy-token");
+        repository.save("user", "s1", "token-1", TTL_MS);
+
+        assertFalse(repository.deleteIfMatches("user", null, "other", false));
+        assertTrue(repository.deleteIfMatches("user", null, "legacy-token", false));
+        assertFalse(redisTemplate.hasKey("user"));
+        assertTrue(repository.rotate("user", "s1", "token-1", "token-2", TTL_MS));
+    }
+
+    @Test
+    void nearCacheRejectsLocallyAndFollowsRotationsOnOtherReplicas() throws Exception {
+
+        RefreshTokenRepository a = cachedRepository();
+        RefreshTokenRepository b = cachedRepository();
+        await(() -> a.trusted() && b.trusted());
+
+        a.save("user", "s1", "token-1", TTL_MS);
+        // 첫 거절에서 B 가 token-1 의 해시를 캐시한다 (save 알림이 늦게 와서 지워지면 다시 채운다)
+        await(() -> scriptCallsOf(() -> b.rotate("user", "s1", "stale", "token-x", TTL_MS)) == 0);
+
+        // 이후 오래된 토큰은 Redis 없이 거절한다
+        assertEquals(0, scriptCallsOf(() -> assertFalse(b.rotate("user", "s1", "stale", "token-x", TTL_MS))));
+
+        // A 가 회전하면 알림이 B 의 항목을 지우고, B 는 새 토큰을 받는다 (알림 전에는 로컬 거절이라 상태가 바뀌지 않는다)
+        assertTrue(a.rotate("user", "s1", "token-1", "token-2", TTL_MS));
+        await(() -> b.rotate("user", "s1", "token-2", "token-3", TTL_MS));
+
+        // 옛 토큰은 어느 쪽에서도 통과하지 않는다
+        assertFalse(b.rotate("user", "s1", "token-1", "token-x", TTL_MS));
+        assertFalse(a.rotate("user", "s1", "token-2", "token-x", TTL_MS));
+        await(() -> a.rotate("user", "s1", "token-3", "token-4", TTL_MS));
+    }
+
+    @Test
+    void nearCacheIsNeverTrustedWithoutKeyspaceNotifications() throws Exception {
+
+        setNotifyKeyspaceEvents("");
+        try {
+            RefreshTokenRepository b = cachedRepository();
+
+            // 구독 직후를 포함해 heartbeat 여러 번 동안 한 번도 믿지 않는다
+            long until = System.nanoTime() + HEARTBEAT.toNanos() * 5;
+            while (System.nanoTime() < until) {
+                assertFalse(b.trusted());
+                Thread.sleep(10);
+            }
+
+            repository.save("user", "s1", "token-1", TTL_MS);
+            assertFalse(b.rotate("user", "s1", "stale", "token-x", TTL_MS));
+
+            // 캐시를 믿었다면 B 는 알림 없이 token-1 해시를 들고 있어 새 토큰을 거절했을 것이다
+            assertTrue(repository.rotate("user", "s1", "token-1", "token-2", TTL_MS));
+            assertTrue(b.rotate("user", "s1", "token-2", "token-3", TTL_MS));
+            assertFalse(b.trusted());
+        } finally {
+            setNotifyKeyspaceEvents("Kg$hzxe");
+        }
+    }
+
+    private RefreshTokenRepository cachedRepository() {
+
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.afterPropertiesSet();
+
+        RefreshTokenRepository r = new RefreshTokenRepository(redisTemplate, container, 5,
+                true, 1000, Duration.ofSeconds(60), HEARTBEAT, false);
+        container.start();
+
+        containers.add(container);
+        cached.add(r);
+        return r;
+    }
+
+    private static void setNotifyKeyspaceEvents(String flags) {
+
+        redisTemplate.execute((RedisCallback<Void>) connection -> {
+            connection.serverCommands().setConfig("notify-keyspace-events", flags);
+            return null;
+        });
+    }
+
+    // action 동안 서버에서 실행된 Lua 스크립트 수 (EVALSHA + NOSCRIPT 시의 EVAL)
+    private static long scriptCallsOf(Runnable action) {
+
+        long before = scriptCalls();
+        action.run();
+        return scriptCalls() - before;
+    }
+
+    private static long scriptCalls() {
+
+        Properties stats = redisTemplate.execute((RedisCallback<Properties>) connection ->
+                connection.serverCommands().info("commandstats"));
+        return calls(stats, "cmdstat_evalsha") + calls(stats, "cmdstat_eval");
+    }
+
+    private static long calls(Properties stats, String command) {
+
+        String value = stats == null ? null : stats.getProperty(command);
+        if (value == null) return 0;
+        for (String part : value.split(",")) {
+            if (part.startsWith("calls=")) return Long.parseLong(part.substring("calls=".length()));
+        }
+        return 0;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) throw new AssertionError("condition not met within 5s");
+            Thread.sleep(20);
+        }
+    }
+
+    private RefreshTokenRepository repository(int maxSessions) {
+
+        return new RefreshTokenRepository(redisTemplate, new RedisMessageListenerContainer(), maxSessions,
+                false, 1000, Duration.ofSeconds(60), Duration.ofSeconds(1), false);
+    }
+}